@@ -0,0 +1,82 @@
+package com.pingtower.control_tower.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: values below 16 ms have a bucket each,
+ * every power of two above that is split into 16 buckets, so a bucket is at most 1/16 of its value
+ * wide. The counts array only grows up to the largest value seen. Not thread safe.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private int[] counts = new int[0];
+
+    void add(long value, int count) {
+        int index = index(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + SUB_BUCKETS));
+        }
+        counts[index] += count;
+    }
+
+    void addAll(LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    void addTo(long[] totals) {
+        for (int i = 0; i < counts.length && i < totals.length; i++) {
+            totals[i] += counts[i];
+        }
+    }
+
+    int length() {
+        return counts.length;
+    }
+
+    void clear() {
+        counts = new int[0];
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /** Midpoint of the values that fall into the bucket at {@code index}. */
+    static double valueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        long highest = lowest + (1L << shift) - 1;
+        return (lowest + highest) / 2.0;
+    }
+
+    /** The {@code quantile} of the counts in {@code totals}, or 0 if they are empty. */
+    static double quantile(long[] totals, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(quantile * total), 1);
+        long seen = 0;
+        for (int i = 0; i < totals.length; i++) {
+            seen += totals[i];
+            if (seen >= rank) {
+                return valueAt(i);
+            }
+        }
+        return valueAt(totals.length - 1);
+    }
+}
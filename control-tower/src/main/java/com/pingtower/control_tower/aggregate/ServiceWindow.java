@@ -0,0 +1,106 @@
+package com.pingtower.control_tower.aggregate;
+
+import com.pingtower.control_tower.model.dto.ClickHouseMetricsDto;
+
+/**
+ * Latency and uptime of one service over the last {@link #HOURS} hours, in one bucket per hour
+ * that is reused once it falls out of the window. Guarded by its own monitor.
+ */
+final class ServiceWindow {
+
+    static final int HOURS = 24;
+
+    private final long[] hours = new long[HOURS];
+    private final long[] counts = new long[HOURS];
+    private final long[] okCounts = new long[HOURS];
+    private final long[] latencySums = new long[HOURS];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[HOURS];
+
+    ServiceWindow() {
+        for (int i = 0; i < HOURS; i++) {
+            hours[i] = -1;
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    synchronized void record(long hour, long latencyMs, boolean success) {
+        add(hour, latencyMs, 1, success ? 1 : 0, latencyMs);
+    }
+
+    /** Adds {@code count} measurements whose latency falls into the same histogram bucket as {@code latencyMs}. */
+    synchronized void add(long hour, long latencyMs, int count, long okCount, long latencySum) {
+        int slot = slot(hour);
+        if (slot < 0) {
+            return;
+        }
+        counts[slot] += count;
+        okCounts[slot] += okCount;
+        latencySums[slot] += latencySum;
+        histograms[slot].add(latencyMs, count);
+    }
+
+    /** Adds the buckets of {@code other}, which no other thread may use, and returns this window. */
+    synchronized ServiceWindow mergeFrom(ServiceWindow other) {
+        for (int i = 0; i < HOURS; i++) {
+            if (other.hours[i] < 0) {
+                continue;
+            }
+            int slot = slot(other.hours[i]);
+            if (slot < 0) {
+                continue;
+            }
+            counts[slot] += other.counts[i];
+            okCounts[slot] += other.okCounts[i];
+            latencySums[slot] += other.latencySums[i];
+            histograms[slot].addAll(other.histograms[i]);
+        }
+        return this;
+    }
+
+    // The slot of the bucket for hour, reset if it still holds an older hour; -1 if hour is older than the window
+    private int slot(long hour) {
+        int slot = (int) Math.floorMod(hour, (long) HOURS);
+        if (hours[slot] != hour) {
+            if (hours[slot] > hour) {
+                return -1;
+            }
+            hours[slot] = hour;
+            counts[slot] = 0;
+            okCounts[slot] = 0;
+            latencySums[slot] = 0;
+            histograms[slot].clear();
+        }
+        return slot;
+    }
+
+    /** Metrics of the current hour and the {@code HOURS - 1} before it, or null if there are none. */
+    synchronized ClickHouseMetricsDto metrics(long currentHour) {
+        long total = 0;
+        long ok = 0;
+        long latencySum = 0;
+        int length = 0;
+        for (int i = 0; i < HOURS; i++) {
+            if (inWindow(i, currentHour)) {
+                total += counts[i];
+                ok += okCounts[i];
+                latencySum += latencySums[i];
+                length = Math.max(length, histograms[i].length());
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        long[] merged = new long[length];
+        for (int i = 0; i < HOURS; i++) {
+            if (inWindow(i, currentHour)) {
+                histograms[i].addTo(merged);
+            }
+        }
+        return new ClickHouseMetricsDto(LatencyHistogram.quantile(merged, total, 0.95),
+                (double) latencySum / total, ok, total);
+    }
+
+    private boolean inWindow(int slot, long currentHour) {
+        return hours[slot] > currentHour - HOURS && hours[slot] <= currentHour;
+    }
+}
@@ -0,0 +1,225 @@
+package com.pingtower.control_tower.analytics;
+
+import com.pingtower.control_tower.model.dto.MetricsPointDto;
+import com.pingtower.control_tower.model.dto.MetricsSeriesDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Answers latency and uptime queries over a time range from the coarsest ClickHouse table that can.
+ * <p>
+ * Besides the raw {@code measurements}, ClickHouse keeps the rollups {@code measurements_1m} and
+ * {@code measurements_1h} (see {@code docker/clickhouse/init-db.sh}), which hold aggregate states
+ * per service and minute or hour. A summary over a range reads the whole hours inside it from the
+ * hourly rollup, the whole minutes left at either end from the minute rollup and only the seconds
+ * left after that from the raw rows, and merges the states in one query. A 30-day summary therefore
+ * reads about 720 rollup rows per service instead of every measurement. A series reads the coarsest
+ * table whose bucket divides its step.
+ */
+@Component
+public class MetricsQueryRouter {
+
+    /** The tables a range can be read from, coarsest first; raw rows count as one-second buckets. */
+    enum Source {
+        HOURLY("measurements_1h", "bucket", 3600,
+                "sum(toUInt64(totalCount))", "sum(toUInt64(okCount))",
+                "avgMergeState(latencyAvg)", "quantilesMergeState(0.5, 0.95, 0.99)(latencyQuantiles)"),
+        MINUTELY("measurements_1m", "bucket", 60,
+                "sum(toUInt64(totalCount))", "sum(toUInt64(okCount))",
+                "avgMergeState(latencyAvg)", "quantilesMergeState(0.5, 0.95, 0.99)(latencyQuantiles)"),
+        RAW("measurements", "timestamp", 1,
+                "count()", "countIf(success = true)",
+                "avgState(latencyMs)", "quantilesState(0.5, 0.95, 0.99)(latencyMs)");
+
+        final String table;
+        final String timeColumn;
+        final long seconds;
+        // Expressions yielding the same column types for every source, so their rows can be merged
+        final String total;
+        final String ok;
+        final String avgState;
+        final String quantilesState;
+
+        Source(String table, String timeColumn, long seconds, String total, String ok, String avgState, String quantilesState) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+            this.seconds = seconds;
+            this.total = total;
+            this.ok = ok;
+            this.avgState = avgState;
+            this.quantilesState = quantilesState;
+        }
+    }
+
+    /** Seconds {@code [from, to)} read from {@code source}. */
+    record Segment(Source source, long from, long to) {
+    }
+
+    private final JdbcTemplate clickhouseJdbcTemplate;
+
+    public MetricsQueryRouter(@Qualifier("clickhouseJdbcTemplate") JdbcTemplate clickhouseJdbcTemplate) {
+        this.clickhouseJdbcTemplate = clickhouseJdbcTemplate;
+    }
+
+    /** Metrics of one service over {@code [from, to)}, as a series with a single point. */
+    public MetricsSeriesDto summary(String serviceId, Instant from, Instant to) {
+        List<Segment> segments = plan(from.getEpochSecond(), to.getEpochSecond());
+        MetricsPointDto point = summaries(List.of(serviceId), segments).get(serviceId);
+        return MetricsSeriesDto.builder()
+                .serviceId(serviceId)
+                .from(Instant.ofEpochSecond(from.getEpochSecond()))
+                .to(Instant.ofEpochSecond(to.getEpochSecond()))
+                .stepSeconds(to.getEpochSecond() - from.getEpochSecond())
+                .tables(tables(segments))
+                .points(point != null ? List.of(point) : List.of())
+                .build();
+    }
+
+    /** Metrics of each service over {@code [from, to)}; services without measurements are left out. */
+    public Map<String, MetricsPointDto> summaries(List<String> serviceIds, Instant from, Instant to) {
+        if (serviceIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return summaries(serviceIds, plan(from.getEpochSecond(), to.getEpochSecond()));
+    }
+
+    /**
+     * Metrics of one service per {@code stepSeconds} interval. The range is widened to whole steps,
+     * counted from the epoch, so every point covers a full interval.
+     */
+    public MetricsSeriesDto series(String serviceId, Instant from, Instant to, long stepSeconds) {
+        long start = Math.floorDiv(from.getEpochSecond(), stepSeconds) * stepSeconds;
+        long end = -Math.floorDiv(-to.getEpochSecond(), stepSeconds) * stepSeconds;
+        Source source = sourceFor(stepSeconds);
+        List<Segment> segments = List.of(new Segment(source, start, end));
+
+        String key = "intDiv(toUInt32(" + source.timeColumn + "), " + stepSeconds + ") * " + stepSeconds;
+        List<MetricsPointDto> points = clickhouseJdbcTemplate.query(
+                mergeSql(segments, key, 1),
+                (rs, rowNum) -> point(rs, Instant.ofEpochSecond(rs.getLong("groupKey"))),
+                parameters(segments, List.of(serviceId)));
+        return MetricsSeriesDto.builder()
+                .serviceId(serviceId)
+                .from(Instant.ofEpochSecond(start))
+                .to(Instant.ofEpochSecond(end))
+                .stepSeconds(stepSeconds)
+                .tables(tables(segments))
+                .points(points)
+                .build();
+    }
+
+    /** The coarsest source whose buckets evenly divide {@code stepSeconds}. */
+    static Source sourceFor(long stepSeconds) {
+        for (Source source : Source.values()) {
+            if (stepSeconds % source.seconds == 0) {
+                return source;
+            }
+        }
+        return Source.RAW;
+    }
+
+    /** Splits {@code [from, to)} into the fewest rollup rows, coarsest in the middle and finer towards the ends. */
+    static List<Segment> plan(long from, long to) {
+        List<Segment> segments = new ArrayList<>();
+        plan(from, to, 0, segments);
+        return segments;
+    }
+
+    private static void plan(long from, long to, int level, List<Segment> segments) {
+        if (from >= to) {
+            return;
+        }
+        Source source = Source.values()[level];
+        if (source == Source.RAW) {
+            segments.add(new Segment(source, from, to));
+            return;
+        }
+        long start = -Math.floorDiv(-from, source.seconds) * source.seconds;
+        long end = Math.floorDiv(to, source.seconds) * source.seconds;
+        if (start >= end) {
+            plan(from, to, level + 1, segments);
+            return;
+        }
+        plan(from, start, level + 1, segments);
+        segments.add(new Segment(source, start, end));
+        plan(end, to, level + 1, segments);
+    }
+
+    private Map<String, MetricsPointDto> summaries(List<String> serviceIds, List<Segment> segments) {
+        if (segments.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return clickhouseJdbcTemplate.query(mergeSql(segments, "serviceId", serviceIds.size()), rs -> {
+            Map<String, MetricsPointDto> metrics = new HashMap<>();
+            while (rs.next()) {
+                metrics.put(rs.getString("groupKey"), point(rs, Instant.ofEpochSecond(segments.get(0).from())));
+            }
+            return metrics;
+        }, parameters(segments, serviceIds));
+    }
+
+    // Reads each segment as aggregate states grouped by key and merges them across segments
+    private static String mergeSql(List<Segment> segments, String key, int serviceCount) {
+        String services = String.join(", ", Collections.nCopies(serviceCount, "?"));
+        String union = segments.stream()
+                .map(segment -> {
+                    Source source = segment.source();
+                    return "SELECT " + key + " AS groupKey, "
+                            + source.total + " AS total, "
+                            + source.ok + " AS ok, "
+                            + source.avgState + " AS latencyAvgState, "
+                            + source.quantilesState + " AS latencyQuantilesState "
+                            + "FROM " + source.table + " "
+                            + "WHERE serviceId IN (" + services + ") "
+                            + "AND " + source.timeColumn + " >= toDateTime(?) AND " + source.timeColumn + " < toDateTime(?) "
+                            + "GROUP BY groupKey";
+                })
+                .collect(Collectors.joining(" UNION ALL "));
+        return "SELECT groupKey, sum(total) AS totalCount, sum(ok) AS okCount, "
+                + "avgMerge(latencyAvgState) AS avgLatency, "
+                + "quantilesMerge(0.5, 0.95, 0.99)(latencyQuantilesState) AS latencyQuantiles, "
+                + "latencyQuantiles[1] AS p50, latencyQuantiles[2] AS p95, latencyQuantiles[3] AS p99 "
+                + "FROM (" + union + ") "
+                + "GROUP BY groupKey ORDER BY groupKey";
+    }
+
+    private static Object[] parameters(List<Segment> segments, List<String> serviceIds) {
+        List<Object> parameters = new ArrayList<>();
+        for (Segment segment : segments) {
+            parameters.addAll(serviceIds);
+            parameters.add(segment.from());
+            parameters.add(segment.to());
+        }
+        return parameters.toArray();
+    }
+
+    private static List<String> tables(List<Segment> segments) {
+        return segments.stream().map(segment -> segment.source().table).distinct().toList();
+    }
+
+    private static MetricsPointDto point(ResultSet rs, Instant timestamp) throws SQLException {
+        long total = rs.getLong("totalCount");
+        long ok = rs.getLong("okCount");
+        return MetricsPointDto.builder()
+                .timestamp(timestamp)
+                .totalCount(total)
+                .okCount(ok)
+                .uptime(total > 0 ? (double) ok / total * 100 : 0)
+                .avgLatencyMs(rs.getDouble("avgLatency"))
+                .p50(rs.getDouble("p50"))
+                .p95(rs.getDouble("p95"))
+                .p99(rs.getDouble("p99"))
+                .build();
+    }
+}
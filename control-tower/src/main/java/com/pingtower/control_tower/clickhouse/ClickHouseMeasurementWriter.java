@@ -0,0 +1,254 @@
+package com.pingtower.control_tower.clickhouse;
+
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes raw measurements to the ClickHouse {@code measurements} table in large batches.
+ * <p>
+ * Measurements are buffered column by column and flushed with one batched prepared insert once
+ * {@code control-tower.clickhouse.batch.max-rows} rows are waiting or the oldest of them is
+ * {@code control-tower.clickhouse.batch.max-age-ms} old. The Kafka batches the rows came from are
+ * acknowledged only after the insert succeeds, so their offsets are committed once the rows are in
+ * ClickHouse. A failed insert keeps the rows and is retried by the flush thread. Once the buffer
+ * holds {@code max-buffered-rows} the listener container {@link #LISTENER_ID} is paused and resumed
+ * after the next successful insert; the listener itself never waits for ClickHouse, and a paused
+ * container keeps polling, so the consumer stays in its group however long ClickHouse is down.
+ * Delivery is at least once: rows still buffered when the partitions move to another consumer are
+ * redelivered to it.
+ */
+@Slf4j
+@Component
+public class ClickHouseMeasurementWriter implements ConsumerAwareRebalanceListener {
+
+    /** Id of the Kafka listener whose measurements this writer buffers. */
+    public static final String LISTENER_ID = "rawMeasurementListener";
+
+    private final JdbcTemplate clickhouseJdbcTemplate;
+    private final ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry;
+    private final int maxRows;
+    private final long maxAgeMs;
+    private final int maxBufferedRows;
+    private final long retryBackoffMs;
+
+    // Serializes inserts so batches reach ClickHouse, and their acks Kafka, in order
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Object bufferLock = new Object();
+
+    private MeasurementColumns buffer;
+    private List<Acknowledgment> pendingAcks = new ArrayList<>();
+    private volatile long retryAt;
+    private volatile boolean paused;
+    private volatile boolean running;
+    private Thread flushThread;
+
+    public ClickHouseMeasurementWriter(@Qualifier("clickhouseJdbcTemplate") JdbcTemplate clickhouseJdbcTemplate,
+                                       ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry,
+                                       @Value("${control-tower.clickhouse.batch.max-rows:50000}") int maxRows,
+                                       @Value("${control-tower.clickhouse.batch.max-age-ms:1000}") long maxAgeMs,
+                                       @Value("${control-tower.clickhouse.batch.max-buffered-rows:500000}") int maxBufferedRows,
+                                       @Value("${control-tower.clickhouse.batch.retry-backoff-ms:5000}") long retryBackoffMs) {
+        this.clickhouseJdbcTemplate = clickhouseJdbcTemplate;
+        this.listenerRegistry = listenerRegistry;
+        this.maxRows = Math.max(maxRows, 1);
+        this.maxAgeMs = Math.max(maxAgeMs, 1);
+        this.maxBufferedRows = Math.max(maxBufferedRows, this.maxRows);
+        this.retryBackoffMs = retryBackoffMs;
+        this.buffer = new MeasurementColumns(this.maxRows);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flushThread = new Thread(this::flushLoop, "ClickHouseMeasurementFlush");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flushThread != null) {
+            flushThread.interrupt();
+        }
+        if (!flush()) {
+            log.warn("Could not write buffered measurements to ClickHouse on shutdown, Kafka will redeliver them");
+        }
+    }
+
+    /**
+     * Buffers one Kafka batch and takes over its acknowledgment. Called on the consumer thread; flushes
+     * inline when the buffer reaches {@code max-rows} and pauses the listener container when it is
+     * full. Never waits for a failing ClickHouse.
+     */
+    public void write(List<RawMeasurementMessage> messages, Acknowledgment acknowledgment) {
+        long now = System.currentTimeMillis();
+        int size;
+        synchronized (bufferLock) {
+            for (RawMeasurementMessage message : messages) {
+                // One row ClickHouse rejects would fail every retry of the batch it is in
+                if (message == null || message.getCheckId() == null || message.getServiceId() == null) {
+                    log.warn("Skipping measurement without checkId or serviceId: {}", message);
+                    continue;
+                }
+                buffer.add(message, now);
+            }
+            pendingAcks.add(acknowledgment);
+            size = buffer.size();
+        }
+
+        if (size >= maxRows && System.currentTimeMillis() >= retryAt) {
+            flush();
+        }
+        pauseConsumption();
+    }
+
+    /**
+     * Writes everything buffered to ClickHouse and acknowledges the Kafka batches it came from.
+     * Returns false, keeping the rows for the next attempt, if the insert fails.
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            MeasurementColumns batch;
+            List<Acknowledgment> acks;
+            synchronized (bufferLock) {
+                if (buffer.size() == 0 && pendingAcks.isEmpty()) {
+                    return true;
+                }
+                batch = buffer;
+                acks = pendingAcks;
+                buffer = new MeasurementColumns(maxRows);
+                pendingAcks = new ArrayList<>();
+            }
+
+            try {
+                insert(batch);
+            } catch (DataAccessException e) {
+                synchronized (bufferLock) {
+                    // Rows added during the insert go behind the failed batch
+                    batch.addAll(buffer);
+                    acks.addAll(pendingAcks);
+                    buffer = batch;
+                    pendingAcks = acks;
+                }
+                retryAt = System.currentTimeMillis() + retryBackoffMs;
+                log.error("Failed to write {} measurements to ClickHouse, retrying in {} ms", batch.size(), retryBackoffMs, e);
+                return false;
+            }
+
+            retryAt = 0;
+            acks.forEach(Acknowledgment::acknowledge);
+            log.debug("Wrote {} measurements to ClickHouse", batch.size());
+            resumeConsumption();
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes the buffered rows before the container commits offsets for partitions it is giving up
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (!partitions.isEmpty() && !flush()) {
+            log.warn("Could not write buffered measurements to ClickHouse before partitions {} were revoked, "
+                    + "their new owner will write them again", partitions);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // The container pauses before its next poll and keeps polling, without records, until resumed.
+    // Both checks run under bufferLock so a flush finishing meanwhile cannot leave it paused.
+    private void pauseConsumption() {
+        MessageListenerContainer container = listenerContainer();
+        synchronized (bufferLock) {
+            if (container != null && !paused && buffer.size() >= maxBufferedRows) {
+                paused = true;
+                container.pause();
+                log.warn("{} measurements are waiting for ClickHouse, pausing Kafka consumption", buffer.size());
+            }
+        }
+    }
+
+    private void resumeConsumption() {
+        MessageListenerContainer container = listenerContainer();
+        synchronized (bufferLock) {
+            if (container != null && paused && buffer.size() < maxBufferedRows) {
+                paused = false;
+                container.resume();
+                log.info("ClickHouse accepts measurements again, resuming Kafka consumption");
+            }
+        }
+    }
+
+    private MessageListenerContainer listenerContainer() {
+        KafkaListenerEndpointRegistry registry = listenerRegistry.getIfAvailable();
+        return registry != null ? registry.getListenerContainer(LISTENER_ID) : null;
+    }
+
+    private void insert(MeasurementColumns batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        clickhouseJdbcTemplate.batchUpdate(MeasurementColumns.INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                batch.bind(ps, i);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    // Flushes by age; size-triggered flushes happen on the consumer thread in write()
+    private void flushLoop() {
+        long tick = Math.max(maxAgeMs / 4, 10);
+        while (running) {
+            try {
+                Thread.sleep(tick);
+                long now = System.currentTimeMillis();
+                long oldest;
+                synchronized (bufferLock) {
+                    // Acks of batches that had no valid rows are released on the next tick
+                    oldest = buffer.size() > 0 || !pendingAcks.isEmpty() ? buffer.firstAddedAt() : now;
+                }
+                if (now - oldest >= maxAgeMs && now >= retryAt) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Measurement flush failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.pingtower.control_tower.clickhouse;
+
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Rows of the ClickHouse {@code measurements} table held column by column, in the order of
+ * {@link #INSERT_SQL}. Not thread safe.
+ */
+final class MeasurementColumns {
+
+    static final String INSERT_SQL = "INSERT INTO measurements (checkId, serviceId, timestamp, success, latencyMs, responseCode, errorMessage) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private String[] checkIds;
+    private String[] serviceIds;
+    private long[] timestamps;
+    private boolean[] successes;
+    private long[] latencies;
+    private int[] responseCodes;
+    private String[] errorMessages;
+    private int size;
+    private long firstAddedAt;
+
+    MeasurementColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        checkIds = new String[capacity];
+        serviceIds = new String[capacity];
+        timestamps = new long[capacity];
+        successes = new boolean[capacity];
+        latencies = new long[capacity];
+        responseCodes = new int[capacity];
+        errorMessages = new String[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** When the oldest row was added, or 0 if there are none. */
+    long firstAddedAt() {
+        return firstAddedAt;
+    }
+
+    // Measurements without a timestamp are stamped with the time they arrived
+    void add(RawMeasurementMessage message, long receivedAt) {
+        ensureCapacity(size + 1);
+        if (size == 0) {
+            firstAddedAt = receivedAt;
+        }
+        checkIds[size] = message.getCheckId().toString();
+        serviceIds[size] = message.getServiceId();
+        timestamps[size] = message.getTimestamp() != null ? message.getTimestamp().toEpochMilli() : receivedAt;
+        successes[size] = message.isSuccess();
+        latencies[size] = message.getLatencyMs();
+        responseCodes[size] = message.getResponseCode();
+        errorMessages[size] = message.getErrorMessage();
+        size++;
+    }
+
+    void addAll(MeasurementColumns other) {
+        ensureCapacity(size + other.size);
+        if (size == 0) {
+            firstAddedAt = other.firstAddedAt;
+        }
+        System.arraycopy(other.checkIds, 0, checkIds, size, other.size);
+        System.arraycopy(other.serviceIds, 0, serviceIds, size, other.size);
+        System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+        System.arraycopy(other.successes, 0, successes, size, other.size);
+        System.arraycopy(other.latencies, 0, latencies, size, other.size);
+        System.arraycopy(other.responseCodes, 0, responseCodes, size, other.size);
+        System.arraycopy(other.errorMessages, 0, errorMessages, size, other.size);
+        size += other.size;
+    }
+
+    void bind(PreparedStatement ps, int row) throws SQLException {
+        ps.setString(1, checkIds[row]);
+        ps.setString(2, serviceIds[row]);
+        ps.setObject(3, Instant.ofEpochMilli(timestamps[row]));
+        ps.setBoolean(4, successes[row]);
+        ps.setLong(5, latencies[row]);
+        ps.setInt(6, responseCodes[row]);
+        if (errorMessages[row] != null) {
+            ps.setString(7, errorMessages[row]);
+        } else {
+            ps.setNull(7, Types.VARCHAR);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= checkIds.length) {
+            return;
+        }
+        int grown = Math.max(capacity, checkIds.length * 2);
+        checkIds = Arrays.copyOf(checkIds, grown);
+        serviceIds = Arrays.copyOf(serviceIds, grown);
+        timestamps = Arrays.copyOf(timestamps, grown);
+        successes = Arrays.copyOf(successes, grown);
+        latencies = Arrays.copyOf(latencies, grown);
+        responseCodes = Arrays.copyOf(responseCodes, grown);
+        errorMessages = Arrays.copyOf(errorMessages, grown);
+    }
+}
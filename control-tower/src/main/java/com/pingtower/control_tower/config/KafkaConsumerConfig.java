@@ -0,0 +1,30 @@
+package com.pingtower.control_tower.config;
+
+import com.pingtower.control_tower.clickhouse.ClickHouseMeasurementWriter;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Batch listener factory for raw measurements. Offsets are committed only for batches the
+     * {@link ClickHouseMeasurementWriter} has acknowledged, i.e. written to ClickHouse.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> measurementBatchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ClickHouseMeasurementWriter measurementWriter) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(measurementWriter);
+        return factory;
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @Configuration
 public class PrimaryDataSourceConfig {
@@ -23,4 +24,10 @@ public class PrimaryDataSourceConfig {
     public HikariDataSource primaryDataSource(DataSourceProperties properties) {
         return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
     }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(HikariDataSource primaryDataSource) {
+        return new JdbcTemplate(primaryDataSource);
+    }
 }
@@ -0,0 +1,98 @@
+package com.pingtower.control_tower.controller;
+
+import com.pingtower.control_tower.analytics.MetricsQueryRouter;
+import com.pingtower.control_tower.model.dto.MetricsSeriesDto;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Analytics", description = "Задержки и доступность сервисов за произвольный период")
+public class AnalyticsController {
+
+    private static final int MAX_POINTS = 10_000;
+
+    @Autowired
+    private MetricsQueryRouter metricsQueryRouter;
+
+    @GetMapping("/services/{id}/summary")
+    @Operation(
+            summary = "📊 Метрики сервиса за период",
+            description = """
+                    Возвращает доступность, среднюю задержку и p50/p95/p99 сервиса за период [from, to).
+                    
+                    **Откуда читаются данные:**
+                    Целые часы периода берутся из часовых агрегатов ClickHouse, целые минуты по краям —
+                    из минутных, остаток — из сырых измерений. Использованные таблицы перечислены в поле `tables`.
+                    
+                    По умолчанию — последние 24 часа.
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "✅ Метрики успешно получены"),
+            @ApiResponse(responseCode = "400", description = "❌ Начало периода не раньше его конца")
+    })
+    public ResponseEntity<MetricsSeriesDto> getSummary(
+            @Parameter(description = "ID сервиса", required = true)
+            @PathVariable String id,
+            @Parameter(description = "Начало периода (ISO-8601), включительно")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Конец периода (ISO-8601), не включительно")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        if (!start.isBefore(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(metricsQueryRouter.summary(id, start, end));
+    }
+
+    @GetMapping("/services/{id}/series")
+    @Operation(
+            summary = "📈 Метрики сервиса по интервалам",
+            description = """
+                    Возвращает те же метрики для каждых `step` секунд периода [from, to).
+                    Период расширяется до целого числа шагов, отсчитанных от начала эпохи.
+                    
+                    Данные читаются из самой крупной таблицы, чей интервал делит шаг без остатка:
+                    часовой для шагов, кратных 3600, минутной для шагов, кратных 60, иначе — из сырых измерений.
+                    
+                    По умолчанию — последние 24 часа с шагом в час.
+                    """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "✅ Метрики успешно получены"),
+            @ApiResponse(responseCode = "400", description = "❌ Неверный период, шаг не положителен или точек больше 10 000")
+    })
+    public ResponseEntity<MetricsSeriesDto> getSeries(
+            @Parameter(description = "ID сервиса", required = true)
+            @PathVariable String id,
+            @Parameter(description = "Начало периода (ISO-8601), включительно")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @Parameter(description = "Конец периода (ISO-8601), не включительно")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @Parameter(description = "Шаг в секундах")
+            @RequestParam(defaultValue = "3600") long step) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        if (step <= 0 || !start.isBefore(end)
+                || (end.getEpochSecond() - start.getEpochSecond()) / step >= MAX_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(metricsQueryRouter.series(id, start, end, step));
+    }
+}
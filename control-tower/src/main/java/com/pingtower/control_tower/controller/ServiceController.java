@@ -1,8 +1,10 @@
 package com.pingtower.control_tower.controller;
 
+import com.pingtower.control_tower.aggregate.ServiceMetricsAggregator;
 import com.pingtower.control_tower.domain.Service;
 import com.pingtower.control_tower.model.dto.ServiceCreateRequest;
 import com.pingtower.control_tower.repository.ServiceRepository;
+import com.pingtower.control_tower.state.ServiceStateStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -25,6 +27,12 @@ public class ServiceController {
     @Autowired
     private ServiceRepository serviceRepository;
 
+    @Autowired
+    private ServiceStateStore serviceStateStore;
+
+    @Autowired
+    private ServiceMetricsAggregator serviceMetricsAggregator;
+
     @GetMapping
     @Operation(
             summary = "🏢 Получить все сервисы",
@@ -60,7 +68,9 @@ public class ServiceController {
             )
     })
     public List<Service> getAllServices() {
-        return serviceRepository.findAll();
+        List<Service> services = serviceRepository.findAll();
+        services.forEach(serviceStateStore::applyTo);
+        return services;
     }
 
     @GetMapping("/{id}")
@@ -74,7 +84,7 @@ public class ServiceController {
     public ResponseEntity<Service> getServiceById(
             @Parameter(description = "Service ID", required = true)
             @PathVariable String id) {
-        Optional<Service> service = serviceRepository.findById(id);
+        Optional<Service> service = serviceRepository.findById(id).map(serviceStateStore::applyTo);
         return service.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -183,6 +193,7 @@ public class ServiceController {
             @Parameter(description = "Обновленные данные сервиса", required = true)
             @RequestBody ServiceCreateRequest request) {
         return serviceRepository.findById(id)
+                .map(serviceStateStore::applyTo)
                 .map(service -> {
                     // Обновляем только разрешенные поля
                     service.setName(request.getName());
@@ -220,6 +231,8 @@ public class ServiceController {
         return serviceRepository.findById(id)
                 .map(service -> {
                     serviceRepository.delete(service);
+                    serviceStateStore.evict(id);
+                    serviceMetricsAggregator.evict(id);
                     return ResponseEntity.ok().<Void>build();
                 }).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -1,20 +1,21 @@
 package com.pingtower.control_tower.kafka;
 
+import com.pingtower.control_tower.aggregate.ServiceMetricsAggregator;
+import com.pingtower.control_tower.clickhouse.ClickHouseMeasurementWriter;
 import com.pingtower.control_tower.model.dto.DashboardServiceDto;
-import com.pingtower.control_tower.repository.ServiceRepository;
-import com.pingtower.control_tower.repository.CheckRepository;
 import com.pingtower.control_tower.service.DashboardDataService;
+import com.pingtower.control_tower.state.ServiceStateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.sql.Timestamp;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -22,67 +23,44 @@ import java.sql.Timestamp;
 public class KafkaRawMeasurementConsumer {
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final ServiceRepository serviceRepository;
     private final DashboardDataService dashboardDataService;
-    private final CheckRepository checkRepository;
-    
-    @Qualifier("clickhouseJdbcTemplate")
-    private final JdbcTemplate clickhouseJdbcTemplate;
+    private final ServiceStateStore serviceStateStore;
+    private final ServiceMetricsAggregator serviceMetricsAggregator;
+    private final ClickHouseMeasurementWriter clickHouseMeasurementWriter;
 
-    @KafkaListener(topics = "raw-measurements", groupId = "control-tower-group-raw")
-    public void consumeRawMeasurement(RawMeasurementMessage message) {
-        log.info("Received raw measurement for serviceId: {}", message.getServiceId());
-        
-        // Step 1: Write to ClickHouse for analytics
-        writeToClickHouse(message);
+    // Started by ServiceMetricsAggregator once it has loaded what ClickHouse already holds
+    @KafkaListener(id = ClickHouseMeasurementWriter.LISTENER_ID, topics = "raw-measurements", groupId = "control-tower-group-raw",
+            autoStartup = "false",
+            containerFactory = "measurementBatchListenerContainerFactory",
+            properties = "max.poll.records=${control-tower.clickhouse.batch.max-poll-records:5000}")
+    public void consumeRawMeasurements(List<RawMeasurementMessage> messages, Acknowledgment acknowledgment) {
+        log.debug("Received {} raw measurements", messages.size());
 
-        // Step 2: Update PostgreSQL with the latest status
-        serviceRepository.findById(message.getServiceId()).ifPresent(service -> {
-            service.setLastCheck(new Timestamp(System.currentTimeMillis()));
+        // Step 1: Buffer for ClickHouse; the batch is acknowledged once it has been written
+        clickHouseMeasurementWriter.write(messages, acknowledgment);
 
-            // Update the service's main status based on the success of the check
-            service.setStatus(message.isSuccess() ? 1 : 0); // 1 = OK, 0 = CRIT
-            
-            // Only update the main status text if it's NOT an SSL check result.
-            // SSL check results only update the sslExpiresInDays field.
-            if (message.getSslExpiresInDays() == null) {
-                service.setLastStatusText(message.getStatusText());
+        // Step 2: Record the latest status, which ServiceStateStore writes to PostgreSQL in batches,
+        // and add the measurement to the in-memory dashboard metrics
+        long receivedAt = System.currentTimeMillis();
+        Timestamp now = new Timestamp(receivedAt);
+        Set<String> serviceIds = new LinkedHashSet<>();
+        for (RawMeasurementMessage message : messages) {
+            if (message.getServiceId() != null) {
+                serviceStateStore.recordMeasurement(message, now);
+                serviceMetricsAggregator.record(message, receivedAt);
+                serviceIds.add(message.getServiceId());
             }
-            
-            if (message.getDomLoadTimeMs() != null) {
-                service.setLastDomLoadTimeMs(message.getDomLoadTimeMs().intValue());
-            }
-            if (message.getTtfbMs() != null) {
-                service.setLastTtfbMs(message.getTtfbMs().intValue());
-            }
-            if (message.getSslExpiresInDays() != null) {
-                service.setSslExpiresInDays(message.getSslExpiresInDays().intValue());
-            }
-            serviceRepository.save(service);
-            log.info("Updated service {} with latest check data.", message.getServiceId());
+        }
 
-            // Step 3: After updating, fetch the complete aggregated data and send to WebSocket
-            DashboardServiceDto updatedServiceDto = dashboardDataService.getUpdatedService(message.getServiceId());
-            messagingTemplate.convertAndSend("/topic/dashboard.update", updatedServiceDto);
-            log.info("Sent dashboard update for service: {}", message.getServiceId());
-        });
+        // Step 3: Send one dashboard update per service in the batch
+        serviceIds.forEach(this::sendDashboardUpdate);
     }
 
-    private void writeToClickHouse(RawMeasurementMessage message) {
-        try {
-            String sql = "INSERT INTO measurements (checkId, serviceId, timestamp, success, latencyMs, responseCode, errorMessage) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            clickhouseJdbcTemplate.update(sql,
-                    message.getCheckId(),
-                    message.getServiceId(),
-                    java.time.Instant.parse(message.getTimestamp()),
-                    message.isSuccess(),
-                    message.getLatencyMs(),
-                    message.getResponseCode(),
-                    message.getErrorMessage()
-            );
-            log.info("Saved measurement to ClickHouse for serviceId: {}", message.getServiceId());
-        } catch (Exception e) {
-            log.error("Failed to write measurement to ClickHouse for serviceId: {}", message.getServiceId(), e);
+    private void sendDashboardUpdate(String serviceId) {
+        DashboardServiceDto updatedServiceDto = dashboardDataService.getUpdatedService(serviceId);
+        if (updatedServiceDto != null) {
+            messagingTemplate.convertAndSend("/topic/dashboard.update", updatedServiceDto);
+            log.debug("Sent dashboard update for service: {}", serviceId);
         }
     }
 }
@@ -2,13 +2,12 @@ package com.pingtower.control_tower.kafka;
 
 import com.pingtower.control_tower.kafka.ServiceStatusUpdateMessage;
 import com.pingtower.control_tower.model.dto.DashboardServiceDto;
-import com.pingtower.control_tower.repository.ServiceRepository;
 import com.pingtower.control_tower.service.DashboardDataService;
+import com.pingtower.control_tower.state.ServiceStateStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
@@ -19,18 +18,17 @@ import java.util.Objects;
 @Slf4j
 public class KafkaServiceStatusConsumer {
 
-    private final ServiceRepository serviceRepository;
+    private final ServiceStateStore serviceStateStore;
     private final SimpMessagingTemplate messagingTemplate;
     private final DashboardDataService dashboardDataService;
 
-    public KafkaServiceStatusConsumer(ServiceRepository serviceRepository, SimpMessagingTemplate messagingTemplate, DashboardDataService dashboardDataService) {
-        this.serviceRepository = serviceRepository;
+    public KafkaServiceStatusConsumer(ServiceStateStore serviceStateStore, SimpMessagingTemplate messagingTemplate, DashboardDataService dashboardDataService) {
+        this.serviceStateStore = serviceStateStore;
         this.messagingTemplate = messagingTemplate;
         this.dashboardDataService = dashboardDataService;
     }
 
     @KafkaListener(topics = "service-status-updates", groupId = "control-tower-group")
-    @Transactional
     public void consumeServiceStatusUpdate(ServiceStatusUpdateMessage message) {
         log.info("Received status update for serviceId: {}", message.getServiceId());
 
@@ -42,29 +40,17 @@ public class KafkaServiceStatusConsumer {
             // This could be more sophisticated (e.g., an Enum).
             int newStatus = "OK".equalsIgnoreCase(newStatusStr) ? 1 : 0;
 
-            serviceRepository.findById(serviceId).ifPresentOrElse(
-                service -> {
-                    log.info("Updating service {} to status {}", serviceId, newStatusStr);
-                    service.setStatus(newStatus);
-                    service.setLastCheck(Timestamp.valueOf(LocalDateTime.now()));
-                    serviceRepository.save(service);
-                    log.info("Service {} updated in PostgreSQL.", serviceId);
-
-                    // After saving, get the updated aggregated data and send to WebSocket
-                    log.info("Fetching updated aggregated data for serviceId: {}", serviceId);
-                    DashboardServiceDto updatedServiceDto = dashboardDataService.getUpdatedService(serviceId);
-                    
-                    if (updatedServiceDto != null) {
-                        log.info("Sending dashboard update for serviceId: {}", serviceId);
-                        messagingTemplate.convertAndSend("/topic/dashboard.update", updatedServiceDto);
-                        log.info("Dashboard update sent for serviceId: {}", serviceId);
-                    } else {
-                        log.warn("Could not generate dashboard DTO for serviceId: {}. Update will not be sent.", serviceId);
-                    }
-                },
-                () -> log.warn("Service with ID {} not found, cannot update status.", serviceId)
-            );
-
+            log.info("Updating service {} to status {}", serviceId, newStatusStr);
+            serviceStateStore.recordStatus(serviceId, newStatus, Timestamp.valueOf(LocalDateTime.now()));
+
+            // Get the updated aggregated data and send to WebSocket
+            DashboardServiceDto updatedServiceDto = dashboardDataService.getUpdatedService(serviceId);
+            if (updatedServiceDto != null) {
+                messagingTemplate.convertAndSend("/topic/dashboard.update", updatedServiceDto);
+                log.info("Dashboard update sent for serviceId: {}", serviceId);
+            } else {
+                log.warn("Service with ID {} not found, cannot update status.", serviceId);
+            }
         } catch (NullPointerException e) {
             log.error("Received message with null fields: {}", message, e);
         } catch (Exception e) {
@@ -5,17 +5,27 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+import java.util.UUID;
+
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class RawMeasurementMessage {
-    private String checkId;
+    private UUID checkId;
     private String serviceId;
-    private String timestamp;
+    private Instant timestamp;
     private long latencyMs;
     private Long domLoadTimeMs;
     private Long ttfbMs;
+    private Long dnsMs;
+    private Long connectMs;
+    private Long tlsMs;
+    private Long bodyMs;
+    private Long bodyBytes;
+    private Long throughputBytesPerSec;
+    private Boolean connectionReused;
     private Long sslExpiresInDays;
     private int responseCode;
     private String statusText;
@@ -1,11 +1,23 @@
 package com.pingtower.control_tower.kafka;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
 
 @Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class ServiceStatusUpdateMessage {
+    private UUID checkId;
     private String serviceId;
     private String newStatus;
+    private Instant timestamp;
+    private String details;
 }
@@ -0,0 +1,349 @@
+package com.pingtower.control_tower.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the messages exchanged between ping-worker and control-tower.
+ * <p>
+ * Every payload starts with a three byte header: {@link #MAGIC}, the format version and the message
+ * type. The magic byte can never start a JSON document, so consumers can tell binary payloads from
+ * JSON ones sent by older producers. The body is a fixed sequence of fields: a flags byte for
+ * booleans and optional values, UUIDs as two big-endian longs, timestamps as epoch millis, other
+ * integers as zig-zag varints and strings as a varint of (UTF-8 length + 1), with 0 meaning null.
+ * <p>
+ * Only UUIDs and timestamps have a fixed width. Latencies, codes and sizes are varints rather than
+ * fixed-width fields because they are almost always small: most take one or two bytes instead of
+ * eight, which keeps a typical raw measurement at about half of its fixed-layout size. The field
+ * order is still fixed, so decoding needs no field tags or lookups.
+ * <p>
+ * New fields are only ever appended and announced by a version bump. A reader decodes the fields
+ * of the versions it knows and ignores anything after them, so producers can be upgraded before or
+ * after consumers.
+ * <p>
+ * Version 2 appends the HTTP phase timings to raw measurements: a second flags byte followed by the
+ * present DNS, connect, TLS and body durations.
+ * <p>
+ * Version 3 appends the response body size and download throughput: a third flags byte followed by
+ * the present values.
+ * <p>
+ * ping-worker has a copy of this class that must stay byte-for-byte compatible; WireFormatTest checks both.
+ */
+public final class WireFormat {
+
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final byte VERSION = 3;
+
+    static final byte TYPE_RAW_MEASUREMENT = 1;
+    static final byte TYPE_SERVICE_STATUS_UPDATE = 2;
+
+    private static final int HAS_CHECK_ID = 1;
+    private static final int HAS_TIMESTAMP = 1 << 1;
+    private static final int SUCCESS = 1 << 2;
+    private static final int HAS_DOM_LOAD_TIME = 1 << 3;
+    private static final int HAS_TTFB = 1 << 4;
+    private static final int HAS_SSL_EXPIRES_IN_DAYS = 1 << 5;
+
+    // Second flags byte of raw measurements, since version 2
+    private static final int HAS_DNS = 1;
+    private static final int HAS_CONNECT = 1 << 1;
+    private static final int HAS_TLS = 1 << 2;
+    private static final int HAS_BODY = 1 << 3;
+    private static final int HAS_CONNECTION_REUSED = 1 << 4;
+    private static final int CONNECTION_REUSED = 1 << 5;
+
+    // Third flags byte of raw measurements, since version 3
+    private static final int HAS_BODY_BYTES = 1;
+    private static final int HAS_THROUGHPUT = 1 << 1;
+
+    private WireFormat() {
+    }
+
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == MAGIC;
+    }
+
+    public static boolean supports(Object message) {
+        return message instanceof RawMeasurementMessage || message instanceof ServiceStatusUpdateMessage;
+    }
+
+    public static byte[] encode(Object message) {
+        if (message instanceof RawMeasurementMessage raw) {
+            return encodeRawMeasurement(raw);
+        }
+        if (message instanceof ServiceStatusUpdateMessage status) {
+            return encodeServiceStatusUpdate(status);
+        }
+        throw new SerializationException("Unsupported message type " + message.getClass().getName());
+    }
+
+    public static Object decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new SerializationException("Not a PingTower binary message");
+        }
+        Reader in = new Reader(data, 3);
+        int version = data[1];
+        return switch (data[2]) {
+            case TYPE_RAW_MEASUREMENT -> decodeRawMeasurement(in, version);
+            case TYPE_SERVICE_STATUS_UPDATE -> decodeServiceStatusUpdate(in, version);
+            default -> throw new SerializationException("Unknown message type " + data[2]);
+        };
+    }
+
+    private static byte[] encodeRawMeasurement(RawMeasurementMessage m) {
+        int flags = (m.getCheckId() != null ? HAS_CHECK_ID : 0)
+                | (m.getTimestamp() != null ? HAS_TIMESTAMP : 0)
+                | (m.isSuccess() ? SUCCESS : 0)
+                | (m.getDomLoadTimeMs() != null ? HAS_DOM_LOAD_TIME : 0)
+                | (m.getTtfbMs() != null ? HAS_TTFB : 0)
+                | (m.getSslExpiresInDays() != null ? HAS_SSL_EXPIRES_IN_DAYS : 0);
+
+        Writer out = new Writer(64, TYPE_RAW_MEASUREMENT);
+        out.writeByte(flags);
+        out.writeUuid(m.getCheckId());
+        out.writeInstant(m.getTimestamp());
+        out.writeVarLong(m.getLatencyMs());
+        out.writeVarLong(m.getResponseCode());
+        if (m.getDomLoadTimeMs() != null) {
+            out.writeVarLong(m.getDomLoadTimeMs());
+        }
+        if (m.getTtfbMs() != null) {
+            out.writeVarLong(m.getTtfbMs());
+        }
+        if (m.getSslExpiresInDays() != null) {
+            out.writeVarLong(m.getSslExpiresInDays());
+        }
+        out.writeString(m.getServiceId());
+        out.writeString(m.getStatusText());
+        out.writeString(m.getErrorMessage());
+
+        int phaseFlags = (m.getDnsMs() != null ? HAS_DNS : 0)
+                | (m.getConnectMs() != null ? HAS_CONNECT : 0)
+                | (m.getTlsMs() != null ? HAS_TLS : 0)
+                | (m.getBodyMs() != null ? HAS_BODY : 0)
+                | (m.getConnectionReused() != null ? HAS_CONNECTION_REUSED : 0)
+                | (Boolean.TRUE.equals(m.getConnectionReused()) ? CONNECTION_REUSED : 0);
+        out.writeByte(phaseFlags);
+        if (m.getDnsMs() != null) {
+            out.writeVarLong(m.getDnsMs());
+        }
+        if (m.getConnectMs() != null) {
+            out.writeVarLong(m.getConnectMs());
+        }
+        if (m.getTlsMs() != null) {
+            out.writeVarLong(m.getTlsMs());
+        }
+        if (m.getBodyMs() != null) {
+            out.writeVarLong(m.getBodyMs());
+        }
+
+        int bodyFlags = (m.getBodyBytes() != null ? HAS_BODY_BYTES : 0)
+                | (m.getThroughputBytesPerSec() != null ? HAS_THROUGHPUT : 0);
+        out.writeByte(bodyFlags);
+        if (m.getBodyBytes() != null) {
+            out.writeVarLong(m.getBodyBytes());
+        }
+        if (m.getThroughputBytesPerSec() != null) {
+            out.writeVarLong(m.getThroughputBytesPerSec());
+        }
+        return out.toByteArray();
+    }
+
+    private static RawMeasurementMessage decodeRawMeasurement(Reader in, int version) {
+        int flags = in.readByte();
+        RawMeasurementMessage m = new RawMeasurementMessage();
+        m.setCheckId((flags & HAS_CHECK_ID) != 0 ? in.readUuid() : null);
+        m.setTimestamp((flags & HAS_TIMESTAMP) != 0 ? in.readInstant() : null);
+        m.setSuccess((flags & SUCCESS) != 0);
+        m.setLatencyMs(in.readVarLong());
+        m.setResponseCode((int) in.readVarLong());
+        m.setDomLoadTimeMs((flags & HAS_DOM_LOAD_TIME) != 0 ? in.readVarLong() : null);
+        m.setTtfbMs((flags & HAS_TTFB) != 0 ? in.readVarLong() : null);
+        m.setSslExpiresInDays((flags & HAS_SSL_EXPIRES_IN_DAYS) != 0 ? in.readVarLong() : null);
+        m.setServiceId(in.readString());
+        m.setStatusText(in.readString());
+        m.setErrorMessage(in.readString());
+        if (version < 2) {
+            return m;
+        }
+
+        int phaseFlags = in.readByte();
+        m.setDnsMs((phaseFlags & HAS_DNS) != 0 ? in.readVarLong() : null);
+        m.setConnectMs((phaseFlags & HAS_CONNECT) != 0 ? in.readVarLong() : null);
+        m.setTlsMs((phaseFlags & HAS_TLS) != 0 ? in.readVarLong() : null);
+        m.setBodyMs((phaseFlags & HAS_BODY) != 0 ? in.readVarLong() : null);
+        m.setConnectionReused((phaseFlags & HAS_CONNECTION_REUSED) != 0 ? (phaseFlags & CONNECTION_REUSED) != 0 : null);
+        if (version < 3) {
+            return m;
+        }
+
+        int bodyFlags = in.readByte();
+        m.setBodyBytes((bodyFlags & HAS_BODY_BYTES) != 0 ? in.readVarLong() : null);
+        m.setThroughputBytesPerSec((bodyFlags & HAS_THROUGHPUT) != 0 ? in.readVarLong() : null);
+        return m;
+    }
+
+    private static byte[] encodeServiceStatusUpdate(ServiceStatusUpdateMessage m) {
+        int flags = (m.getCheckId() != null ? HAS_CHECK_ID : 0)
+                | (m.getTimestamp() != null ? HAS_TIMESTAMP : 0);
+
+        Writer out = new Writer(48, TYPE_SERVICE_STATUS_UPDATE);
+        out.writeByte(flags);
+        out.writeUuid(m.getCheckId());
+        out.writeInstant(m.getTimestamp());
+        out.writeString(m.getServiceId());
+        out.writeString(m.getNewStatus());
+        out.writeString(m.getDetails());
+        return out.toByteArray();
+    }
+
+    private static ServiceStatusUpdateMessage decodeServiceStatusUpdate(Reader in, int version) {
+        int flags = in.readByte();
+        ServiceStatusUpdateMessage m = new ServiceStatusUpdateMessage();
+        m.setCheckId((flags & HAS_CHECK_ID) != 0 ? in.readUuid() : null);
+        m.setTimestamp((flags & HAS_TIMESTAMP) != 0 ? in.readInstant() : null);
+        m.setServiceId(in.readString());
+        m.setNewStatus(in.readString());
+        m.setDetails(in.readString());
+        return m;
+    }
+
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        Writer(int initialCapacity, byte type) {
+            buf = new byte[initialCapacity];
+            buf[0] = MAGIC;
+            buf[1] = VERSION;
+            buf[2] = type;
+            pos = 3;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buf[pos++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeUuid(UUID value) {
+            if (value != null) {
+                writeLong(value.getMostSignificantBits());
+                writeLong(value.getLeastSignificantBits());
+            }
+        }
+
+        void writeInstant(Instant value) {
+            if (value != null) {
+                writeLong(value.toEpochMilli());
+            }
+        }
+
+        void writeVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63); // Zig-zag so small negatives stay short
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int readByte() {
+            require(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        long readLong() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (buf[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        UUID readUuid() {
+            return new UUID(readLong(), readLong());
+        }
+
+        Instant readInstant() {
+            return Instant.ofEpochMilli(readLong());
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (v >>> 1) ^ -(v & 1);
+                }
+            }
+            throw new SerializationException("Malformed varint at offset " + pos);
+        }
+
+        String readString() {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buf.length - pos) {
+                throw new SerializationException("String length " + length + " exceeds payload at offset " + pos);
+            }
+            String value = new String(buf, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return value;
+        }
+
+        private void require(int bytes) {
+            if (pos + bytes > buf.length) {
+                throw new SerializationException("Truncated message at offset " + pos);
+            }
+        }
+    }
+}
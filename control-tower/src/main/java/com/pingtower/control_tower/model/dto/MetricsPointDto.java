@@ -0,0 +1,23 @@
+package com.pingtower.control_tower.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricsPointDto {
+    private Instant timestamp;  // start of the interval the point covers
+    private long totalCount;
+    private long okCount;
+    private double uptime;      // okCount / totalCount, in percent
+    private double avgLatencyMs;
+    private double p50;
+    private double p95;
+    private double p99;
+}
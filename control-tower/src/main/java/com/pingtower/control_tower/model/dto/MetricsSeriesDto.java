@@ -0,0 +1,22 @@
+package com.pingtower.control_tower.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricsSeriesDto {
+    private String serviceId;
+    private Instant from;
+    private Instant to;
+    private long stepSeconds;
+    private List<String> tables;        // ClickHouse tables the points were read from
+    private List<MetricsPointDto> points; // intervals without measurements are left out
+}
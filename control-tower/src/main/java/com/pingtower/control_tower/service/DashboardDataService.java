@@ -1,16 +1,20 @@
 package com.pingtower.control_tower.service;
 
+import com.pingtower.control_tower.aggregate.ServiceMetricsAggregator;
+import com.pingtower.control_tower.analytics.MetricsQueryRouter;
 import com.pingtower.control_tower.domain.Service;
 import com.pingtower.control_tower.model.dto.ClickHouseMetricsDto;
 import com.pingtower.control_tower.model.dto.DashboardServiceDto;
 import com.pingtower.control_tower.repository.ServiceRepository;
+import com.pingtower.control_tower.state.ServiceStateStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,12 +25,13 @@ import java.util.stream.Collectors;
 public class DashboardDataService {
 
     private final ServiceRepository serviceRepository;
-
-    @Qualifier("clickhouseJdbcTemplate")
-    private final JdbcTemplate clickhouseJdbcTemplate;
+    private final ServiceStateStore serviceStateStore;
+    private final ServiceMetricsAggregator serviceMetricsAggregator;
+    private final MetricsQueryRouter metricsQueryRouter;
 
     public List<DashboardServiceDto> getDashboardSnapshot() {
         List<Service> services = serviceRepository.findAll();
+        services.forEach(serviceStateStore::applyTo);
         if (services.isEmpty()) {
             return Collections.emptyList();
         }
@@ -41,7 +46,7 @@ public class DashboardDataService {
     }
 
     public DashboardServiceDto getUpdatedService(String serviceId) {
-        Service service = serviceRepository.findById(serviceId).orElse(null);
+        Service service = serviceRepository.findById(serviceId).map(serviceStateStore::applyTo).orElse(null);
         if (service == null) {
             return null;
         }
@@ -53,34 +58,18 @@ public class DashboardDataService {
         if (serviceIds == null || serviceIds.isEmpty()) {
             return Collections.emptyMap();
         }
+        // ClickHouse is only queried until the aggregator has loaded the last 24 hours
+        if (serviceMetricsAggregator.isReady()) {
+            return serviceMetricsAggregator.metrics(serviceIds);
+        }
 
-        String inClause = serviceIds.stream().map(id -> "'" + id + "'").collect(Collectors.joining(","));
-        String sql = String.format(
-            "SELECT " +
-            "    serviceId, " +
-            "    quantile(0.95)(latencyMs) as p95, " +
-            "    avg(latencyMs) as avg, " +
-            "    countIf(success = true) as okCount, " +
-            "    count() as totalCount " +
-            "FROM measurements " +
-            "WHERE serviceId IN (%s) AND timestamp > now() - INTERVAL 1 DAY " +
-            "GROUP BY serviceId", inClause);
-        
         try {
-            return clickhouseJdbcTemplate.query(sql, (rs) -> {
-                Map<String, ClickHouseMetricsDto> map = new java.util.HashMap<>();
-                while (rs.next()) {
-                    String serviceId = rs.getString("serviceId");
-                    ClickHouseMetricsDto metrics = new ClickHouseMetricsDto(
-                        rs.getDouble("p95"),
-                        rs.getDouble("avg"),
-                        rs.getLong("okCount"),
-                        rs.getLong("totalCount")
-                    );
-                    map.put(serviceId, metrics);
-                }
-                return map;
-            });
+            Instant now = Instant.now();
+            Map<String, ClickHouseMetricsDto> metrics = new HashMap<>();
+            metricsQueryRouter.summaries(serviceIds, now.minus(Duration.ofDays(1)), now).forEach((serviceId, point) ->
+                    metrics.put(serviceId, new ClickHouseMetricsDto(
+                            point.getP95(), point.getAvgLatencyMs(), point.getOkCount(), point.getTotalCount())));
+            return metrics;
         } catch (Exception e) {
             log.error("Failed to fetch metrics from ClickHouse", e);
             return Collections.emptyMap();
@@ -0,0 +1,297 @@
+package com.pingtower.control_tower.state;
+
+import com.pingtower.control_tower.domain.Service;
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latest known status of every service, kept in memory and written behind to Postgres.
+ * <p>
+ * Measurements and status changes only update the in-memory state and mark the columns whose value
+ * changed. Every {@code control-tower.state.flush-interval-ms} the changed columns of all dirty
+ * services are written as one JDBC batch, so Postgres sees at most one row update per service per
+ * interval however often it is checked. Reads that need the current status, such as the dashboard,
+ * overlay this state on the row loaded from Postgres with {@link #applyTo(Service)}.
+ */
+@Slf4j
+@Component
+public class ServiceStateStore {
+
+    // Unchanged columns are sent as null and keep their value
+    private static final String UPDATE_SQL = "UPDATE service SET "
+            + "status = COALESCE(?, status), "
+            + "last_status_text = COALESCE(?, last_status_text), "
+            + "last_dom_load_time_ms = COALESCE(?, last_dom_load_time_ms), "
+            + "last_ttfb_ms = COALESCE(?, last_ttfb_ms), "
+            + "ssl_expires_in_days = COALESCE(?, ssl_expires_in_days), "
+            + "last_check = COALESCE(?, last_check) "
+            + "WHERE id = ?";
+    private static final int[] UPDATE_TYPES = {Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER,
+            Types.INTEGER, Types.TIMESTAMP, Types.VARCHAR};
+
+    private static final int STATUS = 1;
+    private static final int STATUS_TEXT = 1 << 1;
+    private static final int DOM_LOAD_TIME = 1 << 2;
+    private static final int TTFB = 1 << 3;
+    private static final int SSL_EXPIRES = 1 << 4;
+    private static final int LAST_CHECK = 1 << 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final Map<String, ServiceState> states = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    public ServiceStateStore(JdbcTemplate jdbcTemplate,
+                             @Value("${control-tower.state.flush-interval-ms:1000}") long flushIntervalMs,
+                             @Value("${control-tower.state.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ServiceStateFlusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushQuietly();
+    }
+
+    public void recordMeasurement(RawMeasurementMessage message, Timestamp lastCheck) {
+        ServiceState state = states.computeIfAbsent(message.getServiceId(), id -> new ServiceState());
+        synchronized (state) {
+            state.setStatus(message.isSuccess() ? 1 : 0); // 1 = OK, 0 = CRIT
+            // SSL check results only update the sslExpiresInDays field, not the main status text
+            if (message.getSslExpiresInDays() == null) {
+                state.setStatusText(message.getStatusText());
+            }
+            if (message.getDomLoadTimeMs() != null) {
+                state.setDomLoadTimeMs(message.getDomLoadTimeMs().intValue());
+            }
+            if (message.getTtfbMs() != null) {
+                state.setTtfbMs(message.getTtfbMs().intValue());
+            }
+            if (message.getSslExpiresInDays() != null) {
+                state.setSslExpiresInDays(message.getSslExpiresInDays().intValue());
+            }
+            state.setLastCheck(lastCheck);
+        }
+    }
+
+    public void recordStatus(String serviceId, int status, Timestamp lastCheck) {
+        ServiceState state = states.computeIfAbsent(serviceId, id -> new ServiceState());
+        synchronized (state) {
+            state.setStatus(status);
+            state.setLastCheck(lastCheck);
+        }
+    }
+
+    /**
+     * Copies the state this instance knows onto a service loaded from Postgres, so reads see it
+     * before it has been flushed. Returns the same service.
+     */
+    public Service applyTo(Service service) {
+        ServiceState state = states.get(service.getId());
+        if (state == null) {
+            return service;
+        }
+        synchronized (state) {
+            if (state.status != null) {
+                service.setStatus(state.status);
+            }
+            if (state.statusText != null) {
+                service.setLastStatusText(state.statusText);
+            }
+            if (state.domLoadTimeMs != null) {
+                service.setLastDomLoadTimeMs(state.domLoadTimeMs);
+            }
+            if (state.ttfbMs != null) {
+                service.setLastTtfbMs(state.ttfbMs);
+            }
+            if (state.sslExpiresInDays != null) {
+                service.setSslExpiresInDays(state.sslExpiresInDays);
+            }
+            if (state.lastCheck != null) {
+                service.setLastCheck(state.lastCheck);
+            }
+        }
+        return service;
+    }
+
+    /** Forgets a deleted service so its state is not written again. */
+    public void evict(String serviceId) {
+        states.remove(serviceId);
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * Writes the changed columns of all dirty services. Columns that fail to write stay dirty for the
+     * next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<String> ids = new ArrayList<>();
+            states.forEach((id, state) -> {
+                synchronized (state) {
+                    if (state.dirty != 0) {
+                        ids.add(id);
+                    }
+                }
+            });
+            int written = 0;
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<String> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                List<String> batchIds = new ArrayList<>(chunk.size());
+                List<ServiceState> taken = new ArrayList<>(chunk.size());
+                List<Integer> takenColumns = new ArrayList<>(chunk.size());
+                List<Object[]> batch = new ArrayList<>(chunk.size());
+                for (String id : chunk) {
+                    ServiceState state = states.get(id);
+                    if (state == null) {
+                        continue;
+                    }
+                    synchronized (state) {
+                        if (state.dirty == 0) {
+                            continue;
+                        }
+                        batch.add(state.changedColumns(id));
+                        takenColumns.add(state.dirty);
+                        state.dirty = 0;
+                    }
+                    batchIds.add(id);
+                    taken.add(state);
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                int[] updated;
+                try {
+                    updated = jdbcTemplate.batchUpdate(UPDATE_SQL, batch, UPDATE_TYPES);
+                } catch (RuntimeException e) {
+                    // The state holds the latest values, so marking the columns dirty again is enough
+                    for (int i = 0; i < taken.size(); i++) {
+                        ServiceState state = taken.get(i);
+                        synchronized (state) {
+                            state.dirty |= takenColumns.get(i);
+                        }
+                    }
+                    throw e;
+                }
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        // No such service, e.g. measurements still arriving for a deleted one
+                        states.remove(batchIds.get(i), taken.get(i));
+                    }
+                }
+                written += batch.size();
+            }
+            if (written > 0) {
+                log.debug("Flushed state of {} services", written);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush service state", e);
+        }
+    }
+
+    /** Latest values of the status columns of one service; guarded by its own monitor. */
+    private static final class ServiceState {
+
+        private Integer status;
+        private String statusText;
+        private Integer domLoadTimeMs;
+        private Integer ttfbMs;
+        private Integer sslExpiresInDays;
+        private Timestamp lastCheck;
+        private int dirty;
+
+        void setStatus(int value) {
+            if (status == null || status != value) {
+                status = value;
+                dirty |= STATUS;
+            }
+        }
+
+        void setStatusText(String value) {
+            if (value != null && !value.equals(statusText)) {
+                statusText = value;
+                dirty |= STATUS_TEXT;
+            }
+        }
+
+        void setDomLoadTimeMs(int value) {
+            if (domLoadTimeMs == null || domLoadTimeMs != value) {
+                domLoadTimeMs = value;
+                dirty |= DOM_LOAD_TIME;
+            }
+        }
+
+        void setTtfbMs(int value) {
+            if (ttfbMs == null || ttfbMs != value) {
+                ttfbMs = value;
+                dirty |= TTFB;
+            }
+        }
+
+        void setSslExpiresInDays(int value) {
+            if (sslExpiresInDays == null || sslExpiresInDays != value) {
+                sslExpiresInDays = value;
+                dirty |= SSL_EXPIRES;
+            }
+        }
+
+        void setLastCheck(Timestamp value) {
+            if (!value.equals(lastCheck)) {
+                lastCheck = value;
+                dirty |= LAST_CHECK;
+            }
+        }
+
+        Object[] changedColumns(String id) {
+            return new Object[]{
+                    (dirty & STATUS) != 0 ? status : null,
+                    (dirty & STATUS_TEXT) != 0 ? statusText : null,
+                    (dirty & DOM_LOAD_TIME) != 0 ? domLoadTimeMs : null,
+                    (dirty & TTFB) != 0 ? ttfbMs : null,
+                    (dirty & SSL_EXPIRES) != 0 ? sslExpiresInDays : null,
+                    (dirty & LAST_CHECK) != 0 ? lastCheck : null,
+                    id};
+        }
+    }
+}
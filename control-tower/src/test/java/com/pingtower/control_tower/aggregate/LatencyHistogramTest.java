@@ -0,0 +1,110 @@
+package com.pingtower.control_tower.aggregate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void valuesBelowSixteenHaveABucketEach() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, LatencyHistogram.index(value));
+            assertEquals(value, LatencyHistogram.valueAt(value));
+        }
+        assertEquals(0, LatencyHistogram.index(-5));
+    }
+
+    @Test
+    void bucketMidpointIsWithinOneThirtySecondOfEveryValue() {
+        int previous = -1;
+        for (long value = 1; value < 10_000_000; value += 1 + value / 1000) {
+            int index = LatencyHistogram.index(value);
+            double error = Math.abs(LatencyHistogram.valueAt(index) - value) / value;
+            long reported = value;
+            assertTrue(error <= 1.0 / 32, () -> reported + " reported as " + LatencyHistogram.valueAt(index));
+            assertTrue(index >= previous, "buckets are ordered by value");
+            previous = index;
+        }
+    }
+
+    @Test
+    void everyValueOfABucketMapsBackToIt() {
+        for (int index = 0; index < 16 * 20; index++) {
+            long midpoint = (long) LatencyHistogram.valueAt(index);
+            assertEquals(index, LatencyHistogram.index(midpoint));
+        }
+    }
+
+    @Test
+    void seedQueryLowerBoundFallsIntoTheSameBucket() {
+        // ServiceMetricsAggregator's SEED_SQL groups by this lower bound instead of the latency itself
+        for (long value = 1; value < 10_000_000; value += 1 + value / 997) {
+            int shift = Math.max((int) Math.floor(Math.log(value) / Math.log(2)) - 4, 0);
+            long lowerBound = (value >>> shift) << shift;
+            assertEquals(LatencyHistogram.index(value), LatencyHistogram.index(lowerBound), "value " + value);
+        }
+    }
+
+    @Test
+    void quantilesOfAUniformSampleAreWithinTheBucketWidth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.add(value, 1);
+        }
+        long[] totals = new long[histogram.length()];
+        histogram.addTo(totals);
+
+        for (double quantile : new double[]{0.5, 0.95, 0.99}) {
+            double actual = LatencyHistogram.quantile(totals, 10_000, quantile);
+            double exact = quantile * 10_000;
+            assertTrue(Math.abs(actual - exact) / exact <= 1.0 / 16, () -> quantile + ": " + actual);
+        }
+    }
+
+    @Test
+    void p95OfASkewedSampleMatchesTheExactValue() {
+        Random random = new Random(42);
+        long[] values = new long[50_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Mostly fast responses with a long tail
+            values[i] = i % 20 == 0 ? 1000 + random.nextInt(9000) : 20 + random.nextInt(200);
+            histogram.add(values[i], 1);
+        }
+        Arrays.sort(values);
+        long exact = values[(int) Math.ceil(0.95 * values.length) - 1];
+        long[] totals = new long[histogram.length()];
+        histogram.addTo(totals);
+
+        double p95 = LatencyHistogram.quantile(totals, values.length, 0.95);
+
+        assertTrue(Math.abs(p95 - exact) / exact <= 1.0 / 16, () -> "p95 " + p95 + ", exact " + exact);
+    }
+
+    @Test
+    void addAllMergesHistogramsOfDifferentLengths() {
+        LatencyHistogram small = new LatencyHistogram();
+        small.add(5, 3);
+        LatencyHistogram large = new LatencyHistogram();
+        large.add(5, 1);
+        large.add(100_000, 2);
+
+        small.addAll(large);
+
+        long[] totals = new long[small.length()];
+        small.addTo(totals);
+        assertEquals(4, totals[LatencyHistogram.index(5)]);
+        assertEquals(2, totals[LatencyHistogram.index(100_000)]);
+        assertEquals(6, Arrays.stream(totals).sum());
+    }
+
+    @Test
+    void emptyHistogramHasNoQuantile() {
+        assertEquals(0, LatencyHistogram.quantile(new long[0], 0, 0.95));
+    }
+}
@@ -0,0 +1,188 @@
+package com.pingtower.control_tower.aggregate;
+
+import com.pingtower.control_tower.clickhouse.ClickHouseMeasurementWriter;
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+import com.pingtower.control_tower.model.dto.ClickHouseMetricsDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServiceMetricsAggregatorTest {
+
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private JdbcTemplate clickhouseJdbcTemplate;
+    private MessageListenerContainer listenerContainer;
+    private ServiceMetricsAggregator aggregator;
+    private long now;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        clickhouseJdbcTemplate = mock(JdbcTemplate.class);
+        listenerContainer = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer(ClickHouseMeasurementWriter.LISTENER_ID)).thenReturn(listenerContainer);
+        ObjectProvider<KafkaListenerEndpointRegistry> listenerRegistry = mock(ObjectProvider.class);
+        when(listenerRegistry.getIfAvailable()).thenReturn(registry);
+        aggregator = new ServiceMetricsAggregator(clickhouseJdbcTemplate, listenerRegistry, 10);
+        now = System.currentTimeMillis();
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.stop();
+    }
+
+    @Test
+    void consumptionStartsOnceTheSeedHasLoaded() throws Exception {
+        doAnswer(invocation -> {
+            verify(listenerContainer, never()).start();
+            return null;
+        }).when(clickhouseJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        aggregator.start();
+        awaitReady();
+
+        verify(listenerContainer).start();
+    }
+
+    @Test
+    void backlogTakenBeforeStartupIsCountedWhenConsumed() throws Exception {
+        // ClickHouse does not have the backlog yet, so the seed finds nothing of it
+        aggregator.start();
+        awaitReady();
+
+        aggregator.record(measurement("service-1", now - 3 * HOUR_MS, 100, true), now);
+        aggregator.record(measurement("service-1", now - 20 * HOUR_MS, 300, false), now);
+
+        ClickHouseMetricsDto metrics = metrics("service-1");
+        assertEquals(2, metrics.getTotalCount());
+        assertEquals(1, metrics.getOkCount());
+        assertEquals(200, metrics.getAvg());
+    }
+
+    @Test
+    void measurementOlderThanTheWindowIsNotCounted() {
+        aggregator.record(measurement("service-1", now - 25 * HOUR_MS, 100, true), now);
+        aggregator.record(measurement("service-1", now, 200, true), now);
+
+        assertEquals(1, metrics("service-1").getTotalCount());
+    }
+
+    @Test
+    void workerClockAheadCountsTowardsTheCurrentHour() {
+        aggregator.record(measurement("service-1", now + 2 * HOUR_MS, 100, true), now);
+
+        assertEquals(1, metrics("service-1").getTotalCount());
+    }
+
+    @Test
+    void redeliveredMeasurementIsCountedAgain() {
+        RawMeasurementMessage message = measurement("service-1", now, 100, true);
+
+        aggregator.record(message, now);
+        aggregator.record(message, now);
+
+        assertEquals(2, metrics("service-1").getTotalCount());
+    }
+
+    @Test
+    void seededMetricsAddUpWithMeasurementsConsumedAfterwards() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString("serviceId")).thenReturn("service-1", "service-2");
+        when(row.getLong("hour")).thenReturn(now / HOUR_MS);
+        when(row.getLong("latency")).thenReturn(96L, 48L);
+        when(row.getInt("cnt")).thenReturn(3, 1);
+        when(row.getLong("okCount")).thenReturn(3L, 1L);
+        when(row.getLong("latencySum")).thenReturn(300L, 50L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row);
+            handler.processRow(row);
+            return null;
+        }).when(clickhouseJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        assertFalse(aggregator.isReady());
+        aggregator.start();
+        awaitReady();
+        aggregator.record(measurement("service-1", now, 400, false), now);
+
+        ClickHouseMetricsDto merged = metrics("service-1");
+        assertEquals(4, merged.getTotalCount());
+        assertEquals(3, merged.getOkCount());
+        assertEquals(175, merged.getAvg());
+        assertEquals(1, metrics("service-2").getTotalCount());
+    }
+
+    @Test
+    void failedSeedIsRetriedWithoutLeavingPartialCounts() throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getString("serviceId")).thenReturn("service-1");
+        when(row.getLong("hour")).thenReturn(now / HOUR_MS);
+        when(row.getLong("latency")).thenReturn(100L);
+        when(row.getInt("cnt")).thenReturn(1);
+        when(row.getLong("okCount")).thenReturn(1L);
+        when(row.getLong("latencySum")).thenReturn(100L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row);
+            throw new IllegalStateException("connection reset");
+        }).doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row);
+            return null;
+        }).when(clickhouseJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        aggregator.start();
+        awaitReady();
+
+        assertEquals(1, metrics("service-1").getTotalCount());
+        verify(listenerContainer).start();
+    }
+
+    private ClickHouseMetricsDto metrics(String serviceId) {
+        Map<String, ClickHouseMetricsDto> metrics = aggregator.metrics(List.of(serviceId));
+        assertTrue(metrics.containsKey(serviceId), () -> serviceId + " has no metrics");
+        return metrics.get(serviceId);
+    }
+
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!aggregator.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(aggregator.isReady());
+    }
+
+    private static RawMeasurementMessage measurement(String serviceId, long timestamp, long latencyMs, boolean success) {
+        return RawMeasurementMessage.builder()
+                .serviceId(serviceId)
+                .timestamp(Instant.ofEpochMilli(timestamp))
+                .latencyMs(latencyMs)
+                .success(success)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.pingtower.control_tower.aggregate;
+
+import com.pingtower.control_tower.model.dto.ClickHouseMetricsDto;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ServiceWindowTest {
+
+    private static final long HOUR = 480_000; // Any hour since the epoch
+
+    private final ServiceWindow window = new ServiceWindow();
+
+    @Test
+    void metricsCoverTheCurrentHourAndTheTwentyThreeBefore() {
+        for (int i = 0; i < ServiceWindow.HOURS; i++) {
+            window.record(HOUR + i, 100, i % 2 == 0);
+        }
+
+        ClickHouseMetricsDto metrics = window.metrics(HOUR + 23);
+
+        assertEquals(24, metrics.getTotalCount());
+        assertEquals(12, metrics.getOkCount());
+        assertEquals(100, metrics.getAvg());
+    }
+
+    @Test
+    void hoursLeaveTheWindowAsTimePasses() {
+        window.record(HOUR, 100, true);
+        window.record(HOUR + 12, 300, true);
+
+        assertEquals(2, window.metrics(HOUR + 23).getTotalCount());
+        // Without a newer measurement reusing its bucket, the first hour is still skipped
+        assertEquals(1, window.metrics(HOUR + 24).getTotalCount());
+        assertEquals(300, window.metrics(HOUR + 24).getAvg());
+        assertNull(window.metrics(HOUR + 36));
+    }
+
+    @Test
+    void newHourResetsTheBucketItReuses() {
+        window.record(HOUR, 5000, false);
+        window.record(HOUR, 5000, false);
+
+        // Same bucket as HOUR, a day later
+        window.record(HOUR + 24, 10, true);
+
+        ClickHouseMetricsDto metrics = window.metrics(HOUR + 24);
+        assertEquals(1, metrics.getTotalCount());
+        assertEquals(1, metrics.getOkCount());
+        assertEquals(10, metrics.getP95());
+    }
+
+    @Test
+    void measurementOlderThanItsBucketIsDropped() {
+        window.record(HOUR + 24, 10, true);
+
+        window.record(HOUR, 5000, false);
+
+        assertEquals(1, window.metrics(HOUR + 24).getTotalCount());
+    }
+
+    @Test
+    void measurementFromAFutureHourIsLeftOutUntilThatHour() {
+        window.record(HOUR, 10, true);
+        window.record(HOUR + 1, 10, true);
+
+        assertEquals(1, window.metrics(HOUR).getTotalCount());
+        assertEquals(2, window.metrics(HOUR + 1).getTotalCount());
+    }
+
+    @Test
+    void p95IsTakenOverEveryHourInTheWindow() {
+        // 95 fast measurements an hour ago and 5 slow ones now
+        window.add(HOUR, 20, 95, 95, 95 * 20);
+        window.add(HOUR + 1, 2000, 5, 5, 5 * 2000);
+
+        ClickHouseMetricsDto metrics = window.metrics(HOUR + 1);
+
+        assertEquals(100, metrics.getTotalCount());
+        assertEquals(LatencyHistogram.valueAt(LatencyHistogram.index(20)), metrics.getP95());
+        assertEquals(119, metrics.getAvg());
+    }
+
+    @Test
+    void seededBucketsMergeWithLiveOnes() {
+        // Live measurements taken after the seed cutoff, in the current hour
+        window.record(HOUR + 23, 100, true);
+        window.record(HOUR + 23, 300, false);
+
+        ServiceWindow seeded = new ServiceWindow();
+        seeded.add(HOUR + 23, 200, 4, 4, 800);
+        seeded.add(HOUR + 22, 50, 10, 9, 500);
+        seeded.add(HOUR, 5000, 2, 0, 10_000);
+
+        window.mergeFrom(seeded);
+        ClickHouseMetricsDto metrics = window.metrics(HOUR + 23);
+
+        assertEquals(18, metrics.getTotalCount());
+        assertEquals(14, metrics.getOkCount());
+        assertEquals((100 + 300 + 800 + 500 + 10_000) / 18.0, metrics.getAvg(), 1e-9);
+        // Seeded and live counts of the current hour stay together once the others have left the window
+        assertEquals(6, window.metrics(HOUR + 46).getTotalCount());
+    }
+
+    @Test
+    void seedOlderThanTheLiveBucketIsSkippedOnMerge() {
+        window.record(HOUR + 24, 10, true);
+
+        ServiceWindow seeded = new ServiceWindow();
+        seeded.add(HOUR, 5000, 7, 0, 35_000);
+        window.mergeFrom(seeded);
+
+        ClickHouseMetricsDto metrics = window.metrics(HOUR + 24);
+        assertEquals(1, metrics.getTotalCount());
+        assertEquals(10, metrics.getAvg());
+    }
+}
@@ -0,0 +1,99 @@
+package com.pingtower.control_tower.analytics;
+
+import com.pingtower.control_tower.analytics.MetricsQueryRouter.Segment;
+import com.pingtower.control_tower.analytics.MetricsQueryRouter.Source;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsQueryRouterTest {
+
+    @ParameterizedTest(name = "[{0}, {1}) -> {2}")
+    @CsvSource(delimiter = '|', nullValues = "none", value = {
+            // Aligned to hours
+            "0      | 7200   | HOURLY 0 7200",
+            "3600   | 86400  | HOURLY 3600 86400",
+            // Aligned to minutes only
+            "120    | 600    | MINUTELY 120 600",
+            "3540   | 7260   | MINUTELY 3540 3600, HOURLY 3600 7200, MINUTELY 7200 7260",
+            // Unaligned at both ends
+            "30     | 7290   | RAW 30 60, MINUTELY 60 3600, HOURLY 3600 7200, MINUTELY 7200 7260, RAW 7260 7290",
+            "3599   | 3661   | RAW 3599 3600, MINUTELY 3600 3660, RAW 3660 3661",
+            "90     | 200    | RAW 90 120, MINUTELY 120 180, RAW 180 200",
+            // Unaligned at one end
+            "0      | 3601   | HOURLY 0 3600, RAW 3600 3601",
+            "59     | 3600   | RAW 59 60, MINUTELY 60 3600",
+            // Shorter than a minute, within one minute or across a minute boundary
+            "10     | 50     | RAW 10 50",
+            "50     | 70     | RAW 50 70",
+            "3599   | 3601   | RAW 3599 3601",
+            // Shorter than an hour across an hour boundary
+            "3000   | 4200   | MINUTELY 3000 4200",
+            // Before the epoch
+            "-90    | 30     | RAW -90 -60, MINUTELY -60 0, RAW 0 30",
+            "-7200  | 0      | HOURLY -7200 0",
+            // Empty and negative
+            "100    | 100    | none",
+            "200    | 100    | none",
+            "7200   | 0      | none"
+    })
+    void planSplitsRangeIntoFewestRollupRows(long from, long to, String expected) {
+        assertEquals(segments(expected), MetricsQueryRouter.plan(from, to));
+    }
+
+    @Test
+    void planCoversEveryRangeExactlyWithAlignedSegments() {
+        long[] edges = {-3601, -60, 0, 1, 59, 60, 61, 119, 3540, 3599, 3600, 3601, 3660, 7199, 7200, 7261, 90000};
+        for (long from : edges) {
+            for (long to : edges) {
+                List<Segment> segments = MetricsQueryRouter.plan(from, to);
+                long covered = from;
+                for (Segment segment : segments) {
+                    assertEquals(covered, segment.from(), () -> "gap or overlap in " + segments);
+                    assertTrue(segment.from() < segment.to(), () -> "empty segment in " + segments);
+                    assertEquals(0, Math.floorMod(segment.from(), segment.source().seconds));
+                    assertEquals(0, Math.floorMod(segment.to(), segment.source().seconds));
+                    covered = segment.to();
+                }
+                assertEquals(from < to ? to : from, covered, () -> "[" + from + ", " + to + ") -> " + segments);
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "step {0}s -> {1}")
+    @CsvSource({
+            "1,      RAW",
+            "30,     RAW",
+            "59,     RAW",
+            "60,     MINUTELY",
+            "61,     RAW",
+            "90,     RAW",
+            "120,    MINUTELY",
+            "300,    MINUTELY",
+            "3600,   HOURLY",
+            "5400,   MINUTELY",
+            "7200,   HOURLY",
+            "86400,  HOURLY",
+            "86401,  RAW"
+    })
+    void sourceForPicksTheCoarsestTableDividingTheStep(long stepSeconds, Source expected) {
+        assertEquals(expected, MetricsQueryRouter.sourceFor(stepSeconds));
+    }
+
+    // "HOURLY 0 3600, RAW 3600 3601", or null for no segments
+    private static List<Segment> segments(String expected) {
+        if (expected == null) {
+            return List.of();
+        }
+        return Arrays.stream(expected.split(","))
+                .map(segment -> segment.trim().split(" "))
+                .map(parts -> new Segment(Source.valueOf(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])))
+                .toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.pingtower.control_tower.clickhouse;
+
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClickHouseMeasurementWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private MessageListenerContainer container;
+    private ClickHouseMeasurementWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        container = mock(MessageListenerContainer.class);
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainer(ClickHouseMeasurementWriter.LISTENER_ID)).thenReturn(container);
+        ObjectProvider<KafkaListenerEndpointRegistry> registryProvider = mock(ObjectProvider.class);
+        when(registryProvider.getIfAvailable()).thenReturn(registry);
+        // Flush inline at 2 rows, pause at 4; the flush thread is not started
+        writer = new ClickHouseMeasurementWriter(jdbcTemplate, registryProvider, 2, 60_000, 4, 0);
+    }
+
+    @Test
+    void failingInsertHoldsAcksAndPausesInsteadOfBlocking() {
+        clickHouseDown();
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            writer.write(measurements(2), first);
+            writer.write(measurements(2), second);
+        });
+
+        verify(first, never()).acknowledge();
+        verify(second, never()).acknowledge();
+        verify(container).pause();
+        assertTrue(writer.isPaused());
+    }
+
+    @Test
+    void successfulRetryAcknowledgesHeldBatchesAndResumes() {
+        clickHouseDown();
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        writer.write(measurements(2), first);
+        writer.write(measurements(2), second);
+
+        clickHouseUp();
+        assertTrue(writer.flush());
+
+        verify(first).acknowledge();
+        verify(second).acknowledge();
+        verify(container).resume();
+        assertFalse(writer.isPaused());
+    }
+
+    @Test
+    void belowBufferLimitDoesNotPause() {
+        clickHouseDown();
+        Acknowledgment ack = mock(Acknowledgment.class);
+
+        writer.write(measurements(3), ack);
+
+        verify(ack, never()).acknowledge();
+        verify(container, never()).pause();
+    }
+
+    @Test
+    void rowsWithoutIdsAreSkippedButTheirBatchIsAcknowledged() {
+        Acknowledgment ack = mock(Acknowledgment.class);
+        RawMeasurementMessage withoutService = RawMeasurementMessage.builder().checkId(UUID.randomUUID()).build();
+
+        writer.write(List.of(withoutService), ack);
+        assertTrue(writer.flush());
+
+        verify(ack, times(1)).acknowledge();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    private void clickHouseDown() {
+        doThrow(new DataAccessResourceFailureException("ClickHouse is down"))
+                .when(jdbcTemplate).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    private void clickHouseUp() {
+        doReturn(new int[0]).when(jdbcTemplate).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    private static List<RawMeasurementMessage> measurements(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> RawMeasurementMessage.builder()
+                        .checkId(UUID.randomUUID())
+                        .serviceId("service-" + i)
+                        .timestamp(Instant.now())
+                        .latencyMs(100 + i)
+                        .responseCode(200)
+                        .success(true)
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,183 @@
+package com.pingtower.control_tower.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * ping-worker has the same test for its copy of {@link WireFormat}; both pin the encoding to the
+ * same {@link #GOLDEN_RAW_MEASUREMENT} bytes, so the copies cannot drift apart unnoticed.
+ */
+class WireFormatTest {
+
+    private static final Path OTHER_COPY =
+            Path.of("../ping-worker/src/main/java/com/pingtower/ping_worker/kafka/WireFormat.java");
+
+    // Encoding of fullMeasurement() in version 3
+    private static final String GOLDEN_RAW_MEASUREMENT =
+            "c103013f6f1c2a9e3b4d4e5f8a7b9c0d1e2f3a4b0000018bcfe5687bea039003e012a0010314736572766963652d31064f4b003f061832500380a00680a09c01";
+
+    @Test
+    void rawMeasurementWithEveryFieldRoundTrips() {
+        RawMeasurementMessage message = fullMeasurement();
+        assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+    }
+
+    @Test
+    void rawMeasurementWithNullFieldsRoundTrips() {
+        RawMeasurementMessage message = new RawMeasurementMessage();
+        assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+
+        message.setConnectionReused(false);
+        message.setStatusText("");
+        assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+    }
+
+    @Test
+    void largestFieldValuesRoundTrip() {
+        RawMeasurementMessage message = fullMeasurement();
+        message.setCheckId(new UUID(-1L, -1L));
+        message.setTimestamp(Instant.ofEpochMilli(Long.MAX_VALUE));
+        message.setResponseCode(Integer.MAX_VALUE);
+        for (long value : List.of(Long.MAX_VALUE, Long.MIN_VALUE, -1L, 0L)) {
+            message.setLatencyMs(value);
+            message.setDomLoadTimeMs(value);
+            message.setTtfbMs(value);
+            message.setSslExpiresInDays(value);
+            message.setDnsMs(value);
+            message.setConnectMs(value);
+            message.setTlsMs(value);
+            message.setBodyMs(value);
+            message.setBodyBytes(value);
+            message.setThroughputBytesPerSec(value);
+            assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+        }
+
+        // A 1 MB error message with multi-byte characters
+        message.setErrorMessage("ошибка ✓ ".repeat(1024 * 1024 / 16));
+        assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+    }
+
+    @Test
+    void serviceStatusUpdateRoundTrips() {
+        ServiceStatusUpdateMessage message = ServiceStatusUpdateMessage.builder()
+                .checkId(UUID.fromString("0b7e3c1a-5d2f-4a6b-9c8d-7e6f5a4b3c2d"))
+                .serviceId("service-1")
+                .newStatus("DOWN")
+                .timestamp(Instant.ofEpochMilli(1_700_000_000_123L))
+                .details("Connection refused")
+                .build();
+        assertEquals(message, WireFormat.decode(WireFormat.encode(message)));
+
+        ServiceStatusUpdateMessage empty = new ServiceStatusUpdateMessage();
+        assertEquals(empty, WireFormat.decode(WireFormat.encode(empty)));
+    }
+
+    @Test
+    void encodingMatchesTheBytesBothModulesAgreeOn() {
+        assertEquals(GOLDEN_RAW_MEASUREMENT, HexFormat.of().formatHex(WireFormat.encode(fullMeasurement())));
+        assertEquals(fullMeasurement(), WireFormat.decode(HexFormat.of().parseHex(GOLDEN_RAW_MEASUREMENT)));
+    }
+
+    @Test
+    void readerIgnoresFieldsOfNewerVersions() {
+        byte[] current = WireFormat.encode(fullMeasurement());
+        // A future version appends a fourth flags byte and a value
+        byte[] newer = Arrays.copyOf(current, current.length + 3);
+        newer[1] = WireFormat.VERSION + 1;
+        newer[current.length] = 1;
+        newer[current.length + 1] = (byte) 0x96;
+        newer[current.length + 2] = 0x01;
+
+        assertEquals(fullMeasurement(), WireFormat.decode(newer));
+    }
+
+    @Test
+    void readerFillsFieldsMissingFromOlderVersions() {
+        RawMeasurementMessage message = fullMeasurement();
+        message.setDnsMs(null);
+        message.setConnectMs(null);
+        message.setTlsMs(null);
+        message.setBodyMs(null);
+        message.setConnectionReused(null);
+        message.setBodyBytes(null);
+        message.setThroughputBytesPerSec(null);
+        byte[] current = WireFormat.encode(message);
+
+        // Without any of their fields, versions 2 and 3 each end in one zero flags byte
+        byte[] version2 = Arrays.copyOf(current, current.length - 1);
+        version2[1] = 2;
+        byte[] version1 = Arrays.copyOf(current, current.length - 2);
+        version1[1] = 1;
+
+        assertEquals(message, WireFormat.decode(version2));
+        assertEquals(message, WireFormat.decode(version1));
+    }
+
+    @Test
+    void malformedPayloadsAreRejected() {
+        byte[] encoded = WireFormat.encode(fullMeasurement());
+
+        assertThrows(SerializationException.class, () -> WireFormat.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+        assertThrows(SerializationException.class, () -> WireFormat.decode(Arrays.copyOf(encoded, 10)));
+        byte[] unknownType = encoded.clone();
+        unknownType[2] = 99;
+        assertThrows(SerializationException.class, () -> WireFormat.decode(unknownType));
+        assertThrows(SerializationException.class, () -> WireFormat.decode("{\"serviceId\":\"s\"}".getBytes()));
+        assertFalse(WireFormat.isEncoded(new byte[]{WireFormat.MAGIC}));
+        assertTrue(WireFormat.isEncoded(encoded));
+    }
+
+    @Test
+    void copyInTheOtherModuleIsIdentical() throws IOException {
+        Path own = Path.of("src/main/java/com/pingtower/control_tower/kafka/WireFormat.java");
+        // Modules are also built on their own, without the rest of the repository
+        assumeTrue(Files.exists(OTHER_COPY), "ping-worker sources are not available");
+        assertArrayEquals(comparableLines(own), comparableLines(OTHER_COPY));
+    }
+
+    // Drops the two lines that name the module
+    private static Object[] comparableLines(Path file) throws IOException {
+        return Files.readAllLines(file).stream()
+                .filter(line -> !line.startsWith("package ") && !line.contains("has a copy of this class"))
+                .toArray();
+    }
+
+    private static RawMeasurementMessage fullMeasurement() {
+        return RawMeasurementMessage.builder()
+                .checkId(UUID.fromString("6f1c2a9e-3b4d-4e5f-8a7b-9c0d1e2f3a4b"))
+                .serviceId("service-1")
+                .timestamp(Instant.ofEpochMilli(1_700_000_000_123L))
+                .latencyMs(245)
+                .domLoadTimeMs(1200L)
+                .ttfbMs(80L)
+                .dnsMs(3L)
+                .connectMs(12L)
+                .tlsMs(25L)
+                .bodyMs(40L)
+                .bodyBytes(51_200L)
+                .throughputBytesPerSec(1_280_000L)
+                .connectionReused(true)
+                .sslExpiresInDays(-2L)
+                .responseCode(200)
+                .statusText("OK")
+                .success(true)
+                .errorMessage(null)
+                .build();
+    }
+}
@@ -0,0 +1,218 @@
+package com.pingtower.control_tower.state;
+
+import com.pingtower.control_tower.domain.Service;
+import com.pingtower.control_tower.kafka.RawMeasurementMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ServiceStateStoreTest {
+
+    private static final Timestamp FIRST_CHECK = new Timestamp(1_700_000_000_000L);
+    private static final Timestamp SECOND_CHECK = new Timestamp(1_700_000_030_000L);
+
+    private JdbcTemplate jdbcTemplate;
+    private ServiceStateStore store;
+    // Rows of every batchUpdate call, in order
+    private final List<List<Object[]>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        store = new ServiceStateStore(jdbcTemplate, 1000, 2);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>(invocation.getArgument(1));
+            batches.add(rows);
+            int[] updated = new int[rows.size()];
+            Arrays.fill(updated, 1);
+            return updated;
+        });
+    }
+
+    @Test
+    void firstFlushWritesEveryKnownColumn() {
+        store.recordMeasurement(measurement("service-1", true, "OK", 1200L, 80L, null), FIRST_CHECK);
+
+        store.flush();
+
+        assertEquals(1, batches.size());
+        assertArrayEquals(new Object[]{1, "OK", 1200, 80, null, FIRST_CHECK, "service-1"}, batches.get(0).get(0));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<int[]> types = ArgumentCaptor.forClass(int[].class);
+        verify(jdbcTemplate).batchUpdate(sql.capture(), anyList(), types.capture());
+        // Null parameters must leave the column as it is
+        assertTrue(sql.getValue().contains("status = COALESCE(?, status)"));
+        assertTrue(sql.getValue().contains("last_check = COALESCE(?, last_check)"));
+        assertArrayEquals(new int[]{Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER,
+                Types.INTEGER, Types.TIMESTAMP, Types.VARCHAR}, types.getValue());
+    }
+
+    @Test
+    void unchangedColumnsAreSentAsNullSoCoalesceKeepsThem() {
+        store.recordMeasurement(measurement("service-1", true, "OK", 1200L, 80L, null), FIRST_CHECK);
+        store.flush();
+
+        // Same status and text, new timings
+        store.recordMeasurement(measurement("service-1", true, "OK", 1300L, 80L, null), SECOND_CHECK);
+        store.flush();
+
+        assertArrayEquals(new Object[]{null, null, 1300, null, null, SECOND_CHECK, "service-1"}, batches.get(1).get(0));
+    }
+
+    @Test
+    void cleanServicesAreNotWrittenAgain() {
+        store.recordMeasurement(measurement("service-1", true, "OK", null, null, null), FIRST_CHECK);
+        store.flush();
+
+        store.recordMeasurement(measurement("service-1", true, "OK", null, null, null), FIRST_CHECK);
+        store.flush();
+
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void dirtyServicesAreWrittenInBatchesOfTheConfiguredSize() {
+        for (int i = 0; i < 5; i++) {
+            store.recordStatus("service-" + i, 1, FIRST_CHECK);
+        }
+
+        store.flush();
+
+        assertEquals(List.of(2, 2, 1), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void sslResultDoesNotOverwriteTheStatusText() {
+        store.recordMeasurement(measurement("service-1", true, "OK", null, null, null), FIRST_CHECK);
+        store.flush();
+
+        store.recordMeasurement(measurement("service-1", false, "Expired", null, null, -2L), SECOND_CHECK);
+        store.flush();
+
+        assertArrayEquals(new Object[]{0, null, null, null, -2, SECOND_CHECK, "service-1"}, batches.get(1).get(0));
+        assertEquals("OK", store.applyTo(service("service-1")).getLastStatusText());
+    }
+
+    @Test
+    void failedWriteMarksTheColumnsDirtyAgain() {
+        store.recordMeasurement(measurement("service-1", false, "Timeout", null, null, null), FIRST_CHECK);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertThrows(DataAccessResourceFailureException.class, store::flush);
+        // Recorded while Postgres was down; the column was not dirty before
+        store.recordMeasurement(measurement("service-1", false, "Timeout", 900L, null, null), SECOND_CHECK);
+
+        ArgumentCaptor<List<Object[]>> rows = listCaptor();
+        when(jdbcTemplate.batchUpdate(anyString(), rows.capture(), any(int[].class))).thenReturn(new int[]{1});
+        store.flush();
+
+        assertArrayEquals(new Object[]{0, "Timeout", 900, null, null, SECOND_CHECK, "service-1"}, rows.getValue().get(0));
+    }
+
+    @Test
+    void serviceMissingFromPostgresIsEvicted() {
+        store.recordStatus("deleted", 0, FIRST_CHECK);
+        store.recordStatus("service-1", 1, FIRST_CHECK);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class))).thenReturn(new int[]{0, 1});
+
+        store.flush();
+
+        assertEquals(1, store.size());
+        assertNull(store.applyTo(service("deleted")).getStatus());
+        assertEquals(1, store.applyTo(service("service-1")).getStatus());
+    }
+
+    @Test
+    void evictedServiceIsNotWritten() {
+        store.recordStatus("service-1", 1, FIRST_CHECK);
+
+        store.evict("service-1");
+        store.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList(), any(int[].class));
+    }
+
+    @Test
+    void applyToOverlaysOnlyTheKnownColumns() {
+        Service service = service("service-1");
+        service.setLastStatusText("from postgres");
+        service.setLastTtfbMs(50);
+        service.setSslExpiresInDays(90);
+        store.recordMeasurement(measurement("service-1", false, "HTTP 503", 2000L, null, null), SECOND_CHECK);
+
+        assertSame(service, store.applyTo(service));
+
+        assertEquals(0, service.getStatus());
+        assertEquals("HTTP 503", service.getLastStatusText());
+        assertEquals(2000, service.getLastDomLoadTimeMs());
+        assertEquals(50, service.getLastTtfbMs());
+        assertEquals(90, service.getSslExpiresInDays());
+        assertEquals(SECOND_CHECK, service.getLastCheck());
+    }
+
+    @Test
+    void applyToLeavesUnknownServicesAlone() {
+        Service service = service("unknown");
+        service.setStatus(2);
+
+        store.applyTo(service);
+
+        assertEquals(2, service.getStatus());
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void stopFlushesWhatIsLeft() {
+        store.recordStatus("service-1", 1, FIRST_CHECK);
+
+        store.stop();
+
+        assertEquals(1, batches.size());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<List<Object[]>> listCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+
+    private static Service service(String id) {
+        Service service = new Service();
+        service.setId(id);
+        return service;
+    }
+
+    private static RawMeasurementMessage measurement(String serviceId, boolean success, String statusText,
+                                                     Long domLoadTimeMs, Long ttfbMs, Long sslExpiresInDays) {
+        return RawMeasurementMessage.builder()
+                .serviceId(serviceId)
+                .success(success)
+                .statusText(statusText)
+                .domLoadTimeMs(domLoadTimeMs)
+                .ttfbMs(ttfbMs)
+                .sslExpiresInDays(sslExpiresInDays)
+                .build();
+    }
+}
@@ -26,4 +26,54 @@ clickhouse-client -n --database="${CLICKHOUSE_DB}" <<-EOSQL
     ORDER BY (serviceId, checkId, timestamp);
 EOSQL
 
+# Rollups of 'measurements' for range queries. Rows in a rollup hold aggregate states, not values:
+# read them with sum(totalCount), sum(okCount), avgMerge(latencyAvg) and
+# quantilesMerge(0.5, 0.95, 0.99)(latencyQuantiles), grouped by the bucket you need.
+echo "Creating rollup tables 'measurements_1m' and 'measurements_1h' if they do not exist..."
+clickhouse-client -n --database="${CLICKHOUSE_DB}" <<-EOSQL
+    CREATE TABLE IF NOT EXISTS measurements_1m (
+      serviceId String,
+      bucket DateTime,
+      totalCount SimpleAggregateFunction(sum, UInt64),
+      okCount SimpleAggregateFunction(sum, UInt64),
+      latencyAvg AggregateFunction(avg, UInt32),
+      latencyQuantiles AggregateFunction(quantiles(0.5, 0.95, 0.99), UInt32)
+    ) ENGINE = AggregatingMergeTree()
+    PARTITION BY toYYYYMM(bucket)
+    ORDER BY (serviceId, bucket);
+
+    CREATE MATERIALIZED VIEW IF NOT EXISTS measurements_1m_mv TO measurements_1m AS
+    SELECT
+      serviceId,
+      toStartOfMinute(timestamp) AS bucket,
+      count() AS totalCount,
+      countIf(success) AS okCount,
+      avgState(latencyMs) AS latencyAvg,
+      quantilesState(0.5, 0.95, 0.99)(latencyMs) AS latencyQuantiles
+    FROM measurements
+    GROUP BY serviceId, bucket;
+
+    CREATE TABLE IF NOT EXISTS measurements_1h (
+      serviceId String,
+      bucket DateTime,
+      totalCount SimpleAggregateFunction(sum, UInt64),
+      okCount SimpleAggregateFunction(sum, UInt64),
+      latencyAvg AggregateFunction(avg, UInt32),
+      latencyQuantiles AggregateFunction(quantiles(0.5, 0.95, 0.99), UInt32)
+    ) ENGINE = AggregatingMergeTree()
+    PARTITION BY toYYYYMM(bucket)
+    ORDER BY (serviceId, bucket);
+
+    CREATE MATERIALIZED VIEW IF NOT EXISTS measurements_1h_mv TO measurements_1h AS
+    SELECT
+      serviceId,
+      toStartOfHour(timestamp) AS bucket,
+      count() AS totalCount,
+      countIf(success) AS okCount,
+      avgState(latencyMs) AS latencyAvg,
+      quantilesState(0.5, 0.95, 0.99)(latencyMs) AS latencyQuantiles
+    FROM measurements
+    GROUP BY serviceId, bucket;
+EOSQL
+
 echo "Initialization script finished."
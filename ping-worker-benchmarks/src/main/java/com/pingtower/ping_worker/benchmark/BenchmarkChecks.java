@@ -0,0 +1,107 @@
+package com.pingtower.ping_worker.benchmark;
+
+import com.pingtower.ping_worker.check.CheckResult;
+import com.pingtower.ping_worker.domain.Check;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Check configs and results shared by the benchmarks, shaped like the examples in
+ * docs/api-endpoints.md so the measured paths see realistic input.
+ */
+public final class BenchmarkChecks {
+
+    public static final String HTTP_CONFIG =
+            "{\"url\":\"https://my-api.com/health\",\"method\":\"GET\",\"expected_code\":200,\"timeout\":10000}";
+    public static final String HTTP_ASSERTIONS_CONFIG =
+            "{\"url\":\"https://my-api.com/health\",\"max_body_bytes\":1048576,\"body_assertions\":["
+                    + "{\"type\":\"json_pointer\",\"pointer\":\"/status\",\"equals\":\"UP\"},"
+                    + "{\"type\":\"not_contains\",\"value\":\"Exception\"}]}";
+    public static final String BROWSER_CONFIG =
+            "{\"url\":\"https://my-api.com\",\"check_mode\":\"browser\",\"timeout\":30000,"
+                    + "\"resource_blocking\":true,\"blocked_resource_types\":[\"Image\",\"Font\",\"Media\"]}";
+    public static final String SSL_CONFIG = "{\"hostname\":\"my-api.com\",\"port\":443,\"days_before_expiry\":30}";
+    public static final String TCP_CONFIG = "{\"host\":\"db.my-api.com\",\"port\":5432,\"timeout\":3000}";
+    public static final String DNS_CONFIG =
+            "{\"host\":\"my-api.com\",\"record_type\":\"A\",\"nameserver\":\"1.1.1.1\",\"expected_answer\":\"203.0.113.10\"}";
+
+    private static final String[] SCHEDULES = {"*/30 * * * * *", "0 * * * * *", "0 */5 * * * *", "0 0 * * * *"};
+
+    private BenchmarkChecks() {
+    }
+
+    public static Check check(String type, String schedule, String config) {
+        Check check = new Check();
+        check.setId(UUID.randomUUID());
+        check.setServiceId("service-" + check.getId().toString().substring(0, 8));
+        check.setType(type);
+        check.setEnabled(true);
+        check.setSchedule(schedule);
+        check.setConfig(config);
+        check.setLastStatus(1);
+        check.setLastLatencyMs(120);
+        return check;
+    }
+
+    /** The config of a check of the given kind: http, http-assertions, browser, ssl, tcp or dns. */
+    public static Check check(String kind) {
+        return switch (kind) {
+            case "http" -> check("http", "0 * * * * *", HTTP_CONFIG);
+            case "http-assertions" -> check("http", "0 * * * * *", HTTP_ASSERTIONS_CONFIG);
+            case "browser" -> check("http", "0 */5 * * * *", BROWSER_CONFIG);
+            case "ssl" -> check("ssl", "0 0 * * * *", SSL_CONFIG);
+            case "tcp" -> check("tcp", "*/30 * * * * *", TCP_CONFIG);
+            case "dns" -> check("dns", "0 * * * * *", DNS_CONFIG);
+            default -> throw new IllegalArgumentException("Unknown check kind: " + kind);
+        };
+    }
+
+    /**
+     * {@code count} HTTP checks spread over a few common schedules, each last executed within the
+     * past hour so the scheduler takes its regular path rather than the run-immediately one.
+     */
+    public static List<Check> checks(int count, long nowMillis) {
+        Random random = new Random(42);
+        List<Check> checks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Check check = check("http", SCHEDULES[i % SCHEDULES.length], HTTP_CONFIG);
+            check.setLastExecution(new Timestamp(nowMillis - random.nextInt(3_600_000)));
+            checks.add(check);
+        }
+        return checks;
+    }
+
+    public static CheckResult successResult() {
+        return CheckResult.builder()
+                .success(true)
+                .responseCode(200)
+                .statusText("200 OK")
+                .latencyMs(182)
+                .ttfbMs(97L)
+                .dnsMs(4L)
+                .connectMs(21L)
+                .tlsMs(38L)
+                .bodyMs(12L)
+                .bodyBytes(5120L)
+                .throughputBytesPerSec(426_666L)
+                .connectionReused(false)
+                .build();
+    }
+
+    public static CheckResult failureResult() {
+        return CheckResult.builder()
+                .success(false)
+                .responseCode(503)
+                .statusText("503 SERVICE_UNAVAILABLE")
+                .latencyMs(1043)
+                .ttfbMs(1031L)
+                .connectionReused(true)
+                .errorMessage("Expected status 200, got 503")
+                .details("Body: upstream connect error or disconnect/reset before headers")
+                .build();
+    }
+}
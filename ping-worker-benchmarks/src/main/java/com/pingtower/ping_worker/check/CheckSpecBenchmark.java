@@ -0,0 +1,56 @@
+package com.pingtower.ping_worker.check;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.benchmark.BenchmarkChecks;
+import com.pingtower.ping_worker.domain.Check;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a check's JSON config into the {@link CheckSpec} the executors run from:
+ * {@code compile} is what every run paid before specs were cached, {@code cachedLookup} is what a
+ * run pays now while the check is unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckSpecBenchmark {
+
+    @Param({"http", "http-assertions", "browser", "ssl", "tcp", "dns"})
+    public String kind;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CheckSpecCache cache;
+    private Check check;
+
+    @Setup
+    public void setUp() {
+        check = BenchmarkChecks.check(kind);
+        cache = new CheckSpecCache(objectMapper);
+        cache.get(check);
+    }
+
+    @Benchmark
+    public CheckSpec compile() {
+        return CheckSpec.compile(check, objectMapper);
+    }
+
+    @Benchmark
+    public CheckSpec cachedLookup() {
+        return cache.get(check);
+    }
+}
@@ -0,0 +1,102 @@
+package com.pingtower.ping_worker.kafka;
+
+import com.pingtower.ping_worker.benchmark.BenchmarkChecks;
+import com.pingtower.ping_worker.check.CheckResult;
+import com.pingtower.ping_worker.domain.Check;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the messages ping-worker publishes, with {@link JsonSerializer} as the producer used
+ * to and with {@link WireFormatSerializer} as it does now. Both are configured like the producer in
+ * application.yml, including JSON type headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String TOPIC = "raw-measurements";
+
+    @Param({"measurement", "status-update"})
+    public String payload;
+
+    private JsonSerializer<Object> jsonSerializer;
+    private WireFormatSerializer wireFormatSerializer;
+    private Object message;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> configs = Map.of(JsonSerializer.ADD_TYPE_INFO_HEADERS, true);
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(configs, false);
+        wireFormatSerializer = new WireFormatSerializer();
+        wireFormatSerializer.configure(configs, false);
+
+        Check check = BenchmarkChecks.check("http");
+        CheckResult result = BenchmarkChecks.successResult();
+        message = switch (payload) {
+            case "measurement" -> RawMeasurementMessage.builder()
+                    .checkId(check.getId())
+                    .serviceId(check.getServiceId())
+                    .timestamp(Instant.now())
+                    .latencyMs(result.getLatencyMs())
+                    .ttfbMs(result.getTtfbMs())
+                    .dnsMs(result.getDnsMs())
+                    .connectMs(result.getConnectMs())
+                    .tlsMs(result.getTlsMs())
+                    .bodyMs(result.getBodyMs())
+                    .bodyBytes(result.getBodyBytes())
+                    .throughputBytesPerSec(result.getThroughputBytesPerSec())
+                    .connectionReused(result.getConnectionReused())
+                    .responseCode(result.getResponseCode())
+                    .statusText(result.getStatusText())
+                    .success(result.isSuccess())
+                    .build();
+            case "status-update" -> ServiceStatusUpdateMessage.builder()
+                    .checkId(check.getId())
+                    .serviceId(check.getServiceId())
+                    .newStatus("CRIT")
+                    .details("Expected status 200, got 503")
+                    .timestamp(Instant.now())
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown payload: " + payload);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        jsonSerializer.close();
+        wireFormatSerializer.close();
+    }
+
+    @Benchmark
+    public byte[] json() {
+        // The producer hands every record fresh headers, which the JSON serializer adds type ids to
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+
+    @Benchmark
+    public byte[] wireFormat() {
+        return wireFormatSerializer.serialize(TOPIC, new RecordHeaders(), message);
+    }
+}
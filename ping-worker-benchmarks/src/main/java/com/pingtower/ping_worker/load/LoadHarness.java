@@ -0,0 +1,310 @@
+package com.pingtower.ping_worker.load;
+
+import com.pingtower.ping_worker.PingWorkerApplication;
+import com.pingtower.ping_worker.benchmark.BenchmarkChecks;
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.repository.CheckRepository;
+import com.pingtower.ping_worker.repository.WorkerLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput harness: runs a real ping-worker against a farm of local stub servers and
+ * reports how many checks a second it completes, how late the scheduler fires them and how much
+ * CPU each check costs.
+ * <p>
+ * The worker is the unmodified Spring Boot application with its external dependencies replaced
+ * in-process: Kafka by an embedded broker, Postgres by H2 for the state write-behind, and the check
+ * table by an in-memory {@link CheckRepository}, so {@code CheckReaderJob} loads the synthetic checks
+ * on its usual Quartz trigger and everything from there on (scheduler, lanes, executors, Kafka
+ * publishing) is production code. A check counts as completed when its measurement has been read
+ * back from the broker.
+ * <p>
+ * Run it from the shaded jar, see the module README:
+ * {@code java -cp target/benchmarks.jar com.pingtower.ping_worker.load.LoadHarness --checks=5000}
+ */
+public final class LoadHarness {
+
+    private static final String H2_URL = "jdbc:h2:mem:pingtower;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String BUCKETS = "1ms,2ms,3ms,5ms,7ms,10ms,15ms,20ms,30ms,50ms,70ms,100ms,150ms,200ms,300ms,500ms,"
+            + "700ms,1s,1500ms,2s,3s,5s,7s,10s,15s,20s,30s,60s";
+
+    private final LoadOptions options;
+    private final WorkerCpu workerCpu = new WorkerCpu();
+    private MeterRegistry meterRegistry;
+
+    private LoadHarness(LoadOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        new LoadHarness(options).run();
+        // Kafka and Quartz leave non-daemon threads behind
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        Path workDir = Files.createTempDirectory("ping-worker-load");
+        try (StubTargetFarm farm = new StubTargetFarm(options)) {
+            farm.start();
+            if (options.tls) {
+                trust(farm, workDir);
+            }
+
+            EmbeddedKafkaBroker broker = new EmbeddedKafkaBroker(1, false, 1, "raw-measurements", "service-status-updates");
+            broker.afterPropertiesSet();
+            List<Check> checks = checks(farm);
+            createCheckTable(checks);
+
+            try (MeasurementConsumer consumer = new MeasurementConsumer(broker.getBrokersAsString())) {
+                consumer.start();
+                workerCpu.markHarnessThreads();
+                System.out.printf(Locale.ROOT, "Starting ping-worker: %d checks every %d s (%.1f checks/s), %d %s stub servers%n",
+                        options.checks, options.intervalSeconds, options.targetChecksPerSecond(), options.servers,
+                        options.tls ? "HTTPS" : "HTTP");
+
+                try (ConfigurableApplicationContext worker = startWorker(checks, broker.getBrokersAsString(), workDir)) {
+                    meterRegistry = worker.getBean(MeterRegistry.class);
+                    measure(consumer);
+                    // Checks still in flight fail with connection errors while the worker shuts down
+                    LoggingSystem.get(LoadHarness.class.getClassLoader()).setLogLevel("reactor.netty", LogLevel.ERROR);
+                }
+            } finally {
+                broker.destroy();
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    private void measure(MeasurementConsumer consumer) throws InterruptedException {
+        long startNanos = System.nanoTime();
+        long warmupEnd = startNanos + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        Sample previous = sample(consumer);
+        Sample windowStart = null;
+        while (System.nanoTime() < end) {
+            long nextReport = Math.min(previous.nanos + TimeUnit.SECONDS.toNanos(options.reportSeconds),
+                    windowStart == null ? warmupEnd : end);
+            TimeUnit.NANOSECONDS.sleep(Math.max(nextReport - System.nanoTime(), 0));
+            Sample current = sample(consumer);
+            String phase = windowStart == null ? "warm-up" : "measure";
+            System.out.println(String.format(Locale.ROOT, "[%4ds %s] ", TimeUnit.NANOSECONDS.toSeconds(current.nanos - startNanos), phase)
+                    + describe(previous, current));
+            if (windowStart == null && current.nanos >= warmupEnd) {
+                windowStart = current;
+            }
+            previous = current;
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Result over %d s after a %d s warm-up (target %.1f checks/s):%n",
+                options.durationSeconds, options.warmupSeconds, options.targetChecksPerSecond());
+        System.out.println("  " + describe(windowStart != null ? windowStart : sample(consumer), previous));
+    }
+
+    private String describe(Sample from, Sample to) {
+        double seconds = (to.nanos - from.nanos) / 1e9;
+        long completed = to.received - from.received;
+        long succeeded = to.succeeded - from.succeeded;
+        return String.format(Locale.ROOT,
+                "%.1f checks/s, %.1f%% ok | schedule lag %s | http queue wait %s | cpu %.3f ms/check (%.2f cores) | in flight %d | shed %d, coalesced %d, rejected %d",
+                completed / seconds,
+                completed > 0 ? 100.0 * succeeded / completed : 0.0,
+                percentiles(from.lag, to.lag),
+                percentiles(from.httpQueueWait, to.httpQueueWait),
+                completed > 0 ? (to.cpuNanos - from.cpuNanos) / 1e6 / completed : 0.0,
+                (to.cpuNanos - from.cpuNanos) / 1e9 / seconds,
+                to.inFlight,
+                to.shed - from.shed, to.coalesced - from.coalesced, to.rejected - from.rejected);
+    }
+
+    /**
+     * Percentiles of the values recorded between two snapshots of a timer. The harness gives the
+     * worker's timers fixed buckets that never expire, so bucket counts only grow and the difference
+     * of two snapshots is the histogram of the interval. Values are bucket upper bounds.
+     */
+    private static String percentiles(HistogramSnapshot from, HistogramSnapshot to) {
+        if (from == null || to == null || to.count() == from.count() || to.histogramCounts().length == 0) {
+            return "n/a";
+        }
+        long total = to.count() - from.count();
+        CountAtBucket[] before = from.histogramCounts();
+        CountAtBucket[] after = to.histogramCounts();
+        StringBuilder out = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            String value = ">" + formatMillis(after[after.length - 1].bucket(TimeUnit.MILLISECONDS));
+            for (int i = 0; i < after.length; i++) {
+                if (after[i].count() - before[i].count() >= percentile * total) {
+                    value = formatMillis(after[i].bucket(TimeUnit.MILLISECONDS));
+                    break;
+                }
+            }
+            if (!out.isEmpty()) {
+                out.append(' ');
+            }
+            out.append('p').append(new DecimalFormat("0.#").format(percentile * 100)).append(' ').append(value);
+        }
+        return out.toString();
+    }
+
+    private static String formatMillis(double millis) {
+        return millis < 10 ? String.format(Locale.ROOT, "%.1f ms", millis) : String.format(Locale.ROOT, "%.0f ms", millis);
+    }
+
+    private Sample sample(MeasurementConsumer consumer) {
+        Timer lag = meterRegistry.find("pingtower.scheduler.lag").timer();
+        Timer httpQueueWait = meterRegistry.find("pingtower.lane.queue.wait").tag("lane", "http").timer();
+        Gauge inFlight = meterRegistry.find("pingtower.dispatch.in.flight").gauge();
+        return new Sample(System.nanoTime(), consumer.received(), consumer.succeeded(), workerCpu.nanos(),
+                lag != null ? lag.takeSnapshot() : null,
+                httpQueueWait != null ? httpQueueWait.takeSnapshot() : null,
+                inFlight != null ? (long) inFlight.value() : 0,
+                count("pingtower.dispatch.shed"), count("pingtower.dispatch.coalesced"), count("pingtower.lane.rejected"));
+    }
+
+    private long count(String name) {
+        return (long) meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private record Sample(long nanos, long received, long succeeded, long cpuNanos,
+                          HistogramSnapshot lag, HistogramSnapshot httpQueueWait,
+                          long inFlight, long shed, long coalesced, long rejected) {
+    }
+
+    private List<Check> checks(StubTargetFarm farm) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Check> checks = new ArrayList<>(options.checks);
+        for (int i = 0; i < options.checks; i++) {
+            Check check = BenchmarkChecks.check("http", options.cron(),
+                    "{\"url\":\"" + farm.url(i) + "\",\"method\":\"GET\",\"expected_code\":200,\"timeout\":10000}");
+            // Persisted as just run, so checks start on their schedule rather than all at once
+            check.setLastExecution(now);
+            checks.add(check);
+        }
+        return checks;
+    }
+
+    // The table CheckStateBuffer writes last_execution, last_status and last_latency_ms back to
+    private static void createCheckTable(List<Check> checks) throws Exception {
+        try (Connection connection = DriverManager.getConnection(H2_URL, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE checks (id UUID PRIMARY KEY, last_execution TIMESTAMP, "
+                        + "last_status INTEGER, last_latency_ms INTEGER)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO checks (id, last_execution) VALUES (?, ?)")) {
+                for (Check check : checks) {
+                    insert.setObject(1, check.getId());
+                    insert.setTimestamp(2, check.getLastExecution());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext startWorker(List<Check> checks, String bootstrapServers, Path workDir) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.main.web-application-type", "none");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration,"
+                        + "org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration");
+        properties.put("spring.datasource.url", H2_URL);
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.kafka.bootstrap-servers", bootstrapServers);
+        // Status changes are logged per check as warnings, which floods the report under --error-rate
+        properties.put("logging.level.com.pingtower", "ERROR");
+        properties.put("ping-worker.shard.enabled", "false");
+        properties.put("ping-worker.browser.min-processes", "0");
+        properties.put("ping-worker.spool.dir", workDir.resolve("spool").toString());
+        properties.put("ping-worker.scheduler.spread.enabled", String.valueOf(options.spread));
+        // Fixed, never expiring buckets, so the report can take the difference of two snapshots
+        properties.put("management.metrics.distribution.slo.pingtower.scheduler.lag", BUCKETS);
+        properties.put("management.metrics.distribution.slo.pingtower.lane.queue.wait", BUCKETS);
+        properties.put("management.metrics.distribution.expiry.pingtower", "1825d");
+        properties.put("management.metrics.distribution.buffer-length.pingtower", "1");
+        properties.putAll(options.workerProperties);
+
+        // As command line arguments, so they take precedence over the worker's application.yml
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(PingWorkerApplication.class)
+                .initializers(context -> {
+                    GenericApplicationContext generic = (GenericApplicationContext) context;
+                    generic.registerBean(CheckRepository.class, () -> repository(CheckRepository.class, checks));
+                    generic.registerBean(WorkerLeaseRepository.class, () -> repository(WorkerLeaseRepository.class, List.of()));
+                })
+                .run(args);
+    }
+
+    /** Repository that only answers {@code findAllByEnabledIsTrue}, which is all the worker reads checks with. */
+    private static <T> T repository(Class<T> type, List<?> enabled) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "findAllByEnabledIsTrue" -> new ArrayList<>(enabled);
+                    case "toString" -> "In-memory " + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                }));
+    }
+
+    // Makes the worker's HTTP client trust the stub farm's self-signed certificate
+    private static void trust(StubTargetFarm farm, Path workDir) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("stub-farm", farm.certificate());
+        Path file = workDir.resolve("stub-farm-truststore.p12");
+        char[] password = "changeit".toCharArray();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            trustStore.store(out, password);
+        }
+        System.setProperty("javax.net.ssl.trustStore", file.toString());
+        System.setProperty("javax.net.ssl.trustStorePassword", new String(password));
+        System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+    }
+}
@@ -0,0 +1,100 @@
+package com.pingtower.ping_worker.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the {@link LoadHarness}, given as {@code --name=value}. Options whose
+ * name contains a dot are passed through to the worker as Spring properties, e.g.
+ * {@code --ping-worker.lanes.http.concurrency=2000}.
+ */
+final class LoadOptions {
+
+    static final String USAGE = """
+            Options (defaults in brackets):
+              --checks=N                 synthetic HTTP checks [1000]
+              --interval-seconds=N       check interval, a divisor or multiple of 60 [10]
+              --duration-seconds=N       measured run after the warm-up [120]
+              --warmup-seconds=N         warm-up incl. JIT compilation, not in the results [60]
+              --report-seconds=N         progress report interval [10]
+              --spread=true|false        ping-worker.scheduler.spread.enabled [true]
+              --servers=N                stub servers; each port is a separate host to the worker [50]
+              --stub-threads=N           stub farm event loop threads [2]
+              --latency-ms=N             stub response delay [50]
+              --jitter-ms=N              extra random delay, 0..N [0]
+              --error-rate=F             share of responses that are 500s, 0..1 [0]
+              --tls=true|false           serve HTTPS with a self-signed certificate [false]
+              --body-bytes=N             response body size [1024]
+              --slow-body-chunk-bytes=N  trickle the body in chunks of this size, 0 = off [0]
+              --slow-body-delay-ms=N     delay before each body chunk [100]
+              --some.spring.property=V   passed to the worker
+            """;
+
+    int checks = 1000;
+    int intervalSeconds = 10;
+    int durationSeconds = 120;
+    int warmupSeconds = 60;
+    int reportSeconds = 10;
+    boolean spread = true;
+    int servers = 50;
+    int stubThreads = 2;
+    long latencyMs = 50;
+    long jitterMs = 0;
+    double errorRate = 0;
+    boolean tls = false;
+    int bodyBytes = 1024;
+    int slowBodyChunkBytes = 0;
+    long slowBodyDelayMs = 100;
+    final Map<String, Object> workerProperties = new LinkedHashMap<>();
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (name.contains(".")) {
+                options.workerProperties.put(name, value);
+                continue;
+            }
+            switch (name) {
+                case "checks" -> options.checks = Integer.parseInt(value);
+                case "interval-seconds" -> options.intervalSeconds = Integer.parseInt(value);
+                case "duration-seconds" -> options.durationSeconds = Integer.parseInt(value);
+                case "warmup-seconds" -> options.warmupSeconds = Integer.parseInt(value);
+                case "report-seconds" -> options.reportSeconds = Integer.parseInt(value);
+                case "spread" -> options.spread = Boolean.parseBoolean(value);
+                case "servers" -> options.servers = Integer.parseInt(value);
+                case "stub-threads" -> options.stubThreads = Integer.parseInt(value);
+                case "latency-ms" -> options.latencyMs = Long.parseLong(value);
+                case "jitter-ms" -> options.jitterMs = Long.parseLong(value);
+                case "error-rate" -> options.errorRate = Double.parseDouble(value);
+                case "tls" -> options.tls = Boolean.parseBoolean(value);
+                case "body-bytes" -> options.bodyBytes = Integer.parseInt(value);
+                case "slow-body-chunk-bytes" -> options.slowBodyChunkBytes = Integer.parseInt(value);
+                case "slow-body-delay-ms" -> options.slowBodyDelayMs = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        options.cron(); // Validates the interval
+        return options;
+    }
+
+    /** Cron expression firing every {@code intervalSeconds}. */
+    String cron() {
+        if (intervalSeconds > 0 && intervalSeconds < 60 && 60 % intervalSeconds == 0) {
+            return "*/" + intervalSeconds + " * * * * *";
+        }
+        int minutes = intervalSeconds / 60;
+        if (intervalSeconds % 60 == 0 && minutes > 0 && minutes < 60 && 60 % minutes == 0) {
+            return "0 */" + minutes + " * * * *";
+        }
+        throw new IllegalArgumentException("--interval-seconds must divide 60 or be a whole number of minutes dividing 60");
+    }
+
+    double targetChecksPerSecond() {
+        return (double) checks / intervalSeconds;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pingtower.ping_worker.load;
+
+import com.pingtower.ping_worker.kafka.RawMeasurementMessage;
+import com.pingtower.ping_worker.kafka.WireFormat;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the measurements the worker publishes, which is what "a check completed" means for the
+ * harness: the run went all the way through the executor and into Kafka.
+ */
+final class MeasurementConsumer implements AutoCloseable {
+
+    static final String THREAD_NAME = "load-harness-consumer";
+
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    MeasurementConsumer(String bootstrapServers) {
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, "load-harness",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000),
+                new StringDeserializer(), new ByteArrayDeserializer());
+        this.thread = new Thread(this::pollLoop, THREAD_NAME);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        consumer.subscribe(List.of("raw-measurements"));
+        thread.start();
+    }
+
+    long received() {
+        return received.sum();
+    }
+
+    long succeeded() {
+        return succeeded.sum();
+    }
+
+    private void pollLoop() {
+        try {
+            while (running) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(200))) {
+                    received.increment();
+                    if (WireFormat.isEncoded(record.value())
+                            && WireFormat.decode(record.value()) instanceof RawMeasurementMessage message
+                            && message.isSuccess()) {
+                        succeeded.increment();
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // Closing
+        } finally {
+            consumer.close();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        thread.join(5000);
+    }
+}
@@ -0,0 +1,120 @@
+package com.pingtower.ping_worker.load;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process HTTP(S) servers the synthetic checks are pointed at. Every server answers every
+ * request the same way: after {@code latency-ms} plus up to {@code jitter-ms}, with a 500 for
+ * {@code error-rate} of the requests and 200 otherwise, and a body of {@code body-bytes} that is
+ * optionally trickled in chunks. All servers share one event loop group and one timer whose threads
+ * are named {@value #THREAD_PREFIX}-*, so their CPU time can be told apart from the worker's.
+ */
+final class StubTargetFarm implements AutoCloseable {
+
+    static final String THREAD_PREFIX = "stub-farm";
+
+    private final LoadOptions options;
+    private final LoopResources loops;
+    private final Scheduler timer;
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final byte[] body;
+    private SelfSignedCertificate certificate;
+
+    StubTargetFarm(LoadOptions options) {
+        this.options = options;
+        this.loops = LoopResources.create(THREAD_PREFIX, 1, options.stubThreads, true);
+        // Not the shared parallel scheduler, which the worker uses too and whose CPU time would count as the worker's
+        this.timer = Schedulers.newParallel(THREAD_PREFIX + "-timer", 1, true);
+        this.body = body(options.bodyBytes);
+    }
+
+    void start() throws Exception {
+        HttpServer template = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(loops)
+                .handle((request, response) -> respond(response));
+        if (options.tls) {
+            certificate = new SelfSignedCertificate("localhost");
+            template = template.secure(spec -> spec.sslContext(
+                    Http11SslContextSpec.forServer(certificate.certificate(), certificate.privateKey())));
+        }
+        for (int i = 0; i < options.servers; i++) {
+            servers.add(template.bindNow());
+        }
+    }
+
+    /** The self-signed certificate the servers present, or null without TLS. */
+    X509Certificate certificate() {
+        return certificate != null ? certificate.cert() : null;
+    }
+
+    /** URL of the {@code index}-th target; targets are spread round robin over the servers. */
+    String url(int index) {
+        DisposableServer server = servers.get(index % servers.size());
+        return (options.tls ? "https" : "http") + "://localhost:" + server.port() + "/targets/" + index;
+    }
+
+    private Mono<Void> respond(HttpServerResponse response) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = options.latencyMs + (options.jitterMs > 0 ? random.nextLong(options.jitterMs + 1) : 0);
+        HttpResponseStatus status = random.nextDouble() < options.errorRate
+                ? HttpResponseStatus.INTERNAL_SERVER_ERROR : HttpResponseStatus.OK;
+        return Mono.delay(Duration.ofMillis(delay), timer)
+                .then(Mono.defer(() -> response.status(status)
+                        .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .header(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(body.length))
+                        .sendByteArray(bodyChunks())
+                        .then()));
+    }
+
+    private Flux<byte[]> bodyChunks() {
+        int chunk = options.slowBodyChunkBytes;
+        if (chunk <= 0 || chunk >= body.length) {
+            return Flux.just(body);
+        }
+        return Flux.range(0, (body.length + chunk - 1) / chunk)
+                .delayElements(Duration.ofMillis(options.slowBodyDelayMs), timer)
+                .map(i -> Arrays.copyOfRange(body, i * chunk, Math.min((i + 1) * chunk, body.length)));
+    }
+
+    // A JSON document padded to the requested size, so body assertions have something to look at
+    private static byte[] body(int size) {
+        byte[] head = "{\"status\":\"UP\",\"padding\":\"".getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = "\"}".getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[Math.max(size, head.length + tail.length)];
+        Arrays.fill(body, (byte) 'x');
+        System.arraycopy(head, 0, body, 0, head.length);
+        System.arraycopy(tail, 0, body, body.length - tail.length, tail.length);
+        return body;
+    }
+
+    @Override
+    public void close() {
+        servers.forEach(DisposableServer::disposeNow);
+        loops.dispose();
+        timer.dispose();
+        if (certificate != null) {
+            certificate.delete();
+        }
+    }
+}
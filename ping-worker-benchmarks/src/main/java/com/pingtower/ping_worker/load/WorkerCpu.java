@@ -0,0 +1,40 @@
+package com.pingtower.ping_worker.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * CPU time spent by the worker, i.e. by the whole process minus the harness's own threads: the stub
+ * farm, the embedded broker and the measurement consumer. Harness threads are the ones alive before
+ * the worker starts plus the stub farm's lazily started event loops. JIT and GC threads count
+ * towards the worker, as they would in production.
+ */
+final class WorkerCpu {
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private Set<Long> harnessThreadIds = Set.of();
+
+    /** Marks every thread alive now as a harness thread; call right before starting the worker. */
+    void markHarnessThreads() {
+        harnessThreadIds = Arrays.stream(threads.getAllThreadIds()).boxed().collect(Collectors.toSet());
+    }
+
+    /** Cumulative worker CPU time in nanoseconds. */
+    long nanos() {
+        long harness = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && (harnessThreadIds.contains(info.getThreadId())
+                    || info.getThreadName().startsWith(StubTargetFarm.THREAD_PREFIX))) {
+                long cpu = threads.getThreadCpuTime(info.getThreadId());
+                harness += Math.max(cpu, 0);
+            }
+        }
+        return os.getProcessCpuTime() - harness;
+    }
+}
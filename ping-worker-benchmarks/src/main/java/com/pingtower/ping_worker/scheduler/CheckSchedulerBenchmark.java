@@ -0,0 +1,82 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.benchmark.BenchmarkChecks;
+import com.pingtower.ping_worker.check.CheckSpecCache;
+import com.pingtower.ping_worker.domain.Check;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduling decisions over {@value #CHECKS} checks, reported per check.
+ * <p>
+ * The worker no longer asks every loaded check whether it should run on each tick; the
+ * {@link CheckScheduler} computes each check's next fire time once and keeps it in a delay queue.
+ * {@code syncNew} measures building that schedule from scratch (spread offset, next cron instant
+ * and queue insert per check), {@code syncUnchanged} the reconciliation every check reload pays when
+ * nothing changed. Specs are compiled in setup so only scheduling is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckSchedulerBenchmark {
+
+    static final int CHECKS = 100_000;
+
+    @Param({"false", "true"})
+    public boolean spread;
+
+    private List<Check> checks;
+    private CheckSpecCache specCache;
+    private ScheduleSpreader spreader;
+    private CheckScheduler warmScheduler;
+    private CheckScheduler freshScheduler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        checks = BenchmarkChecks.checks(CHECKS, System.currentTimeMillis());
+        specCache = new CheckSpecCache(new ObjectMapper());
+        checks.forEach(specCache::get);
+        spreader = new ScheduleSpreader(spread, 0);
+        // sync never dispatches and the dispatch thread is not started, so no dispatcher is needed
+        warmScheduler = new CheckScheduler(null, specCache, spreader, new SimpleMeterRegistry());
+        warmScheduler.sync(checks);
+    }
+
+    @Setup(Level.Invocation)
+    public void newScheduler() {
+        freshScheduler = new CheckScheduler(null, specCache, spreader, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int syncNew() {
+        freshScheduler.sync(checks);
+        return freshScheduler.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHECKS)
+    public int syncUnchanged() {
+        warmScheduler.sync(checks);
+        return warmScheduler.size();
+    }
+}
@@ -0,0 +1,64 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.benchmark.BenchmarkChecks;
+import com.pingtower.ping_worker.check.CheckResult;
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.kafka.RawMeasurementMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-run objects built after a check finishes: the {@link CheckResult} and the
+ * {@link RawMeasurementMessage} {@link CheckProcessor} publishes for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeasurementBenchmark {
+
+    @Param({"success", "failure"})
+    public String outcome;
+
+    private Check check;
+    private CheckResult result;
+
+    @Setup
+    public void setUp() {
+        check = BenchmarkChecks.check("http");
+        result = result();
+    }
+
+    @Benchmark
+    public CheckResult buildResult() {
+        return result();
+    }
+
+    @Benchmark
+    public RawMeasurementMessage buildMessage() {
+        return CheckProcessor.rawMeasurement(check, result, Instant.now());
+    }
+
+    @Benchmark
+    public RawMeasurementMessage buildResultAndMessage() {
+        return CheckProcessor.rawMeasurement(check, result(), Instant.now());
+    }
+
+    private CheckResult result() {
+        return "success".equals(outcome) ? BenchmarkChecks.successResult() : BenchmarkChecks.failureResult();
+    }
+}
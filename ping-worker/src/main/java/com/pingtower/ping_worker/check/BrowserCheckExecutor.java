@@ -1,92 +1,82 @@
 package com.pingtower.ping_worker.check;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import io.github.bonigarcia.wdm.WebDriverManager;
+import com.pingtower.ping_worker.check.browser.ResourceBlocker;
+import com.pingtower.ping_worker.check.pool.BrowserContextPool;
+import com.pingtower.ping_worker.check.pool.BrowserTab;
+import com.pingtower.ping_worker.dns.CachingDnsResolver;
 import lombok.extern.slf4j.Slf4j;
-import org.openqa.selenium.By;
-import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.devtools.v124.page.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import jakarta.annotation.PostConstruct;
+import java.net.URI;
 import java.time.Duration;
-
-import org.apache.commons.pool2.impl.GenericObjectPool;
+import java.util.Optional;
 
 @Component
 @Slf4j
 public class BrowserCheckExecutor {
 
-    private final ObjectMapper objectMapper;
-    private final GenericObjectPool<WebDriver> webDriverPool;
-
-    public BrowserCheckExecutor(ObjectMapper objectMapper, GenericObjectPool<WebDriver> webDriverPool) {
-        this.objectMapper = objectMapper;
-        this.webDriverPool = webDriverPool;
+    // -1 until the DOM is ready, then the DOMContentLoaded time relative to navigation start
+    private static final String DOM_LOAD_TIME_SCRIPT =
+            "document.readyState !== 'loading' && document.body && performance.timing.domContentLoadedEventEnd > 0"
+                    + " ? performance.timing.domContentLoadedEventEnd - performance.timing.navigationStart : -1";
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final BrowserContextPool browserContextPool;
+    private final CachingDnsResolver dnsResolver;
+    private final ResourceBlocker resourceBlocker;
+    private final Duration acquireTimeout;
+    private final Duration dnsTimeout;
+
+    public BrowserCheckExecutor(BrowserContextPool browserContextPool, CachingDnsResolver dnsResolver,
+                                ResourceBlocker resourceBlocker,
+                                @Value("${ping-worker.browser.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+                                @Value("${ping-worker.dns.query-timeout-ms:5000}") long dnsTimeoutMs) {
+        this.browserContextPool = browserContextPool;
+        this.dnsResolver = dnsResolver;
+        this.resourceBlocker = resourceBlocker;
+        this.acquireTimeout = Duration.ofMillis(acquireTimeoutMs);
+        this.dnsTimeout = Duration.ofMillis(dnsTimeoutMs);
     }
 
-    @PostConstruct
-    public void setup() {
-        log.info("Setting up Selenium WebDriverManager for Chrome...");
-        try {
-            WebDriverManager.chromedriver().setup();
-            // Pre-warm the pool
-            webDriverPool.addObject();
-            log.info("WebDriverManager for Chrome setup and pool pre-warmed.");
-        } catch (Exception e) {
-            log.error("Failed to setup WebDriverManager for Chrome or pre-warm pool", e);
-        }
-    }
-
-    public CheckResult execute(String configJson) {
+    public CheckResult execute(CheckSpec spec) {
         long startTime = System.currentTimeMillis();
-        WebDriver driver = null;
+        BrowserTab tab = null;
         try {
-            driver = webDriverPool.borrowObject(); // Get a browser from the pool
-
-            JsonNode config = objectMapper.readTree(configJson);
-            String url = config.get("url").asText();
-            int timeout = config.has("timeout") ? config.get("timeout").asInt(30000) : 30000; // Default 30s for browser
-
-            ChromeOptions options = new ChromeOptions();
-            options.addArguments("--headless");
-            options.addArguments("--disable-gpu");
-            options.addArguments("--no-sandbox");
-            options.addArguments("--disable-dev-shm-usage");
-            options.addArguments("--remote-allow-origins=*"); // Crucial for WebSocket connection
-            options.addArguments("--disable-blink-features=AutomationControlled"); // Make it harder to detect automation
-
-            // Performance optimizations to prevent renderer timeouts on heavy sites
-            options.addArguments("--disable-extensions");
-            options.addArguments("--disable-images");
-            options.addArguments("--blink-settings=imagesEnabled=false");
-
+            if (spec.getUrl() == null) {
+                throw new IllegalArgumentException("Missing 'url' in browser check config");
+            }
+            String url = spec.getUrl();
 
-            options.addArguments("--window-size=1920,1080");
-            options.addArguments("user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/125.0.0.0 Safari/537.36");
+            // Chrome resolves names itself, but an unresolvable host should fail fast from the
+            // shared cache instead of occupying a browser until the page load times out
+            String host = URI.create(url).getHost();
+            if (host != null) {
+                dnsResolver.resolveAllBlocking(host, dnsTimeout);
+            }
 
-            driver.manage().timeouts().pageLoadTimeout(Duration.ofMillis(timeout));
+            tab = browserContextPool.acquire(acquireTimeout); // A fresh, isolated context in a shared browser
+            resourceBlocker.apply(tab, spec);
+            int timeout = spec.timeoutOrDefault(30000); // Default 30s for browser
+            long deadline = System.currentTimeMillis() + timeout;
 
             log.info("Executing browser check for URL: {}", url);
-            driver.get(url);
-
-            // Wait for the body tag to be present, a better indicator of page load
-            WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(20)); // Wait up to 20 seconds
-            wait.until(ExpectedConditions.presenceOfElementLocated(By.tagName("body")));
+            Page.NavigateResponse navigation = tab.send(
+                    Page.navigate(url, Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()),
+                    Duration.ofMillis(timeout));
+            if (navigation.getErrorText().isPresent()) {
+                throw new WebDriverException("Navigation failed: " + navigation.getErrorText().get());
+            }
 
-            // Get DOM Content Loaded time via JavaScript
-            JavascriptExecutor js = (JavascriptExecutor) driver;
-            long domLoadTime = (long) js.executeScript(
-                "return window.performance.timing.domContentLoadedEventEnd - window.performance.timing.navigationStart;"
-            );
+            // Wait for the DOM with a body, a better indicator of page load
+            long domLoadTime = waitForDomContentLoaded(tab, deadline);
 
             long latency = System.currentTimeMillis() - startTime;
-            String pageTitle = driver.getTitle();
+            Object title = tab.evaluate("document.title");
+            String pageTitle = title != null ? title.toString() : "";
 
             // Check for anti-bot pages
             if (isAntiBotPage(pageTitle)) {
@@ -114,9 +104,12 @@ public class BrowserCheckExecutor {
         } catch (Exception e) {
             long latency = System.currentTimeMillis() - startTime;
             log.error("Browser check for URL failed with exception: {}", e.getMessage());
-            
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
             String statusText = e.getClass().getSimpleName();
-            if (e instanceof org.openqa.selenium.TimeoutException) {
+            if (e instanceof TimeoutException || e instanceof java.util.concurrent.TimeoutException) {
                 statusText = "Timeout";
             }
 
@@ -128,23 +121,28 @@ public class BrowserCheckExecutor {
                     .errorMessage(e.getClass().getSimpleName() + ": " + e.getMessage())
                     .build();
         } finally {
-            if (driver != null) {
-                try {
-                    // Reset state before returning to pool
-                    driver.manage().deleteAllCookies();
-                    driver.get("about:blank");
-                    webDriverPool.returnObject(driver);
-                } catch (Exception e) {
-                    log.error("Failed to return WebDriver object to pool", e);
-                    // To prevent a potentially broken driver from re-entering the pool
-                    try {
-                        webDriverPool.invalidateObject(driver);
-                    } catch (Exception ex) {
-                        log.error("Failed to invalidate WebDriver object", ex);
-                    }
+            if (tab != null) {
+                // Disposing the context drops its cookies, cache and storage
+                tab.close();
+            }
+        }
+    }
+
+    private long waitForDomContentLoaded(BrowserTab tab, long deadline) throws InterruptedException {
+        RuntimeException lastError = null;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Object value = tab.evaluate(DOM_LOAD_TIME_SCRIPT);
+                if (value instanceof Number number && number.longValue() >= 0) {
+                    return number.longValue();
                 }
+            } catch (RuntimeException e) {
+                // The execution context is replaced while redirects and the new document commit
+                lastError = e;
             }
+            Thread.sleep(POLL_INTERVAL_MS);
         }
+        throw new TimeoutException("Page did not finish loading the DOM in time", lastError);
     }
 
     private boolean isAntiBotPage(String title) {
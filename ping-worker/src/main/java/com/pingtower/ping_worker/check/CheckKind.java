@@ -0,0 +1,29 @@
+package com.pingtower.ping_worker.check;
+
+/**
+ * Execution kind of a check, derived from its type and mode. Kinds differ in cost and blocking
+ * behaviour, so each kind runs in its own lane by default.
+ */
+public enum CheckKind {
+    HTTP,
+    SSL,
+    BROWSER,
+    TCP,
+    DNS;
+
+    static CheckKind of(String type, String checkMode) {
+        if ("HTTP".equalsIgnoreCase(type)) {
+            return "browser".equalsIgnoreCase(checkMode) ? BROWSER : HTTP;
+        }
+        if ("SSL".equalsIgnoreCase(type)) {
+            return SSL;
+        }
+        if ("TCP".equalsIgnoreCase(type)) {
+            return TCP;
+        }
+        if ("DNS".equalsIgnoreCase(type)) {
+            return DNS;
+        }
+        return null;
+    }
+}
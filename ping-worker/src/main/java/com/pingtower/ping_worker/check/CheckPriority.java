@@ -0,0 +1,20 @@
+package com.pingtower.ping_worker.check;
+
+/**
+ * How important a check's runs are when the worker is overloaded, from the check's
+ * {@code "priority"} setting. Lower priorities are shed first.
+ */
+public enum CheckPriority {
+    HIGH,
+    NORMAL,
+    LOW;
+
+    static CheckPriority of(String value) {
+        for (CheckPriority priority : values()) {
+            if (priority.name().equalsIgnoreCase(value)) {
+                return priority;
+            }
+        }
+        return NORMAL;
+    }
+}
@@ -12,6 +12,13 @@ public class CheckResult {
     private long latencyMs; // Total time from start to finish
     private Long domLoadTimeMs; // Time to DOMContentLoaded
     private Long ttfbMs; // Time to First Byte
+    private Long dnsMs; // DNS resolution, null if no new connection was opened
+    private Long connectMs; // TCP connect, null if no new connection was opened
+    private Long tlsMs; // TLS handshake, null for plain HTTP or a reused connection
+    private Long bodyMs; // From response headers to the end of the body
+    private Long bodyBytes; // Response body bytes read, at most the check's body size cap
+    private Long throughputBytesPerSec; // bodyBytes over the body download time
+    private Boolean connectionReused; // Whether a pooled keep-alive connection was used
     private Long sslExpiresInDays; // Days until SSL certificate expires
     private String errorMessage;
     private String details;
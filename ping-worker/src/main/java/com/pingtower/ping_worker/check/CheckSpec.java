@@ -0,0 +1,202 @@
+package com.pingtower.ping_worker.check;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.check.body.BodyAssertion;
+import com.pingtower.ping_worker.check.body.BodyAssertions;
+import com.pingtower.ping_worker.domain.Check;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable, pre-parsed form of a check's type, schedule and jsonb config.
+ * <p>
+ * Specs are compiled once per config version by {@link CheckSpecCache} and handed to the executors,
+ * so the hot path never touches JSON or re-parses the cron expression.
+ */
+@Slf4j
+@Value
+@Builder
+public class CheckSpec {
+    UUID checkId;
+    String type; // "HTTP", "SSL", "TCP", "DNS"
+    String schedule;
+    CronExpression cron; // null if the schedule is missing or invalid
+    String url;
+    String host; // "host" (or "hostname"): TCP target or DNS name; defaults to the url's host
+    Integer port; // "port": TCP port; defaults to the url's port
+    String recordType; // "record_type" for DNS checks, "A" by default
+    String nameServer; // "nameserver": "ip" or "ip:port" to query instead of the system's resolvers
+    String expectedAnswer; // "expected_answer": a DNS check fails unless one answer equals it
+    String method;
+    Integer timeout; // ms; null means the executor's own default
+    int expectedCode;
+    List<BodyAssertion> bodyAssertions; // "body_assertions", evaluated while the body streams in
+    Long maxBodyBytes; // "max_body_bytes": body bytes to read at most; null means the executor's default
+    String checkMode; // "http" or "browser"
+    Boolean freshConnection; // "connection_mode": "fresh" or "keep-alive"; null means the executor's default
+    CheckKind kind; // null for unknown check types
+    Boolean resourceBlocking; // "resource_blocking": false turns browser resource blocking off
+    List<String> blockedResourceTypes; // null means the configured default
+    List<String> blockedUrls; // null means the configured default
+    String lane; // "lane": runs the check in this lane instead of the one for its kind
+    CheckPriority priority; // "priority": "high", "normal" or "low"
+
+    /** Fingerprint of the source fields, used by the cache to detect changed checks. */
+    int configHash;
+    String sourceConfig;
+
+    public boolean isBrowserMode() {
+        return "browser".equalsIgnoreCase(checkMode);
+    }
+
+    public int timeoutOrDefault(int defaultTimeout) {
+        return timeout != null ? timeout : defaultTimeout;
+    }
+
+    /**
+     * The configured {@code host}, otherwise the host of the url, e.g. {@code tcp://db.internal:5432}.
+     */
+    public String targetHost() {
+        if (host != null || url == null) {
+            return host;
+        }
+        return URI.create(url).getHost();
+    }
+
+    /**
+     * The configured {@code port}, otherwise the port of the url; null if neither has one.
+     */
+    public Integer targetPort() {
+        if (port != null || url == null) {
+            return port;
+        }
+        int urlPort = URI.create(url).getPort();
+        return urlPort != -1 ? urlPort : null;
+    }
+
+    boolean isCompiledFrom(Check check, int hash) {
+        return configHash == hash
+                && Objects.equals(type, check.getType())
+                && Objects.equals(schedule, check.getSchedule())
+                && Objects.equals(sourceConfig, check.getConfig());
+    }
+
+    static int hashOf(Check check) {
+        return Objects.hash(check.getType(), check.getSchedule(), check.getConfig());
+    }
+
+    static CheckSpec compile(Check check, ObjectMapper objectMapper) {
+        CheckSpecBuilder builder = CheckSpec.builder()
+                .checkId(check.getId())
+                .type(check.getType())
+                .schedule(check.getSchedule())
+                .method("GET")
+                .expectedCode(200)
+                .bodyAssertions(List.of())
+                .priority(CheckPriority.NORMAL)
+                .configHash(hashOf(check))
+                .sourceConfig(check.getConfig());
+
+        String checkMode = "http"; // Default mode
+        String schedule = check.getSchedule();
+        if (schedule != null && !schedule.isBlank()) {
+            try {
+                builder.cron(CronExpression.parse(schedule));
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid cron expression '{}' for check ID {}", schedule, check.getId(), e);
+            }
+        }
+
+        try {
+            JsonNode config = objectMapper.readTree(check.getConfig());
+            if (config.has("url")) {
+                builder.url(config.get("url").asText());
+            }
+            if (config.has("host") || config.has("hostname")) {
+                builder.host((config.has("host") ? config.get("host") : config.get("hostname")).asText());
+            }
+            if (config.has("port")) {
+                int port = config.get("port").asInt(-1);
+                if (port > 0) {
+                    builder.port(port);
+                }
+            }
+            if (config.has("record_type")) {
+                builder.recordType(config.get("record_type").asText());
+            }
+            if (config.has("nameserver")) {
+                builder.nameServer(config.get("nameserver").asText());
+            }
+            if (config.has("expected_answer")) {
+                builder.expectedAnswer(config.get("expected_answer").asText());
+            }
+            if (config.has("method")) {
+                builder.method(config.get("method").asText("GET"));
+            }
+            if (config.has("timeout")) {
+                int timeout = config.get("timeout").asInt(-1);
+                if (timeout >= 0) {
+                    builder.timeout(timeout);
+                }
+            }
+            if (config.has("expected_code")) {
+                builder.expectedCode(config.get("expected_code").asInt(200));
+            }
+            if (config.has("body_assertions")) {
+                builder.bodyAssertions(BodyAssertions.parse(config.get("body_assertions")));
+            }
+            if (config.has("max_body_bytes")) {
+                long maxBodyBytes = config.get("max_body_bytes").asLong(-1);
+                if (maxBodyBytes > 0) {
+                    builder.maxBodyBytes(maxBodyBytes);
+                }
+            }
+            if (config.has("connection_mode")) {
+                builder.freshConnection("fresh".equalsIgnoreCase(config.get("connection_mode").asText()));
+            }
+            if (config.has("resource_blocking")) {
+                builder.resourceBlocking(config.get("resource_blocking").asBoolean(true));
+            }
+            if (config.has("blocked_resource_types")) {
+                builder.blockedResourceTypes(textList(config.get("blocked_resource_types")));
+            }
+            if (config.has("blocked_urls")) {
+                builder.blockedUrls(textList(config.get("blocked_urls")));
+            }
+            if (config.has("lane")) {
+                builder.lane(config.get("lane").asText());
+            }
+            if (config.has("priority")) {
+                builder.priority(CheckPriority.of(config.get("priority").asText()));
+            }
+            if (config.has("check_mode")) {
+                checkMode = config.get("check_mode").asText();
+            }
+        } catch (Exception e) {
+            log.error("Error parsing config for check ID {}", check.getId(), e);
+        }
+        return builder
+                .checkMode(checkMode)
+                .kind(CheckKind.of(check.getType(), checkMode))
+                .build();
+    }
+
+    private static List<String> textList(JsonNode node) {
+        List<String> values = new ArrayList<>();
+        if (node.isArray()) {
+            node.forEach(item -> values.add(item.asText()));
+        } else if (!node.isNull()) {
+            values.add(node.asText());
+        }
+        return List.copyOf(values);
+    }
+}
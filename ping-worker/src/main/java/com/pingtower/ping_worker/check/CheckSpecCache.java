@@ -0,0 +1,45 @@
+package com.pingtower.ping_worker.check;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.domain.Check;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of compiled {@link CheckSpec}s keyed by check id. A spec is recompiled only when the check's
+ * type, schedule or config changes.
+ */
+@Component
+public class CheckSpecCache {
+
+    private final ObjectMapper objectMapper;
+    private final Map<UUID, CheckSpec> specs = new ConcurrentHashMap<>();
+
+    public CheckSpecCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public CheckSpec get(Check check) {
+        int hash = CheckSpec.hashOf(check);
+        CheckSpec cached = specs.get(check.getId());
+        if (cached != null && cached.isCompiledFrom(check, hash)) {
+            return cached;
+        }
+        CheckSpec compiled = CheckSpec.compile(check, objectMapper);
+        specs.put(check.getId(), compiled);
+        return compiled;
+    }
+
+    /** Drops the specs of checks that are no longer loaded. */
+    public void retainAll(Collection<UUID> checkIds) {
+        specs.keySet().retainAll(checkIds);
+    }
+
+    public int size() {
+        return specs.size();
+    }
+}
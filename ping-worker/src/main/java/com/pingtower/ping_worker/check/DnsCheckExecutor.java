@@ -0,0 +1,122 @@
+package com.pingtower.ping_worker.check;
+
+import com.pingtower.ping_worker.check.dns.DnsQueryProbe;
+import com.pingtower.ping_worker.check.dns.DnsQueryResult;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.util.NetUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeoutException;
+
+@Component
+@Slf4j
+public class DnsCheckExecutor {
+
+    private static final int DNS_PORT = 53;
+
+    private final DnsQueryProbe dnsQueryProbe;
+    private final int defaultTimeoutMs;
+
+    public DnsCheckExecutor(DnsQueryProbe dnsQueryProbe,
+                            @Value("${ping-worker.dns-check.timeout-ms:5000}") int defaultTimeoutMs) {
+        this.dnsQueryProbe = dnsQueryProbe;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /**
+     * Blocking variant of {@link #executeAsync(CheckSpec)} for callers that run checks on their own
+     * threads.
+     */
+    public CheckResult execute(CheckSpec spec) {
+        return executeAsync(spec).block();
+    }
+
+    /**
+     * Queries the name server directly, bypassing the worker's DNS cache. The check passes if the
+     * server answers NOERROR with at least one record of the requested type and, if
+     * {@code expected_answer} is set, one of them equals it. The RCODE is reported as the response
+     * code.
+     */
+    public Mono<CheckResult> executeAsync(CheckSpec spec) {
+        long startTime = System.currentTimeMillis();
+        return Mono.defer(() -> {
+            String name = spec.targetHost();
+            if (name == null) {
+                throw new IllegalArgumentException("Missing 'host' in DNS check config");
+            }
+            DnsRecordType type = DnsRecordType.valueOf(
+                    spec.getRecordType() != null ? spec.getRecordType().toUpperCase(Locale.ROOT) : "A");
+            InetSocketAddress nameServer = nameServer(spec.getNameServer());
+
+            return Mono.fromFuture(() -> dnsQueryProbe.query(name, type, nameServer))
+                    .timeout(Duration.ofMillis(spec.timeoutOrDefault(defaultTimeoutMs)))
+                    .map(result -> evaluate(spec, type, result, System.currentTimeMillis() - startTime));
+        }).onErrorResume(e -> Mono.just(error(e, System.currentTimeMillis() - startTime)));
+    }
+
+    private CheckResult evaluate(CheckSpec spec, DnsRecordType type, DnsQueryResult result, long latency) {
+        String details = result.getServer() + " answered " + (result.getRecords().isEmpty()
+                ? "with no records" : String.join(", ", result.getRecords()));
+        CheckResult.CheckResultBuilder builder = CheckResult.builder()
+                .responseCode(result.getResponseCode())
+                .statusText(result.getResponseCodeName())
+                .latencyMs(latency)
+                .dnsMs(result.getQueryMs())
+                .details(details);
+
+        if (!result.isNoError()) {
+            return builder.success(false).errorMessage("DNS server returned " + result.getResponseCodeName()).build();
+        }
+        if (result.getAnswers().isEmpty()) {
+            return builder.success(false).errorMessage("No " + type.name() + " records").build();
+        }
+        String expected = spec.getExpectedAnswer();
+        if (expected != null && result.getAnswers().stream().noneMatch(answer -> answer.equalsIgnoreCase(expected))) {
+            return builder.success(false)
+                    .errorMessage("Expected " + type.name() + " " + expected + ", got " + String.join(", ", result.getAnswers()))
+                    .build();
+        }
+        return builder.success(true).build();
+    }
+
+    // "ip" or "ip:port"; IPv6 addresses with a port are written as "[ip]:port"
+    private static InetSocketAddress nameServer(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String host = value.trim();
+        int port = DNS_PORT;
+        int colon = host.lastIndexOf(':');
+        if (host.startsWith("[")) {
+            int bracket = host.indexOf(']');
+            if (colon > bracket) {
+                port = Integer.parseInt(host.substring(colon + 1));
+            }
+            host = host.substring(1, bracket);
+        } else if (colon > 0 && host.indexOf(':') == colon) {
+            port = Integer.parseInt(host.substring(colon + 1));
+            host = host.substring(0, colon);
+        }
+        byte[] address = NetUtil.createByteArrayFromIpAddressString(host);
+        if (address == null) {
+            throw new IllegalArgumentException("'nameserver' must be an IP address: " + value);
+        }
+        return new InetSocketAddress(NetUtil.bytesToIpAddress(address), port);
+    }
+
+    private CheckResult error(Throwable e, long latency) {
+        log.debug("DNS check failed: {}", e.getMessage());
+        return CheckResult.builder()
+                .success(false)
+                .statusText(e instanceof TimeoutException ? "DNS Timeout" : "Error")
+                .latencyMs(latency)
+                .errorMessage(e.getClass().getSimpleName() + ": " + e.getMessage())
+                .build();
+    }
+}
@@ -1,103 +1,197 @@
 package com.pingtower.ping_worker.check;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.check.body.BodyInspector;
+import com.pingtower.ping_worker.check.body.BodyReport;
+import com.pingtower.ping_worker.dns.CachingAddressResolverGroup;
+import com.pingtower.ping_worker.dns.CachingDnsResolver;
+import io.netty.resolver.AddressResolverGroup;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.context.Context;
 import reactor.util.retry.Retry;
 
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @Slf4j
 public class HttpCheckExecutor {
 
-    private final WebClient webClient;
-    private final ObjectMapper objectMapper;
+    private static final String USER_AGENT = "PingTower/1.0 (Java " + System.getProperty("java.version") + ")";
 
-    public HttpCheckExecutor(ObjectMapper objectMapper) {
-        // Configure HttpClient to follow redirects and set a longer connection timeout
-        HttpClient httpClient = HttpClient.create()
-                .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000) // 10 seconds
-                .followRedirect(true);
+    private final ConnectionProvider connectionProvider;
+    private final WebClient pooledWebClient;
+    private final WebClient freshWebClient;
+    private final boolean freshByDefault;
+    private final long defaultMaxBodyBytes;
+
+    public HttpCheckExecutor(CachingDnsResolver dnsResolver,
+                             @Value("${ping-worker.http.pool.max-connections-per-host:4}") int maxConnectionsPerHost,
+                             @Value("${ping-worker.http.pool.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+                             @Value("${ping-worker.http.pool.pending-acquire-timeout-ms:10000}") long pendingAcquireTimeoutMs,
+                             @Value("${ping-worker.http.pool.max-idle-time-seconds:30}") long maxIdleTimeSeconds,
+                             @Value("${ping-worker.http.pool.max-life-time-seconds:300}") long maxLifeTimeSeconds,
+                             @Value("${ping-worker.http.connection-mode:keep-alive}") String defaultConnectionMode,
+                             @Value("${ping-worker.http.body.max-bytes:5242880}") long defaultMaxBodyBytes) {
+        // Reactor-netty keeps a separate pool per remote address, so these limits apply per host
+        this.connectionProvider = ConnectionProvider.builder("http-checks")
+                .maxConnections(maxConnectionsPerHost)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(maxIdleTimeSeconds))
+                .build();
+        AddressResolverGroup<InetSocketAddress> resolverGroup = new CachingAddressResolverGroup(dnsResolver);
+        this.pooledWebClient = webClient(HttpClient.create(connectionProvider).resolver(resolverGroup));
+        this.freshWebClient = webClient(HttpClient.create(ConnectionProvider.newConnection())
+                .resolver(resolverGroup)
+                .keepAlive(false));
+        this.freshByDefault = "fresh".equalsIgnoreCase(defaultConnectionMode);
+        this.defaultMaxBodyBytes = defaultMaxBodyBytes;
+    }
 
-        this.webClient = WebClient.builder()
-                .clientConnector(new org.springframework.http.client.reactive.ReactorClientHttpConnector(httpClient))
+    private static WebClient webClient(HttpClient httpClient) {
+        // Follow redirects and set a longer connection timeout
+        HttpClient configured = HttpPhaseTimings.instrument(httpClient
+                .option(io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000) // 10 seconds
+                .followRedirect(true));
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(configured))
                 .build();
-        this.objectMapper = objectMapper;
     }
 
-    public CheckResult execute(String configJson) {
-        long startTime = System.currentTimeMillis();
-        AtomicLong ttfb = new AtomicLong(0); // Using AtomicLong to be accessible from lambda
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
 
-        try {
-            JsonNode config = objectMapper.readTree(configJson);
-            
-            if (!config.has("url")) {
-                throw new IllegalArgumentException("Missing 'url' in HTTP check config");
+    /**
+     * Blocking variant of {@link #executeAsync(CheckSpec)} for callers that run checks on their own
+     * threads.
+     */
+    public CheckResult execute(CheckSpec spec) {
+        return executeAsync(spec).block();
+    }
+
+    /**
+     * Runs the check without blocking: the request, timeout and retries all run on the reactor-netty
+     * event loop, so an in-flight check does not hold a thread. Latency and phase timings describe
+     * the last attempt only, so retry backoff is never counted.
+     * <p>
+     * The body is always read as a stream, up to the check's size cap, to measure its size and
+     * download rate and to evaluate the check's body assertions; it is never buffered whole.
+     */
+    public Mono<CheckResult> executeAsync(CheckSpec spec) {
+        return Mono.defer(() -> {
+            HttpPhaseTimings timings = new HttpPhaseTimings();
+
+            if (spec.getUrl() == null) {
+                return Mono.error(new IllegalArgumentException("Missing 'url' in HTTP check config"));
             }
-            String url = config.get("url").asText();
-            String method = config.has("method") ? config.get("method").asText("GET") : "GET";
-            int timeout = config.has("timeout") ? config.get("timeout").asInt(5000) : 5000;
-            int expectedCode = config.has("expected_code") ? config.get("expected_code").asInt(200) : 200;
-
-            // For simplicity, we are using a blocking call here.
-            // In a real high-throughput scenario, the whole flow should be reactive.
-            org.springframework.web.reactive.function.client.ClientResponse clientResponse = webClient.method(org.springframework.http.HttpMethod.valueOf(method.toUpperCase()))
-                    .uri(url)
-                    .header("User-Agent", "PingTower/1.0 (Java " + System.getProperty("java.version") + ")")
-                    .exchangeToMono(response -> {
-                        ttfb.set(System.currentTimeMillis() - startTime); // Set TTFB when first response packet is received
-                        return Mono.just(response);
+            String url = spec.getUrl();
+            String method = spec.getMethod();
+            int timeout = spec.timeoutOrDefault(5000);
+            boolean fresh = spec.getFreshConnection() != null ? spec.getFreshConnection() : freshByDefault;
+            WebClient webClient = fresh ? freshWebClient : pooledWebClient;
+            long maxBodyBytes = spec.getMaxBodyBytes() != null ? spec.getMaxBodyBytes() : defaultMaxBodyBytes;
+
+            return Mono.defer(() -> {
+                        timings.startAttempt();
+                        return webClient.method(org.springframework.http.HttpMethod.valueOf(method.toUpperCase()))
+                                .uri(url)
+                                .header("User-Agent", USER_AGENT)
+                                .exchangeToMono(response -> BodyInspector.inspect(response.bodyToFlux(DataBuffer.class),
+                                                spec.getBodyAssertions(), charset(response), maxBodyBytes)
+                                        .map(body -> {
+                                            timings.bodyReceived();
+                                            return new Exchange(response.statusCode(), body);
+                                        }))
+                                .timeout(Duration.ofMillis(timeout));
                     })
-                    .timeout(Duration.ofMillis(timeout))
                     .retryWhen(Retry.backoff(2, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(5)))
-                    .block();
-
-            long latency = System.currentTimeMillis() - startTime;
-            
-            if (clientResponse == null) {
-                return CheckResult.builder()
-                        .success(false)
-                        .responseCode(0)
-                        .statusText("Timeout")
-                        .latencyMs(latency)
-                        .ttfbMs(ttfb.get())
-                        .errorMessage("Request timed out after " + timeout + "ms")
-                        .build();
-            }
+                    .map(exchange -> {
+                        HttpStatusCode status = exchange.status();
+                        BodyReport body = exchange.body();
+                        int actualCode = status.value();
+                        String statusText = actualCode + " " + status;
+
+                        boolean statusOk = (actualCode >= 200 && actualCode < 400); // Success on 2xx and 3xx codes
+                        boolean isSuccess = statusOk && body.passed();
+                        String details = isSuccess ? "Request successful"
+                                : statusOk ? "Response body failed its assertions"
+                                : "Request failed with non-2xx/3xx status code";
+                        if (body.truncated()) {
+                            details += " (body read up to " + maxBodyBytes + " bytes)";
+                        }
+
+                        return withTimings(CheckResult.builder(), timings)
+                                .success(isSuccess)
+                                .responseCode(actualCode)
+                                .statusText(statusText)
+                                .bodyBytes(body.bytes())
+                                .throughputBytesPerSec(timings.throughputBytesPerSec(body.bytes()))
+                                .details(details)
+                                .errorMessage(!statusOk ? "Expected status code 2xx or 3xx but got " + actualCode
+                                        : !body.passed() ? String.join("; ", body.failures())
+                                        : null)
+                                .build();
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(() -> withTimings(CheckResult.builder(), timings)
+                            .success(false)
+                            .responseCode(0)
+                            .statusText("Timeout")
+                            .errorMessage("Request timed out after " + timeout + "ms")
+                            .build()))
+                    .onErrorResume(e -> Mono.just(failure(e, timings)))
+                    .contextWrite(Context.of(HttpPhaseTimings.class, timings));
+        }).onErrorResume(e -> Mono.just(failure(e, null)));
+    }
+
+    private static Charset charset(ClientResponse response) {
+        return response.headers().contentType()
+                .map(MediaType::getCharset)
+                .orElse(StandardCharsets.UTF_8);
+    }
+
+    private static CheckResult.CheckResultBuilder withTimings(CheckResult.CheckResultBuilder builder,
+                                                              HttpPhaseTimings timings) {
+        return builder
+                .latencyMs(timings.attemptMs())
+                .ttfbMs(timings.ttfbMs())
+                .dnsMs(timings.dnsMs())
+                .connectMs(timings.connectMs())
+                .tlsMs(timings.tlsMs())
+                .bodyMs(timings.bodyMs())
+                .connectionReused(timings.connectionReused());
+    }
+
+    private CheckResult failure(Throwable e, HttpPhaseTimings timings) {
+        log.error("HTTP check failed with exception: {}", e.getMessage());
+        CheckResult.CheckResultBuilder builder = timings != null
+                ? withTimings(CheckResult.builder(), timings)
+                : CheckResult.builder().latencyMs(0);
+        return builder
+                .success(false)
+                .responseCode(0)
+                .statusText("Exception")
+                .errorMessage(e.getMessage())
+                .build();
+    }
 
-            int actualCode = clientResponse.statusCode().value();
-            String statusText = actualCode + " " + clientResponse.statusCode().toString();
-
-            boolean isSuccess = (actualCode >= 200 && actualCode < 400); // Success on 2xx and 3xx codes
-
-            return CheckResult.builder()
-                    .success(isSuccess)
-                    .responseCode(actualCode)
-                    .statusText(statusText)
-                    .latencyMs(latency)
-                    .ttfbMs(ttfb.get())
-                    .details(isSuccess ? "Request successful" : "Request failed with non-2xx/3xx status code")
-                    .errorMessage(isSuccess ? null : "Expected status code 2xx or 3xx but got " + actualCode)
-                    .build();
-
-        } catch (Exception e) {
-            long latency = System.currentTimeMillis() - startTime;
-            log.error("HTTP check failed with exception: {}", e.getMessage());
-            return CheckResult.builder()
-                    .success(false)
-                    .responseCode(0)
-                    .statusText("Exception")
-                    .latencyMs(latency)
-                    .ttfbMs(ttfb.get())
-                    .errorMessage(e.getMessage())
-                    .build();
-        }
+    private record Exchange(HttpStatusCode status, BodyReport body) {
     }
 }
@@ -0,0 +1,184 @@
+package com.pingtower.ping_worker.check;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.http.client.HttpClientResponse;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timings of one HTTP check attempt, measured with {@link System#nanoTime()}.
+ * <p>
+ * Connection phases (DNS, TCP connect, TLS handshake) are recorded on the channel by the hooks that
+ * {@link #instrument(HttpClient)} installs, and copied into the timings of the first request sent
+ * over that channel. Requests on a reused keep-alive connection report no connection phases. The
+ * timings object itself travels in the Reactor context of the request.
+ */
+final class HttpPhaseTimings {
+
+    private static final AttributeKey<ConnectionPhases> CONNECTION_PHASES =
+            AttributeKey.valueOf("pingtower.connectionPhases");
+
+    private volatile long attemptStart;
+    private volatile long dnsNanos = -1;
+    private volatile long connectNanos = -1;
+    private volatile long tlsNanos = -1;
+    private volatile boolean connectionReused;
+    private volatile long requestStart;
+    private volatile long responseStart;
+    private volatile long bodyEnd;
+
+    /** Resets the timings at the start of every (re)try so backoff never counts towards a phase. */
+    void startAttempt() {
+        attemptStart = System.nanoTime();
+        dnsNanos = -1;
+        connectNanos = -1;
+        tlsNanos = -1;
+        connectionReused = false;
+        requestStart = 0;
+        responseStart = 0;
+        bodyEnd = 0;
+    }
+
+    void bodyReceived() {
+        bodyEnd = System.nanoTime();
+    }
+
+    Long dnsMs() {
+        return dnsNanos >= 0 ? toMillis(dnsNanos) : null;
+    }
+
+    Long connectMs() {
+        return connectNanos >= 0 ? toMillis(connectNanos) : null;
+    }
+
+    Long tlsMs() {
+        return tlsNanos >= 0 ? toMillis(tlsNanos) : null;
+    }
+
+    Long ttfbMs() {
+        return requestStart != 0 && responseStart != 0 ? toMillis(responseStart - requestStart) : null;
+    }
+
+    Long bodyMs() {
+        return responseStart != 0 && bodyEnd != 0 ? toMillis(bodyEnd - responseStart) : null;
+    }
+
+    /** Download rate of {@code bytes} over the body phase, null if the body was not timed. */
+    Long throughputBytesPerSec(long bytes) {
+        if (responseStart == 0 || bodyEnd == 0) {
+            return null;
+        }
+        return bytes * TimeUnit.SECONDS.toNanos(1) / Math.max(bodyEnd - responseStart, 1);
+    }
+
+    /** Duration of the last attempt, from its start until the body was read or until now. */
+    long attemptMs() {
+        long end = bodyEnd != 0 ? bodyEnd : System.nanoTime();
+        return toMillis(end - attemptStart);
+    }
+
+    Boolean connectionReused() {
+        return requestStart != 0 ? connectionReused : null;
+    }
+
+    /**
+     * Adds the hooks that feed {@link HttpPhaseTimings} to the given client.
+     */
+    static HttpClient instrument(HttpClient client) {
+        return client
+                .doOnChannelInit((observer, channel, remoteAddress) -> {
+                    ConnectionPhases phases = new ConnectionPhases();
+                    channel.attr(CONNECTION_PHASES).set(phases);
+                    channel.pipeline().addFirst("pingtower.connectTimer", new ConnectTimer(phases));
+                    SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+                    if (sslHandler != null) {
+                        sslHandler.handshakeFuture().addListener(future -> phases.tlsEnd = System.nanoTime());
+                    }
+                })
+                .doOnResolve(connection -> phases(connection).resolveStart = System.nanoTime())
+                .doAfterResolve((connection, address) -> phases(connection).resolveEnd = System.nanoTime())
+                .doOnRequest(HttpPhaseTimings::onRequest)
+                .doOnResponse(HttpPhaseTimings::onResponse);
+    }
+
+    private static void onRequest(HttpClientRequest request, Connection connection) {
+        HttpPhaseTimings timings = request.currentContextView().getOrDefault(HttpPhaseTimings.class, null);
+        if (timings == null) {
+            return;
+        }
+        timings.requestStart = System.nanoTime();
+        ConnectionPhases phases = connection.channel().attr(CONNECTION_PHASES).get();
+        if (phases == null || phases.reported) {
+            timings.connectionReused = true;
+            return;
+        }
+        phases.reported = true;
+        if (phases.resolveStart != 0 && phases.resolveEnd != 0) {
+            timings.dnsNanos = phases.resolveEnd - phases.resolveStart;
+        }
+        if (phases.connectStart != 0 && phases.connectEnd != 0) {
+            timings.connectNanos = phases.connectEnd - phases.connectStart;
+            if (phases.tlsEnd != 0) {
+                timings.tlsNanos = phases.tlsEnd - phases.connectEnd;
+            }
+        }
+    }
+
+    private static void onResponse(HttpClientResponse response, Connection connection) {
+        HttpPhaseTimings timings = response.currentContextView().getOrDefault(HttpPhaseTimings.class, null);
+        if (timings != null) {
+            timings.responseStart = System.nanoTime();
+        }
+    }
+
+    private static ConnectionPhases phases(Connection connection) {
+        ConnectionPhases phases = connection.channel().attr(CONNECTION_PHASES).get();
+        return phases != null ? phases : new ConnectionPhases();
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /** Connection setup instants of a single channel. */
+    private static final class ConnectionPhases {
+        volatile long resolveStart;
+        volatile long resolveEnd;
+        volatile long connectStart;
+        volatile long connectEnd;
+        volatile long tlsEnd;
+        volatile boolean reported;
+    }
+
+    /** Sits at the head of the pipeline and timestamps the TCP connect. */
+    private static final class ConnectTimer extends ChannelDuplexHandler {
+
+        private final ConnectionPhases phases;
+
+        ConnectTimer(ConnectionPhases phases) {
+            this.phases = phases;
+        }
+
+        @Override
+        public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress,
+                            ChannelPromise promise) throws Exception {
+            phases.connectStart = System.nanoTime();
+            super.connect(ctx, remoteAddress, localAddress, promise);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            phases.connectEnd = System.nanoTime();
+            super.channelActive(ctx);
+            ctx.pipeline().remove(this);
+        }
+    }
+}
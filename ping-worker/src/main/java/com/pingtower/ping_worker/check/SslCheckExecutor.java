@@ -1,80 +1,138 @@
 package com.pingtower.ping_worker.check;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingtower.ping_worker.check.ssl.CertificateCache;
+import com.pingtower.ping_worker.check.ssl.TlsHandshakeProbe;
+import com.pingtower.ping_worker.check.ssl.TlsProbeResult;
+import com.pingtower.ping_worker.dns.CachingDnsResolver;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.net.URL;
-import java.security.cert.Certificate;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class SslCheckExecutor {
 
-    private final ObjectMapper objectMapper;
+    private final CachingDnsResolver dnsResolver;
+    private final TlsHandshakeProbe tlsHandshakeProbe;
+    private final CertificateCache certificateCache;
+    private final int defaultTimeoutMs;
 
-    public SslCheckExecutor(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public SslCheckExecutor(CachingDnsResolver dnsResolver,
+                            TlsHandshakeProbe tlsHandshakeProbe,
+                            CertificateCache certificateCache,
+                            @Value("${ping-worker.ssl.timeout-ms:5000}") int defaultTimeoutMs) {
+        this.dnsResolver = dnsResolver;
+        this.tlsHandshakeProbe = tlsHandshakeProbe;
+        this.certificateCache = certificateCache;
+        this.defaultTimeoutMs = defaultTimeoutMs;
     }
 
-    public CheckResult execute(String configJson) {
+    /**
+     * Blocking variant of {@link #executeAsync(CheckSpec)} for callers that run checks on their own
+     * threads.
+     */
+    public CheckResult execute(CheckSpec spec) {
+        return executeAsync(spec).block();
+    }
+
+    /**
+     * Checks the expiry of the server's certificate and lists the expiry of every certificate in its
+     * chain in the details. Only the leaf decides the verdict: servers often still send an expired
+     * cross-signed intermediate that validation does not need. The chain comes from the
+     * {@link CertificateCache} when possible, otherwise from a handshake-only {@link TlsHandshakeProbe}
+     * on the address from the shared DNS cache; neither path blocks a thread.
+     */
+    public Mono<CheckResult> executeAsync(CheckSpec spec) {
         long startTime = System.currentTimeMillis();
-        try {
-            JsonNode config = objectMapper.readTree(configJson);
-            String urlString = config.get("url").asText();
-            URL url = new URL(urlString);
+        return Mono.defer(() -> {
+            if (spec.getUrl() == null) {
+                throw new IllegalArgumentException("Missing 'url' in SSL check config");
+            }
+            URI url = URI.create(spec.getUrl());
             String host = url.getHost();
             int port = (url.getPort() != -1) ? url.getPort() : 443;
 
-            HttpsURLConnection conn = (HttpsURLConnection) new URL("https://" + host + ":" + port).openConnection();
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.connect();
-
-            Certificate[] certs = conn.getServerCertificates();
-            if (certs.length == 0 || !(certs[0] instanceof X509Certificate)) {
-                throw new IllegalStateException("No valid X509 certificates found.");
+            List<X509Certificate> cached = certificateCache.get(host, port);
+            if (cached != null) {
+                return Mono.just(evaluate(cached, null, System.currentTimeMillis() - startTime, true));
             }
 
-            X509Certificate cert = (X509Certificate) certs[0];
-            Date expiryDate = cert.getNotAfter();
-            long daysUntilExpiry = Duration.between(Instant.now(), expiryDate.toInstant()).toDays();
-            
-            long latency = System.currentTimeMillis() - startTime;
+            int timeout = spec.timeoutOrDefault(defaultTimeoutMs);
+            return dnsResolver.resolveAll(host)
+                    .flatMap(addresses -> Mono.fromFuture(() -> tlsHandshakeProbe.probe(
+                            new InetSocketAddress(addresses.get(0), port), host, timeout)))
+                    .map(probe -> {
+                        if (probe.isTrusted()) {
+                            certificateCache.put(host, port, probe.getChain());
+                        }
+                        return evaluate(probe.getChain(), probe.getFailure(),
+                                System.currentTimeMillis() - startTime, false);
+                    });
+        }).onErrorResume(e -> Mono.just(error(e, System.currentTimeMillis() - startTime)));
+    }
 
-            if (daysUntilExpiry <= 0) {
-                 return CheckResult.builder()
-                    .success(false)
-                    .statusText("Expired")
-                    .latencyMs(latency)
-                    .sslExpiresInDays(daysUntilExpiry)
-                    .errorMessage("SSL certificate has expired.")
-                    .build();
+    private CheckResult evaluate(List<X509Certificate> chain, Throwable failure, long latency, boolean cached) {
+        if (chain.isEmpty()) {
+            if (failure != null) {
+                return error(failure, latency);
             }
+            return error(new IllegalStateException("No valid X509 certificates found."), latency);
+        }
 
-            return CheckResult.builder()
-                    .success(true)
-                    .statusText("Valid")
-                    .latencyMs(latency)
-                    .sslExpiresInDays(daysUntilExpiry)
-                    .details("Expires on: " + expiryDate)
-                    .build();
+        X509Certificate leaf = chain.get(0);
+        long daysUntilExpiry = Duration.between(Instant.now(), leaf.getNotAfter().toInstant()).toDays();
+        String chainExpiries = chain.stream()
+                .map(certificate -> certificate.getSubjectX500Principal().getName() + " expires on " + certificate.getNotAfter())
+                .collect(Collectors.joining("; "));
+
+        if (daysUntilExpiry <= 0) {
+             return CheckResult.builder()
+                .success(false)
+                .statusText("Expired")
+                .latencyMs(latency)
+                .sslExpiresInDays(daysUntilExpiry)
+                .errorMessage("SSL certificate has expired.")
+                .details(chainExpiries)
+                .build();
+        }
 
-        } catch (Exception e) {
-            long latency = System.currentTimeMillis() - startTime;
-            log.error("SSL check failed with exception: {}", e.getMessage());
+        if (failure != null) {
+            log.error("SSL check failed with exception: {}", failure.getMessage());
             return CheckResult.builder()
                     .success(false)
                     .statusText("Error")
                     .latencyMs(latency)
-                    .errorMessage(e.getClass().getSimpleName() + ": " + e.getMessage())
+                    .sslExpiresInDays(daysUntilExpiry)
+                    .errorMessage(failure.getClass().getSimpleName() + ": " + failure.getMessage())
+                    .details(chainExpiries)
                     .build();
         }
+
+        return CheckResult.builder()
+                .success(true)
+                .statusText("Valid")
+                .latencyMs(latency)
+                .sslExpiresInDays(daysUntilExpiry)
+                .details("Expires on: " + leaf.getNotAfter() + (cached ? " (cached)" : "") + ". Chain: " + chainExpiries)
+                .build();
+    }
+
+    private CheckResult error(Throwable e, long latency) {
+        log.error("SSL check failed with exception: {}", e.getMessage());
+        return CheckResult.builder()
+                .success(false)
+                .statusText("Error")
+                .latencyMs(latency)
+                .errorMessage(e.getClass().getSimpleName() + ": " + e.getMessage())
+                .build();
     }
 }
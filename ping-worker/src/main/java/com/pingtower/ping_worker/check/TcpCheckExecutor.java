@@ -0,0 +1,89 @@
+package com.pingtower.ping_worker.check;
+
+import com.pingtower.ping_worker.check.tcp.TcpConnectProbe;
+import com.pingtower.ping_worker.dns.CachingDnsResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+@Component
+@Slf4j
+public class TcpCheckExecutor {
+
+    private final CachingDnsResolver dnsResolver;
+    private final TcpConnectProbe tcpConnectProbe;
+    private final int defaultTimeoutMs;
+
+    public TcpCheckExecutor(CachingDnsResolver dnsResolver,
+                            TcpConnectProbe tcpConnectProbe,
+                            @Value("${ping-worker.tcp.timeout-ms:5000}") int defaultTimeoutMs) {
+        this.dnsResolver = dnsResolver;
+        this.tcpConnectProbe = tcpConnectProbe;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    /**
+     * Blocking variant of {@link #executeAsync(CheckSpec)} for callers that run checks on their own
+     * threads.
+     */
+    public CheckResult execute(CheckSpec spec) {
+        return executeAsync(spec).block();
+    }
+
+    /**
+     * Checks that the port accepts connections: resolves the host through the shared DNS cache and
+     * opens, then immediately closes, a TCP connection on the {@link TcpConnectProbe} selector.
+     */
+    public Mono<CheckResult> executeAsync(CheckSpec spec) {
+        long startTime = System.currentTimeMillis();
+        return Mono.defer(() -> {
+            String host = spec.targetHost();
+            Integer port = spec.targetPort();
+            if (host == null || port == null) {
+                throw new IllegalArgumentException("TCP check config needs 'host' and 'port' or a 'url' with a port");
+            }
+
+            int timeout = spec.timeoutOrDefault(defaultTimeoutMs);
+            return dnsResolver.resolveAll(host)
+                    .flatMap(addresses -> {
+                        long dnsMs = System.currentTimeMillis() - startTime;
+                        return Mono.fromFuture(() -> tcpConnectProbe.connect(
+                                        new InetSocketAddress(addresses.get(0), port), Math.max(timeout - dnsMs, 1)))
+                                .map(connectMs -> CheckResult.builder()
+                                        .success(true)
+                                        .statusText("Connected")
+                                        .latencyMs(System.currentTimeMillis() - startTime)
+                                        .dnsMs(dnsMs)
+                                        .connectMs(connectMs)
+                                        .details("Connected to " + addresses.get(0).getHostAddress() + ":" + port)
+                                        .build());
+                    });
+        }).onErrorResume(e -> Mono.just(error(e, System.currentTimeMillis() - startTime)));
+    }
+
+    private CheckResult error(Throwable e, long latency) {
+        log.debug("TCP check failed: {}", e.getMessage());
+        String statusText;
+        if (e instanceof ConnectException) {
+            statusText = "Connection Refused";
+        } else if (e instanceof SocketTimeoutException) {
+            statusText = "Connection Timeout";
+        } else if (e instanceof UnknownHostException) {
+            statusText = "DNS Error";
+        } else {
+            statusText = "Error";
+        }
+        return CheckResult.builder()
+                .success(false)
+                .statusText(statusText)
+                .latencyMs(latency)
+                .errorMessage(e.getClass().getSimpleName() + ": " + e.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.pingtower.ping_worker.check.body;
+
+import java.nio.charset.Charset;
+
+/**
+ * A condition on the response body of an HTTP check, parsed once from the check's
+ * {@code "body_assertions"} config. Assertions are immutable and shared by every run of the check;
+ * the per-run state lives in the {@link BodyMatcher} each run creates.
+ */
+public interface BodyAssertion {
+
+    /**
+     * Starts evaluating a new response body in {@code charset}.
+     */
+    BodyMatcher newMatcher(Charset charset);
+
+    /**
+     * Short human-readable form for check results, e.g. {@code contains "OK"}.
+     */
+    String describe();
+}
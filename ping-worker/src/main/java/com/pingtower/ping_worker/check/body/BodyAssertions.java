@@ -0,0 +1,91 @@
+package com.pingtower.ping_worker.check.body;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the {@code "body_assertions"} array of an HTTP check config:
+ * <pre>
+ * [{"type": "contains", "value": "OK"},
+ *  {"type": "not_contains", "value": "Internal Server Error"},
+ *  {"type": "regex", "pattern": "version\": \"\\d+", "window_chars": 65536},
+ *  {"type": "json_pointer", "pointer": "/status", "equals": "UP"}]
+ * </pre>
+ * An entry that cannot be parsed becomes an assertion that always fails with the reason, so a typo
+ * makes the check fail visibly instead of silently checking less.
+ */
+public final class BodyAssertions {
+
+    static final int DEFAULT_REGEX_WINDOW_CHARS = 64 * 1024;
+
+    private BodyAssertions() {
+    }
+
+    public static List<BodyAssertion> parse(JsonNode node) {
+        List<BodyAssertion> assertions = new ArrayList<>();
+        if (node == null || node.isNull()) {
+            return List.of();
+        }
+        if (!node.isArray()) {
+            return List.of(new Invalid("'body_assertions' must be an array"));
+        }
+        for (JsonNode entry : node) {
+            try {
+                assertions.add(parseOne(entry));
+            } catch (RuntimeException e) {
+                assertions.add(new Invalid(e.getMessage()));
+            }
+        }
+        return List.copyOf(assertions);
+    }
+
+    private static BodyAssertion parseOne(JsonNode entry) {
+        String type = text(entry, "type");
+        if (type == null) {
+            throw new IllegalArgumentException("Body assertion without 'type': " + entry);
+        }
+        return switch (type.toLowerCase()) {
+            case "contains" -> new ContainsAssertion(text(entry, "value"), false);
+            case "not_contains" -> new ContainsAssertion(text(entry, "value"), true);
+            case "regex" -> new RegexAssertion(text(entry, "pattern"),
+                    entry.path("window_chars").asInt(DEFAULT_REGEX_WINDOW_CHARS));
+            case "json_pointer" -> new JsonPointerAssertion(text(entry, "pointer"), text(entry, "equals"));
+            default -> throw new IllegalArgumentException("Unknown body assertion type '" + type + "'");
+        };
+    }
+
+    private static String text(JsonNode entry, String field) {
+        JsonNode value = entry.get(field);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+
+    private record Invalid(String reason) implements BodyAssertion {
+
+        @Override
+        public BodyMatcher newMatcher(Charset charset) {
+            return new BodyMatcher() {
+                @Override
+                public void update(byte[] chunk, int length) {
+                }
+
+                @Override
+                public boolean decided() {
+                    return true;
+                }
+
+                @Override
+                public String finish(boolean truncated) {
+                    return "Invalid body assertion: " + reason;
+                }
+            };
+        }
+
+        @Override
+        public String describe() {
+            return "invalid (" + reason + ")";
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.pingtower.ping_worker.check.body;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a response body through the check's {@link BodyAssertion}s without keeping it: every
+ * chunk is counted, fed to the matchers that are still undecided and released straight away.
+ * <p>
+ * Reading stops after {@code maxBytes}. Cancelling the rest of the body makes reactor-netty close
+ * the connection instead of returning it to the pool, which is cheaper than draining a large
+ * response; a body read to the end leaves the connection reusable.
+ */
+public final class BodyInspector {
+
+    private final List<BodyMatcher> matchers;
+    private final long maxBytes;
+    private byte[] scratch = new byte[0];
+    private long bytes;
+    private boolean truncated;
+
+    private BodyInspector(List<BodyAssertion> assertions, Charset charset, long maxBytes) {
+        this.matchers = new ArrayList<>(assertions.size());
+        assertions.forEach(assertion -> matchers.add(assertion.newMatcher(charset)));
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reads the body and completes with what was found once it has ended or hit the cap.
+     */
+    public static Mono<BodyReport> inspect(Flux<DataBuffer> body, List<BodyAssertion> assertions,
+                                           Charset charset, long maxBytes) {
+        return Mono.defer(() -> {
+            BodyInspector inspector = new BodyInspector(assertions, charset, maxBytes);
+            return body
+                    .doOnNext(inspector::accept)
+                    .takeUntil(buffer -> inspector.truncated)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .then(Mono.fromSupplier(inspector::report));
+        });
+    }
+
+    private void accept(DataBuffer buffer) {
+        try {
+            int length = (int) Math.min(buffer.readableByteCount(), maxBytes - bytes);
+            bytes += length;
+            truncated = bytes >= maxBytes && buffer.readableByteCount() > length;
+            if (matchers.stream().allMatch(BodyMatcher::decided)) {
+                return;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            buffer.read(scratch, 0, length);
+            for (BodyMatcher matcher : matchers) {
+                if (!matcher.decided()) {
+                    matcher.update(scratch, length);
+                }
+            }
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private BodyReport report() {
+        List<String> failures = new ArrayList<>();
+        for (BodyMatcher matcher : matchers) {
+            String failure = matcher.finish(truncated);
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+        return new BodyReport(bytes, truncated, List.copyOf(failures));
+    }
+}
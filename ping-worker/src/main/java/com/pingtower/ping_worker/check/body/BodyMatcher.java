@@ -0,0 +1,25 @@
+package com.pingtower.ping_worker.check.body;
+
+/**
+ * Evaluates one {@link BodyAssertion} over a response body that arrives in chunks, keeping only
+ * as much of the body as the assertion needs to see across chunk boundaries.
+ */
+interface BodyMatcher {
+
+    /**
+     * Feeds the next {@code length} bytes of the body. Never called again once {@link #decided()}.
+     */
+    void update(byte[] chunk, int length);
+
+    /**
+     * True once more of the body cannot change the outcome.
+     */
+    boolean decided();
+
+    /**
+     * Finishes the evaluation at the end of the body, or at the size cap if {@code truncated}.
+     *
+     * @return null if the assertion holds, otherwise why it does not
+     */
+    String finish(boolean truncated);
+}
@@ -0,0 +1,17 @@
+package com.pingtower.ping_worker.check.body;
+
+import java.util.List;
+
+/**
+ * What {@link BodyInspector} found in a response body.
+ *
+ * @param bytes     body bytes read, at most the size cap
+ * @param truncated true if the body was longer than the cap and the rest was not read
+ * @param failures  why each failed assertion failed; empty if all passed
+ */
+public record BodyReport(long bytes, boolean truncated, List<String> failures) {
+
+    public boolean passed() {
+        return failures.isEmpty();
+    }
+}
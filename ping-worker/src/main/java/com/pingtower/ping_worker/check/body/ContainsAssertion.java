@@ -0,0 +1,89 @@
+package com.pingtower.ping_worker.check.body;
+
+import java.nio.charset.Charset;
+
+/**
+ * Passes if the body contains the text, or with {@code negated} if it does not. The text is
+ * encoded in the response charset and searched for byte by byte with a Knuth-Morris-Pratt
+ * automaton, so matches across chunk boundaries are found without keeping any of the body.
+ */
+final class ContainsAssertion implements BodyAssertion {
+
+    private final String text;
+    private final boolean negated;
+
+    ContainsAssertion(String text, boolean negated) {
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("'value' of a contains assertion must not be empty");
+        }
+        this.text = text;
+        this.negated = negated;
+    }
+
+    @Override
+    public BodyMatcher newMatcher(Charset charset) {
+        return new Matcher(text.getBytes(charset));
+    }
+
+    @Override
+    public String describe() {
+        return (negated ? "not_contains \"" : "contains \"") + text + "\"";
+    }
+
+    private final class Matcher implements BodyMatcher {
+
+        private final byte[] needle;
+        private final int[] fallback;
+        private int matched;
+        private boolean found;
+
+        Matcher(byte[] needle) {
+            this.needle = needle;
+            this.fallback = fallback(needle);
+        }
+
+        @Override
+        public void update(byte[] chunk, int length) {
+            for (int i = 0; i < length; i++) {
+                while (matched > 0 && chunk[i] != needle[matched]) {
+                    matched = fallback[matched - 1];
+                }
+                if (chunk[i] == needle[matched] && ++matched == needle.length) {
+                    found = true;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean decided() {
+            return found;
+        }
+
+        @Override
+        public String finish(boolean truncated) {
+            if (found != negated) {
+                return null;
+            }
+            if (negated) {
+                return "Body contains \"" + text + "\"";
+            }
+            return "Body does not contain \"" + text + "\"" + (truncated ? " within the size limit" : "");
+        }
+    }
+
+    // fallback[i]: length of the longest proper prefix of needle[0..i] that is also its suffix
+    private static int[] fallback(byte[] needle) {
+        int[] fallback = new int[needle.length];
+        for (int i = 1, length = 0; i < needle.length; i++) {
+            while (length > 0 && needle[i] != needle[length]) {
+                length = fallback[length - 1];
+            }
+            if (needle[i] == needle[length]) {
+                length++;
+            }
+            fallback[i] = length;
+        }
+        return fallback;
+    }
+}
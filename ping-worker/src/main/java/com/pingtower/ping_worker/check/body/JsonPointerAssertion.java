@@ -0,0 +1,123 @@
+package com.pingtower.ping_worker.check.body;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Passes if the scalar value at the JSON pointer equals the expected text, e.g. {@code "UP"} at
+ * {@code /status}. The body is tokenized with Jackson's non-blocking parser as chunks arrive, so
+ * no tree is built and only the current token is held; parsing stops at the first value found at
+ * the pointer. Numbers and booleans compare by their JSON text, {@code null} as {@code "null"}.
+ */
+final class JsonPointerAssertion implements BodyAssertion {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonPointer pointer;
+    private final String expected;
+
+    JsonPointerAssertion(String pointer, String expected) {
+        if (pointer == null || expected == null) {
+            throw new IllegalArgumentException("A json_pointer assertion needs 'pointer' and 'equals'");
+        }
+        this.pointer = JsonPointer.compile(pointer);
+        this.expected = expected;
+    }
+
+    @Override
+    public BodyMatcher newMatcher(Charset charset) {
+        // The non-blocking parser only reads UTF-8, which RFC 8259 requires of JSON anyway
+        try {
+            return new Matcher(JSON_FACTORY.createNonBlockingByteArrayParser());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create a JSON parser", e);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "json_pointer " + pointer + " == \"" + expected + "\"";
+    }
+
+    private final class Matcher implements BodyMatcher {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private String actual;
+        private boolean found;
+        private String error;
+
+        Matcher(JsonParser parser) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        @Override
+        public void update(byte[] chunk, int length) {
+            try {
+                feeder.feedInput(chunk, 0, length);
+                advance();
+            } catch (IOException e) {
+                error = invalidJson(e);
+            }
+        }
+
+        // Consumes every token the input fed so far allows
+        private void advance() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (token.isScalarValue() && pointer.equals(parser.getParsingContext().pathAsPointer())) {
+                    actual = token == JsonToken.VALUE_NULL ? "null" : parser.getText();
+                    found = true;
+                    close();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean decided() {
+            return found || error != null;
+        }
+
+        @Override
+        public String finish(boolean truncated) {
+            if (!decided() && !truncated) {
+                try {
+                    feeder.endOfInput();
+                    advance();
+                } catch (IOException e) {
+                    error = invalidJson(e);
+                }
+            }
+            close();
+            if (error != null) {
+                return error;
+            }
+            if (!found) {
+                return "No value at " + pointer + (truncated ? " within the size limit" : "");
+            }
+            return expected.equals(actual) ? null : "Expected \"" + expected + "\" at " + pointer + " but got \"" + actual + "\"";
+        }
+
+        private String invalidJson(IOException e) {
+            return "Body is not valid JSON: "
+                    + (e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage());
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException e) {
+                // Nothing to release for an in-memory feeder
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pingtower.ping_worker.check.body;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Pattern;
+
+/**
+ * Passes if the pattern is found in the body. The body is decoded as it arrives and searched in a
+ * window made of the new chunk and the last {@code windowChars} characters before it, so memory
+ * stays bounded; a match longer than the window can be missed.
+ */
+final class RegexAssertion implements BodyAssertion {
+
+    private final Pattern pattern;
+    private final int windowChars;
+
+    RegexAssertion(String regex, int windowChars) {
+        if (regex == null || regex.isEmpty()) {
+            throw new IllegalArgumentException("'pattern' of a regex assertion must not be empty");
+        }
+        this.pattern = Pattern.compile(regex);
+        this.windowChars = windowChars;
+    }
+
+    @Override
+    public BodyMatcher newMatcher(Charset charset) {
+        return new Matcher(charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    @Override
+    public String describe() {
+        return "regex /" + pattern.pattern() + "/";
+    }
+
+    private final class Matcher implements BodyMatcher {
+
+        private final CharsetDecoder decoder;
+        private final StringBuilder window = new StringBuilder();
+        private byte[] leftover = new byte[0]; // Incomplete multi-byte character at the end of the last chunk
+        private boolean found;
+
+        Matcher(CharsetDecoder decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void update(byte[] chunk, int length) {
+            ByteBuffer in = ByteBuffer.allocate(leftover.length + length).put(leftover).put(chunk, 0, length).flip();
+            CharBuffer out = CharBuffer.allocate((int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte()));
+            decoder.decode(in, out, false);
+            leftover = new byte[in.remaining()];
+            in.get(leftover);
+            window.append(out.flip());
+
+            if (pattern.matcher(window).find()) {
+                found = true;
+                window.setLength(0);
+                return;
+            }
+            if (window.length() > windowChars) {
+                window.delete(0, window.length() - windowChars);
+            }
+        }
+
+        @Override
+        public boolean decided() {
+            return found;
+        }
+
+        @Override
+        public String finish(boolean truncated) {
+            if (found) {
+                return null;
+            }
+            return "Body does not match /" + pattern.pattern() + "/" + (truncated ? " within the size limit" : "");
+        }
+    }
+}
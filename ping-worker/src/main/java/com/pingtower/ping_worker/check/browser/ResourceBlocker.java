@@ -0,0 +1,103 @@
+package com.pingtower.ping_worker.check.browser;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.check.pool.BrowserTab;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.devtools.v124.network.Network;
+import org.openqa.selenium.devtools.v124.network.model.ResourceType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps browser checks from loading what they do not need, such as media, fonts and trackers.
+ * <p>
+ * The check's rules are pushed to its tab before navigation: URL patterns through
+ * {@code Network.setBlockedURLs} and resource types by pausing them in the {@code Fetch} domain and
+ * failing them as blocked by client. Every check gets a fresh browser context, so rules never carry
+ * over to the next check.
+ */
+@Slf4j
+@Component
+public class ResourceBlocker {
+
+    private final boolean enabled;
+    private final ResourceBlockingRules defaultRules;
+
+    public ResourceBlocker(@Value("${ping-worker.browser.blocking.enabled:true}") boolean enabled,
+                           @Value("${ping-worker.browser.blocking.resource-types:Media,Font}") List<String> resourceTypes,
+                           @Value("${ping-worker.browser.blocking.urls:}") List<String> urlPatterns) {
+        this.enabled = enabled;
+        this.defaultRules = new ResourceBlockingRules(parseTypes(resourceTypes), clean(urlPatterns));
+    }
+
+    /**
+     * Applies the check's blocking rules to a freshly leased tab. A failure is logged and the check
+     * runs without blocking rather than failing.
+     */
+    public void apply(BrowserTab tab, CheckSpec spec) {
+        ResourceBlockingRules rules = enabled ? rulesFor(spec) : ResourceBlockingRules.NONE;
+        if (rules.isEmpty()) {
+            return;
+        }
+        try {
+            if (!rules.getUrlPatterns().isEmpty()) {
+                tab.send(Network.enable(Optional.empty(), Optional.empty(), Optional.empty()));
+                tab.send(Network.setBlockedURLs(rules.getUrlPatterns()));
+            }
+            if (!rules.getResourceTypes().isEmpty()) {
+                tab.blockResourceTypes(rules.getResourceTypes());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply resource blocking rules for check ID {}: {}", spec.getCheckId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Check config overrides the defaults per dimension: {@code "blocked_resource_types"} and
+     * {@code "blocked_urls"} replace the configured lists, {@code "resource_blocking": false}
+     * turns blocking off for the check.
+     */
+    ResourceBlockingRules rulesFor(CheckSpec spec) {
+        if (Boolean.FALSE.equals(spec.getResourceBlocking())) {
+            return ResourceBlockingRules.NONE;
+        }
+        if (spec.getBlockedResourceTypes() == null && spec.getBlockedUrls() == null) {
+            return defaultRules;
+        }
+        return new ResourceBlockingRules(
+                spec.getBlockedResourceTypes() != null ? parseTypes(spec.getBlockedResourceTypes()) : defaultRules.getResourceTypes(),
+                spec.getBlockedUrls() != null ? clean(spec.getBlockedUrls()) : defaultRules.getUrlPatterns());
+    }
+
+    private static Set<ResourceType> parseTypes(List<String> names) {
+        Set<ResourceType> types = EnumSet.noneOf(ResourceType.class);
+        for (String name : clean(names)) {
+            Optional<ResourceType> type = Arrays.stream(ResourceType.values())
+                    .filter(candidate -> candidate.toString().equalsIgnoreCase(name))
+                    .findFirst();
+            if (type.isEmpty()) {
+                log.warn("Ignoring unknown resource type '{}' in blocking rules", name);
+            } else if (type.get() == ResourceType.DOCUMENT) {
+                log.warn("Ignoring resource type 'Document' in blocking rules, it would block the checked page itself");
+            } else {
+                types.add(type.get());
+            }
+        }
+        return Set.copyOf(types);
+    }
+
+    private static List<String> clean(List<String> values) {
+        return values.stream()
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .distinct()
+                .collect(Collectors.toUnmodifiableList());
+    }
+}
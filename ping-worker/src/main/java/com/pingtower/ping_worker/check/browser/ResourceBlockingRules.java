@@ -0,0 +1,24 @@
+package com.pingtower.ping_worker.check.browser;
+
+import lombok.Value;
+import org.openqa.selenium.devtools.v124.network.model.ResourceType;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resolved set of requests a browser check should not load: URL patterns for
+ * {@code Network.setBlockedURLs} and resource types failed through the {@code Fetch} domain.
+ */
+@Value
+public class ResourceBlockingRules {
+
+    public static final ResourceBlockingRules NONE = new ResourceBlockingRules(Set.of(), List.of());
+
+    Set<ResourceType> resourceTypes;
+    List<String> urlPatterns; // Chrome wildcard patterns, e.g. "*google-analytics.com*"
+
+    public boolean isEmpty() {
+        return resourceTypes.isEmpty() && urlPatterns.isEmpty();
+    }
+}
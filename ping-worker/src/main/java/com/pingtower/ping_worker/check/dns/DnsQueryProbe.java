@@ -0,0 +1,145 @@
+package com.pingtower.ping_worker.check.dns;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.dns.DefaultDnsQuestion;
+import io.netty.handler.codec.dns.DefaultDnsRecordDecoder;
+import io.netty.handler.codec.dns.DnsRawRecord;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.DnsSection;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.NoopDnsCache;
+import io.netty.resolver.dns.NoopDnsCnameCache;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends single DNS queries over UDP, falling back to TCP for truncated answers, and reports the
+ * raw response.
+ * <p>
+ * Unlike {@link com.pingtower.ping_worker.dns.CachingDnsResolver}, nothing is cached and the
+ * response code is kept, so a DNS check measures the name server rather than the worker's cache.
+ * All queries share one event loop thread; the UDP socket is non-blocking, so outstanding queries
+ * cost memory rather than threads.
+ */
+@Component
+public class DnsQueryProbe {
+
+    private final NioEventLoopGroup eventLoopGroup;
+    private final DnsNameResolver resolver;
+
+    public DnsQueryProbe(@Value("${ping-worker.dns-check.timeout-ms:5000}") long queryTimeoutMs) {
+        this.eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("dns-probe", true));
+        this.resolver = new DnsNameResolverBuilder(eventLoopGroup.next())
+                .channelType(NioDatagramChannel.class)
+                .socketChannelType(NioSocketChannel.class)
+                .resolveCache(NoopDnsCache.INSTANCE)
+                .cnameCache(NoopDnsCnameCache.INSTANCE)
+                .queryTimeoutMillis(queryTimeoutMs)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        resolver.close();
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queries {@code name} for records of {@code type}, at {@code nameServer} or, if it is null, at
+     * the system's configured name servers. The future fails for timeouts and network errors only;
+     * error response codes such as NXDOMAIN are results.
+     */
+    public CompletableFuture<DnsQueryResult> query(String name, DnsRecordType type, InetSocketAddress nameServer) {
+        CompletableFuture<DnsQueryResult> result = new CompletableFuture<>();
+        DefaultDnsQuestion question = new DefaultDnsQuestion(name, type);
+        long start = System.nanoTime();
+        Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> query = nameServer != null
+                ? resolver.query(nameServer, question)
+                : resolver.query(question);
+        query.addListener((Future<AddressedEnvelope<DnsResponse, InetSocketAddress>> future) -> {
+            if (!future.isSuccess()) {
+                result.completeExceptionally(future.cause());
+                return;
+            }
+            long queryMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            AddressedEnvelope<DnsResponse, InetSocketAddress> envelope = future.getNow();
+            try {
+                result.complete(parse(envelope.content(), type, envelope.sender(), queryMs));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                envelope.release();
+            }
+        });
+        return result;
+    }
+
+    private static DnsQueryResult parse(DnsResponse response, DnsRecordType type, InetSocketAddress server, long queryMs) {
+        List<String> answers = new ArrayList<>();
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < response.count(DnsSection.ANSWER); i++) {
+            DnsRecord record = response.recordAt(DnsSection.ANSWER, i);
+            String value = value(record);
+            records.add(record.type().name() + " " + value);
+            if (record.type().equals(type)) {
+                answers.add(value);
+            }
+        }
+        String codeName = response.code().toString().replaceFirst("\\(\\d+\\)$", "");
+        return new DnsQueryResult(response.code().intValue(), codeName, List.copyOf(answers), List.copyOf(records),
+                server != null ? NetUtil.toSocketAddressString(server) : null, queryMs);
+    }
+
+    private static String value(DnsRecord record) {
+        if (!(record instanceof DnsRawRecord raw)) {
+            return "";
+        }
+        ByteBuf content = raw.content().duplicate();
+        DnsRecordType type = record.type();
+        if (type.equals(DnsRecordType.A) || type.equals(DnsRecordType.AAAA)) {
+            byte[] address = new byte[content.readableBytes()];
+            content.readBytes(address);
+            return NetUtil.bytesToIpAddress(address);
+        }
+        if (type.equals(DnsRecordType.CNAME) || type.equals(DnsRecordType.NS) || type.equals(DnsRecordType.PTR)) {
+            return withoutRootDot(DefaultDnsRecordDecoder.decodeName(content));
+        }
+        if (type.equals(DnsRecordType.MX)) {
+            int preference = content.readUnsignedShort();
+            return preference + " " + withoutRootDot(DefaultDnsRecordDecoder.decodeName(content));
+        }
+        if (type.equals(DnsRecordType.TXT)) {
+            // One or more length-prefixed character strings
+            StringBuilder text = new StringBuilder();
+            while (content.isReadable()) {
+                int length = content.readUnsignedByte();
+                text.append(content.readCharSequence(Math.min(length, content.readableBytes()), StandardCharsets.UTF_8));
+            }
+            return text.toString();
+        }
+        return ByteBufUtil.hexDump(content);
+    }
+
+    private static String withoutRootDot(String name) {
+        return name.endsWith(".") && name.length() > 1 ? name.substring(0, name.length() - 1) : name;
+    }
+}
@@ -0,0 +1,23 @@
+package com.pingtower.ping_worker.check.dns;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link DnsQueryProbe}: the response code, the answers of the queried type and every
+ * record of the answer section for diagnostics.
+ */
+@Value
+public class DnsQueryResult {
+    int responseCode; // RCODE, 0 for NOERROR
+    String responseCodeName; // e.g. "NoError", "NXDomain"
+    List<String> answers; // Values of the queried type, names without the trailing dot
+    List<String> records; // "type value" for every answer record, including CNAMEs followed
+    String server; // Name server that answered
+    long queryMs;
+
+    public boolean isNoError() {
+        return responseCode == 0;
+    }
+}
@@ -0,0 +1,395 @@
+package com.pingtower.ping_worker.check.pool;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Hands out isolated browser tabs from a small number of shared Chrome processes.
+ * <p>
+ * A Chrome process costs hundreds of MB, a browser context in it only a few, so instead of one
+ * process per concurrent check each process serves up to {@code contexts-per-process} checks at
+ * once, each in its own incognito-like context.
+ * <p>
+ * The number of processes follows demand: a new one is launched when a check finds every process
+ * full, as long as {@code max-processes} is not reached and the container has
+ * {@code launch-headroom-mb} of memory left, and processes idle for {@code idle-timeout-seconds}
+ * are shut down down to {@code min-processes}. Long-lived Chrome processes grow, so a process is
+ * retired after {@code recycle-after-contexts} tabs, {@code recycle-after-minutes}, or when the
+ * watchdog sees its process tree above {@code max-memory-mb}. A retired process takes no new tabs
+ * and is quit once its last tab is closed.
+ */
+@Slf4j
+@Component
+public class BrowserContextPool {
+
+    private final ChromeProcessFactory factory;
+    private final MeterRegistry meterRegistry;
+    private final int minProcesses;
+    private final int maxProcesses;
+    private final int contextsPerProcess;
+    private final Duration commandTimeout;
+    private final int recycleAfterContexts;
+    private final long recycleAfterMillis;
+    private final long maxMemoryBytes;
+    private final long idleTimeoutMillis;
+    private final long launchHeadroomBytes;
+    private final long watchdogIntervalSeconds;
+    private final Semaphore slots;
+    private final Counter blockedRequests;
+    private final ScheduledExecutorService watchdog;
+
+    // Guarded by this
+    private final List<ChromeProcess> processes = new ArrayList<>();
+    private int launching;
+
+    private volatile long totalMemoryBytes;
+
+    public BrowserContextPool(ChromeProcessFactory factory,
+                              MeterRegistry meterRegistry,
+                              @Value("${ping-worker.browser.min-processes:1}") int minProcesses,
+                              @Value("${ping-worker.browser.max-processes:4}") int maxProcesses,
+                              @Value("${ping-worker.browser.contexts-per-process:8}") int contextsPerProcess,
+                              @Value("${ping-worker.browser.command-timeout-ms:10000}") long commandTimeoutMs,
+                              @Value("${ping-worker.browser.recycle-after-contexts:500}") int recycleAfterContexts,
+                              @Value("${ping-worker.browser.recycle-after-minutes:30}") long recycleAfterMinutes,
+                              @Value("${ping-worker.browser.max-memory-mb:1536}") long maxMemoryMb,
+                              @Value("${ping-worker.browser.idle-timeout-seconds:300}") long idleTimeoutSeconds,
+                              @Value("${ping-worker.browser.launch-headroom-mb:768}") long launchHeadroomMb,
+                              @Value("${ping-worker.browser.watchdog-interval-seconds:15}") long watchdogIntervalSeconds) {
+        this.factory = factory;
+        this.meterRegistry = meterRegistry;
+        this.minProcesses = Math.min(minProcesses, maxProcesses);
+        this.maxProcesses = maxProcesses;
+        this.contextsPerProcess = contextsPerProcess;
+        this.commandTimeout = Duration.ofMillis(commandTimeoutMs);
+        this.recycleAfterContexts = recycleAfterContexts;
+        this.recycleAfterMillis = TimeUnit.MINUTES.toMillis(recycleAfterMinutes);
+        this.maxMemoryBytes = maxMemoryMb * 1024 * 1024;
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        this.launchHeadroomBytes = launchHeadroomMb * 1024 * 1024;
+        this.watchdogIntervalSeconds = watchdogIntervalSeconds;
+        this.slots = new Semaphore(maxProcesses * contextsPerProcess, true);
+        this.blockedRequests = Counter.builder("pingtower.browser.blocked.requests")
+                .description("Browser check requests failed by resource type rules")
+                .register(meterRegistry);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BrowserPoolWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("pingtower.browser.processes", this, pool -> pool.processCount())
+                .description("Running Chrome processes")
+                .register(meterRegistry);
+        Gauge.builder("pingtower.browser.contexts.active", slots,
+                        semaphore -> maxProcesses * contextsPerProcess - semaphore.availablePermits())
+                .description("Browser contexts leased to checks")
+                .register(meterRegistry);
+        Gauge.builder("pingtower.browser.memory", this, pool -> pool.totalMemoryBytes)
+                .description("Memory of all Chrome process trees at the last watchdog run")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        log.info("Setting up Selenium WebDriverManager for Chrome...");
+        try {
+            WebDriverManager.chromedriver().setup();
+            log.info("WebDriverManager for Chrome setup.");
+        } catch (Exception e) {
+            log.error("Failed to setup WebDriverManager for Chrome", e);
+        }
+        // The first run pre-warms the pool up to min-processes
+        watchdog.scheduleWithFixedDelay(this::inspect, 0, watchdogIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        watchdog.shutdownNow();
+        List<ChromeProcess> all;
+        synchronized (this) {
+            all = new ArrayList<>(processes);
+            processes.clear();
+        }
+        all.forEach(ChromeProcess::quit);
+    }
+
+    /**
+     * Leases a blank page in a fresh browser context. The caller must close the tab.
+     *
+     * @throws TimeoutException if no context becomes available within {@code timeout}
+     */
+    public BrowserTab acquire(Duration timeout) throws InterruptedException, TimeoutException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        if (!slots.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new TimeoutException("No browser context became available within " + timeout.toMillis() + " ms");
+        }
+        ChromeProcess process = null;
+        try {
+            process = reserve(deadline);
+            return process.openTab();
+        } catch (InterruptedException | TimeoutException | RuntimeException e) {
+            if (process != null) {
+                process.broken = true;
+                log.warn("Failed to open a browser context: {}", e.getMessage());
+                unreserve(process);
+            }
+            slots.release();
+            throw e;
+        }
+    }
+
+    void release(BrowserTab tab) {
+        ChromeProcess process = tab.process();
+        try {
+            process.closeTab(tab);
+        } finally {
+            unreserve(process);
+            slots.release();
+        }
+    }
+
+    /**
+     * Takes a context slot on the least loaded accepting process, launching a new process when all
+     * of them are full and limits and memory allow it.
+     */
+    private ChromeProcess reserve(long deadline) throws InterruptedException, TimeoutException {
+        synchronized (this) {
+            while (true) {
+                ChromeProcess candidate = processes.stream()
+                        .filter(process -> process.accepting() && process.active < contextsPerProcess)
+                        .min(Comparator.comparingInt(process -> process.active))
+                        .orElse(null);
+                if (candidate != null) {
+                    candidate.active++;
+                    if (++candidate.served >= recycleAfterContexts && recycleAfterContexts > 0) {
+                        markRetiring(candidate, "uses");
+                    }
+                    return candidate;
+                }
+                if (mayLaunch()) {
+                    launching++;
+                    break;
+                }
+                // Wait for a tab to close or a launch to finish
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new TimeoutException("All browser contexts are busy and no Chrome process can be added");
+                }
+                wait(remaining);
+            }
+        }
+
+        ChromeProcess launched = null;
+        try {
+            launched = launch();
+            return launched;
+        } finally {
+            synchronized (this) {
+                launching--;
+                if (launched != null) {
+                    launched.active++;
+                    launched.served++;
+                    processes.add(launched);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Called with the lock held
+    private boolean mayLaunch() {
+        long running = processes.stream().filter(ChromeProcess::accepting).count() + launching;
+        if (running >= maxProcesses) {
+            return false;
+        }
+        if (running < minProcesses) {
+            return true;
+        }
+        OptionalLong available = ProcessMemory.availableBytes();
+        if (available.isPresent() && available.getAsLong() < launchHeadroomBytes) {
+            log.debug("Not launching another Chrome process, only {} MB of memory available",
+                    available.getAsLong() / (1024 * 1024));
+            return false;
+        }
+        return true;
+    }
+
+    private void unreserve(ChromeProcess process) {
+        boolean quit;
+        synchronized (this) {
+            process.active--;
+            if (process.active == 0) {
+                process.idleSinceMillis = System.currentTimeMillis();
+            }
+            if (process.broken) {
+                markRetiring(process, "broken");
+            }
+            quit = process.retireReason != null && process.active == 0 && processes.remove(process);
+            notifyAll();
+        }
+        if (quit) {
+            process.quit();
+        }
+    }
+
+    /**
+     * Stops handing out tabs from the process and quits it right away if it has none open.
+     */
+    private void retire(ChromeProcess process, String reason) {
+        boolean quit;
+        synchronized (this) {
+            markRetiring(process, reason);
+            quit = process.active == 0 && processes.remove(process);
+            notifyAll();
+        }
+        if (quit) {
+            process.quit();
+        }
+    }
+
+    // Called with the lock held
+    private void markRetiring(ChromeProcess process, String reason) {
+        if (process.retireReason == null) {
+            process.retireReason = reason;
+            meterRegistry.counter("pingtower.browser.recycled", "reason", reason).increment();
+            log.info("Retiring Chrome process ({}) after {} contexts and {} s, memory {} MB",
+                    reason, process.served, process.ageMillis(System.currentTimeMillis()) / 1000,
+                    process.memoryBytes >= 0 ? process.memoryBytes / (1024 * 1024) : "unknown");
+        }
+    }
+
+    /**
+     * Watchdog pass: recycles old, oversized and dead processes, shrinks idle capacity, sheds the
+     * largest process when the container runs low on memory and keeps {@code min-processes} warm.
+     */
+    private void inspect() {
+        try {
+            long now = System.currentTimeMillis();
+            List<ChromeProcess> snapshot;
+            synchronized (this) {
+                snapshot = new ArrayList<>(processes);
+            }
+
+            long total = 0;
+            for (ChromeProcess process : snapshot) {
+                long memory = process.readMemoryBytes();
+                total += Math.max(memory, 0);
+                if (!process.isAlive()) {
+                    process.broken = true;
+                    retire(process, "crashed");
+                } else if (maxMemoryBytes > 0 && memory > maxMemoryBytes) {
+                    retire(process, "memory");
+                } else if (recycleAfterMillis > 0 && process.ageMillis(now) > recycleAfterMillis) {
+                    retire(process, "age");
+                }
+            }
+            totalMemoryBytes = total;
+
+            shrinkIdle(now);
+            shedUnderMemoryPressure();
+            warmUp();
+        } catch (Exception e) {
+            log.error("Browser pool watchdog failed", e);
+        }
+    }
+
+    private void shrinkIdle(long now) {
+        if (idleTimeoutMillis <= 0) {
+            return;
+        }
+        List<ChromeProcess> idle = new ArrayList<>();
+        synchronized (this) {
+            long accepting = processes.stream().filter(ChromeProcess::accepting).count();
+            for (ChromeProcess process : processes) {
+                if (accepting <= minProcesses) {
+                    break;
+                }
+                if (process.accepting() && process.active == 0 && now - process.idleSinceMillis > idleTimeoutMillis) {
+                    idle.add(process);
+                    accepting--;
+                }
+            }
+        }
+        idle.forEach(process -> retire(process, "idle"));
+    }
+
+    private void shedUnderMemoryPressure() {
+        OptionalLong available = ProcessMemory.availableBytes();
+        // Below half the launch headroom the next renderer spike may get the pod OOM-killed
+        if (available.isEmpty() || available.getAsLong() >= launchHeadroomBytes / 2) {
+            return;
+        }
+        ChromeProcess largest;
+        synchronized (this) {
+            List<ChromeProcess> accepting = processes.stream().filter(ChromeProcess::accepting).toList();
+            if (accepting.size() <= 1) {
+                return;
+            }
+            largest = accepting.stream().max(Comparator.comparingLong(process -> process.memoryBytes)).orElseThrow();
+        }
+        retire(largest, "pressure");
+    }
+
+    private void warmUp() {
+        while (true) {
+            synchronized (this) {
+                long running = processes.stream().filter(ChromeProcess::accepting).count() + launching;
+                if (running >= minProcesses) {
+                    return;
+                }
+                launching++;
+            }
+            ChromeProcess launched = null;
+            try {
+                launched = launch();
+            } catch (RuntimeException e) {
+                log.error("Failed to pre-warm browser pool", e);
+                return;
+            } finally {
+                synchronized (this) {
+                    launching--;
+                    if (launched != null) {
+                        processes.add(launched);
+                    }
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private ChromeProcess launch() {
+        long start = System.currentTimeMillis();
+        ChromeProcessFactory.Launched launched = factory.launch();
+        try {
+            ChromeProcess process = new ChromeProcess(this, launched, commandTimeout, blockedRequests);
+            log.info("Launched Chrome process in {} ms", System.currentTimeMillis() - start);
+            return process;
+        } catch (RuntimeException e) {
+            launched.driver().quit();
+            throw e;
+        }
+    }
+
+    private synchronized int processCount() {
+        return processes.size();
+    }
+}
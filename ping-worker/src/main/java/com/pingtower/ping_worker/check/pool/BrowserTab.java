@@ -0,0 +1,126 @@
+package com.pingtower.ping_worker.check.pool;
+
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.idealized.target.model.SessionID;
+import org.openqa.selenium.devtools.v124.browser.model.BrowserContextID;
+import org.openqa.selenium.devtools.v124.fetch.Fetch;
+import org.openqa.selenium.devtools.v124.fetch.model.RequestPattern;
+import org.openqa.selenium.devtools.v124.fetch.model.RequestPaused;
+import org.openqa.selenium.devtools.v124.fetch.model.RequestStage;
+import org.openqa.selenium.devtools.v124.network.model.ErrorReason;
+import org.openqa.selenium.devtools.v124.network.model.ResourceType;
+import org.openqa.selenium.devtools.v124.runtime.Runtime;
+import org.openqa.selenium.devtools.v124.target.model.TargetID;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A single page in its own browser context, leased to one check at a time.
+ * <p>
+ * The context has its own cookies, cache and storage, so nothing leaks between checks that share a
+ * Chrome process. All commands go over the process's CDP connection, scoped to this page's session.
+ * Closing the tab disposes the whole context and gives the slot back to the pool.
+ */
+public class BrowserTab implements AutoCloseable {
+
+    private final ChromeProcess process;
+    private final BrowserContextID contextId;
+    private final TargetID targetId;
+    private final SessionID sessionId;
+    private final Duration commandTimeout;
+    private volatile Set<ResourceType> blockedTypes = Set.of();
+    private boolean closed;
+
+    BrowserTab(ChromeProcess process, BrowserContextID contextId, TargetID targetId, SessionID sessionId,
+               Duration commandTimeout) {
+        this.process = process;
+        this.contextId = contextId;
+        this.targetId = targetId;
+        this.sessionId = sessionId;
+        this.commandTimeout = commandTimeout;
+    }
+
+    public <X> X send(Command<X> command) {
+        return send(command, commandTimeout);
+    }
+
+    public <X> X send(Command<X> command, Duration timeout) {
+        return process.connection().sendAndWait(sessionId, command, timeout);
+    }
+
+    /**
+     * Evaluates the expression in the page and returns its value, or {@code null} for undefined.
+     */
+    public Object evaluate(String expression) {
+        Runtime.EvaluateResponse response = send(Runtime.evaluate(expression, Optional.empty(), Optional.empty(),
+                Optional.of(true), Optional.empty(), Optional.of(true), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty(), Optional.empty()));
+        if (response.getExceptionDetails().isPresent()) {
+            throw new IllegalStateException("Script failed: " + response.getExceptionDetails().get().getText());
+        }
+        return response.getResult().getValue().orElse(null);
+    }
+
+    /**
+     * Fails requests of the given types as blocked by client. Requests are paused through the
+     * {@code Fetch} domain and resolved by the process's event listener.
+     */
+    public void blockResourceTypes(Set<ResourceType> types) {
+        blockedTypes = Set.copyOf(types);
+        if (types.isEmpty()) {
+            send(Fetch.disable());
+            return;
+        }
+        List<RequestPattern> patterns = types.stream()
+                .map(type -> new RequestPattern(Optional.of("*"), Optional.of(type), Optional.of(RequestStage.REQUEST)))
+                .collect(Collectors.toList());
+        send(Fetch.enable(Optional.of(patterns), Optional.of(false)));
+    }
+
+    boolean interceptsRequests() {
+        return !blockedTypes.isEmpty();
+    }
+
+    /**
+     * Fails or continues a paused request in this tab's session. Completes exceptionally if the
+     * request does not belong to this tab.
+     */
+    CompletableFuture<Boolean> resolve(RequestPaused paused) {
+        if (blockedTypes.contains(paused.getResourceType())) {
+            return process.connection()
+                    .send(sessionId, Fetch.failRequest(paused.getRequestId(), ErrorReason.BLOCKEDBYCLIENT))
+                    .thenApply(ignored -> true);
+        }
+        // Paused by a pattern that has been replaced since
+        return process.connection()
+                .send(sessionId, Fetch.continueRequest(paused.getRequestId(), Optional.empty(), Optional.empty(),
+                        Optional.empty(), Optional.empty(), Optional.empty()))
+                .thenApply(ignored -> false);
+    }
+
+    BrowserContextID contextId() {
+        return contextId;
+    }
+
+    TargetID targetId() {
+        return targetId;
+    }
+
+    ChromeProcess process() {
+        return process;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            process.pool().release(this);
+        }
+    }
+}
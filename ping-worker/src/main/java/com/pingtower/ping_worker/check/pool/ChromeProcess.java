@@ -0,0 +1,189 @@
+package com.pingtower.ping_worker.check.pool;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.devtools.Connection;
+import org.openqa.selenium.devtools.SeleniumCdpConnection;
+import org.openqa.selenium.devtools.idealized.target.model.SessionID;
+import org.openqa.selenium.devtools.v124.browser.model.BrowserContextID;
+import org.openqa.selenium.devtools.v124.fetch.Fetch;
+import org.openqa.selenium.devtools.v124.fetch.model.RequestPaused;
+import org.openqa.selenium.devtools.v124.page.Page;
+import org.openqa.selenium.devtools.v124.target.Target;
+import org.openqa.selenium.devtools.v124.target.model.TargetID;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One headless Chrome process and its CDP connection, serving several {@link BrowserTab}s at once.
+ * Slot accounting is done by {@link BrowserContextPool} under its own lock.
+ */
+@Slf4j
+class ChromeProcess {
+
+    private final BrowserContextPool pool;
+    private final ChromeDriver driver;
+    private final ProcessHandle driverProcess; // null if it could not be found
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final Connection connection;
+    private final Duration commandTimeout;
+    private final Counter blockedRequests;
+    private final Map<String, BrowserTab> tabs = new ConcurrentHashMap<>(); // By target id
+    private final Map<String, BrowserTab> subframes = new ConcurrentHashMap<>(); // By frame id
+
+    // Guarded by the pool
+    int active;
+    int served;
+    long idleSinceMillis = startedAtMillis;
+    String retireReason; // Set once the process takes no new tabs; it is quit when its last tab closes
+
+    volatile boolean broken;
+    volatile long memoryBytes = -1; // Last watchdog reading
+
+    ChromeProcess(BrowserContextPool pool, ChromeProcessFactory.Launched launched, Duration commandTimeout,
+                  Counter blockedRequests) {
+        this.pool = pool;
+        this.driver = launched.driver();
+        this.driverProcess = launched.driverProcess().orElse(null);
+        this.commandTimeout = commandTimeout;
+        this.blockedRequests = blockedRequests;
+        this.connection = SeleniumCdpConnection.create(this.driver)
+                .orElseThrow(() -> new IllegalStateException("Chrome did not expose a DevTools endpoint"));
+        connection.addListener(Fetch.requestPaused(), (sequence, paused) -> onRequestPaused(paused));
+        connection.addListener(Page.frameAttached(), (sequence, attached) ->
+                onFrameAttached(attached.getFrameId().toString(), attached.getParentFrameId().toString()));
+        connection.addListener(Page.frameDetached(), (sequence, detached) ->
+                subframes.remove(detached.getFrameId().toString()));
+    }
+
+    /**
+     * Creates a fresh browser context with a single blank page and attaches to that page.
+     */
+    BrowserTab openTab() {
+        BrowserContextID contextId = connection.sendAndWait(null, Target.createBrowserContext(
+                Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()), commandTimeout);
+        try {
+            TargetID targetId = connection.sendAndWait(null, Target.createTarget("about:blank",
+                    Optional.of(1920), Optional.of(1080), Optional.of(contextId),
+                    Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()), commandTimeout);
+            // Flattened sessions let every tab share this process's single connection
+            org.openqa.selenium.devtools.v124.target.model.SessionID session = connection.sendAndWait(null,
+                    Target.attachToTarget(targetId, Optional.of(true)), commandTimeout);
+            BrowserTab tab = new BrowserTab(this, contextId, targetId, new SessionID(session.toString()), commandTimeout);
+            // Frame events tell which page a subframe's paused requests belong to
+            tab.send(Page.enable());
+            tabs.put(targetId.toString(), tab);
+            return tab;
+        } catch (RuntimeException e) {
+            disposeContext(contextId);
+            throw e;
+        }
+    }
+
+    /**
+     * Disposes the tab's context, which closes its page and drops its cookies, cache and storage.
+     */
+    void closeTab(BrowserTab tab) {
+        tabs.remove(tab.targetId().toString());
+        subframes.values().removeIf(owner -> owner == tab);
+        disposeContext(tab.contextId());
+    }
+
+    private void disposeContext(BrowserContextID contextId) {
+        try {
+            connection.sendAndWait(null, Target.disposeBrowserContext(contextId), commandTimeout);
+        } catch (RuntimeException e) {
+            // A context that cannot be disposed means the process is no longer trustworthy
+            broken = true;
+            log.warn("Failed to dispose browser context {}, retiring the Chrome process: {}", contextId, e.getMessage());
+        }
+    }
+
+    private void onRequestPaused(RequestPaused paused) {
+        // CDP events do not say which session they came from here, so the frame names the tab: a
+        // page's main frame id equals its target id, and subframes are recorded as they attach.
+        String frameId = paused.getFrameId().toString();
+        BrowserTab owner = tabs.get(frameId);
+        if (owner == null) {
+            owner = subframes.get(frameId);
+        }
+        if (owner == null) {
+            // Answering on another tab's session would fail or resolve the wrong request
+            log.debug("Dropping paused request {} of unknown frame {}", paused.getRequestId(), frameId);
+            return;
+        }
+        countBlocked(owner.resolve(paused));
+    }
+
+    private void onFrameAttached(String frameId, String parentFrameId) {
+        BrowserTab owner = tabs.get(parentFrameId);
+        if (owner == null) {
+            owner = subframes.get(parentFrameId);
+        }
+        if (owner != null) {
+            subframes.put(frameId, owner);
+        }
+    }
+
+    private void countBlocked(CompletableFuture<Boolean> resolution) {
+        resolution.whenComplete((blocked, error) -> {
+            if (Boolean.TRUE.equals(blocked)) {
+                blockedRequests.increment();
+            }
+        });
+    }
+
+    boolean accepting() {
+        return retireReason == null && !broken;
+    }
+
+    boolean isAlive() {
+        return driverProcess == null || driverProcess.isAlive();
+    }
+
+    long ageMillis(long now) {
+        return now - startedAtMillis;
+    }
+
+    /**
+     * Memory of chromedriver and every Chrome process under it, or -1 if the tree is unknown.
+     */
+    long readMemoryBytes() {
+        memoryBytes = driverProcess != null ? ProcessMemory.treeBytes(driverProcess) : -1;
+        return memoryBytes;
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    BrowserContextPool pool() {
+        return pool;
+    }
+
+    void quit() {
+        // Children are re-parented once chromedriver exits, so collect them first
+        List<ProcessHandle> tree = driverProcess != null ? driverProcess.descendants().toList() : List.of();
+        try {
+            connection.close();
+        } catch (Exception e) {
+            log.debug("Failed to close DevTools connection", e);
+        }
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.error("Failed to quit Chrome process", e);
+        }
+        // Renderers of a hung browser can outlive quit() and keep their memory
+        tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (driverProcess != null && driverProcess.isAlive()) {
+            driverProcess.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pingtower.ping_worker.check.pool;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Launches the headless Chrome processes that {@link BrowserContextPool} hands out contexts from.
+ * ChromeDriver only owns the process lifecycle; checks talk to the browser over CDP.
+ */
+@Component
+public class ChromeProcessFactory {
+
+    public Launched launch() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--headless");
+        options.addArguments("--disable-gpu");
+        options.addArguments("--no-sandbox");
+        options.addArguments("--disable-dev-shm-usage");
+        options.addArguments("--remote-allow-origins=*");
+        options.addArguments("--disable-blink-features=AutomationControlled");
+        options.addArguments("--disable-extensions");
+        options.addArguments("--disable-images");
+        options.addArguments("--blink-settings=imagesEnabled=false");
+        options.addArguments("--window-size=1920,1080");
+        options.addArguments("user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/125.0.0.0 Safari/537.36");
+        ChromeDriverService service = new ChromeDriverService.Builder().usingAnyFreePort().build();
+        ChromeDriver driver = new ChromeDriver(service, options);
+        return new Launched(driver, findDriverProcess(service.getUrl().getPort()));
+    }
+
+    // Selenium does not expose the chromedriver pid, but starts it with the port it picked
+    private static Optional<ProcessHandle> findDriverProcess(int port) {
+        String portArgument = "--port=" + port;
+        return ProcessHandle.current().children()
+                .filter(process -> process.info().arguments()
+                        .map(arguments -> Arrays.asList(arguments).contains(portArgument))
+                        .orElse(false))
+                .findFirst();
+    }
+
+    /**
+     * A started browser. {@code driverProcess} is the chromedriver process, whose descendants are
+     * Chrome's browser, renderer and helper processes; empty if it could not be found.
+     */
+    public record Launched(ChromeDriver driver, Optional<ProcessHandle> driverProcess) {
+    }
+}
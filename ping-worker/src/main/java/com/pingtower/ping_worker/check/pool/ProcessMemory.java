@@ -0,0 +1,108 @@
+package com.pingtower.ping_worker.check.pool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * Reads process and container memory from {@code /proc} and the cgroup filesystem. Every method
+ * degrades to an empty or zero answer where the files are missing, e.g. outside Linux.
+ */
+final class ProcessMemory {
+
+    private static final Path CGROUP = Path.of("/sys/fs/cgroup");
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+    // cgroup v1 reports a huge number instead of "max" when there is no limit
+    private static final long UNLIMITED_V1 = Long.MAX_VALUE / 2;
+
+    private ProcessMemory() {
+    }
+
+    /**
+     * Resident memory of the process and all its descendants. Uses the proportional set size where
+     * the kernel provides it, so pages shared between Chrome's processes are not counted once per
+     * renderer.
+     */
+    static long treeBytes(ProcessHandle root) {
+        return Stream.concat(Stream.of(root), root.descendants())
+                .mapToLong(process -> residentBytes(process.pid()))
+                .sum();
+    }
+
+    static long residentBytes(long pid) {
+        long pss = kilobytes(Path.of("/proc", Long.toString(pid), "smaps_rollup"), "Pss:");
+        return pss >= 0 ? pss * 1024 : Math.max(kilobytes(Path.of("/proc", Long.toString(pid), "status"), "VmRSS:"), 0) * 1024;
+    }
+
+    /**
+     * Memory still available to this container: the cgroup limit minus its working set, or
+     * {@code MemAvailable} from {@code /proc/meminfo} when there is no limit. The working set is the
+     * usage without inactive file cache, which the kernel reclaims before it runs out of memory,
+     * the same figure the kubelet and {@code docker stats} report.
+     */
+    static OptionalLong availableBytes() {
+        return availableBytes(CGROUP, MEMINFO);
+    }
+
+    static OptionalLong availableBytes(Path cgroupRoot, Path meminfo) {
+        OptionalLong cgroup = cgroupAvailable(cgroupRoot.resolve("memory.max"), cgroupRoot.resolve("memory.current"),
+                cgroupRoot.resolve("memory.stat"), "inactive_file");
+        if (cgroup.isEmpty()) {
+            Path v1 = cgroupRoot.resolve("memory");
+            cgroup = cgroupAvailable(v1.resolve("memory.limit_in_bytes"), v1.resolve("memory.usage_in_bytes"),
+                    v1.resolve("memory.stat"), "total_inactive_file");
+        }
+        if (cgroup.isPresent()) {
+            return cgroup;
+        }
+        long available = kilobytes(meminfo, "MemAvailable:");
+        return available >= 0 ? OptionalLong.of(available * 1024) : OptionalLong.empty();
+    }
+
+    private static OptionalLong cgroupAvailable(Path limitFile, Path usageFile, Path statFile, String inactiveFileKey) {
+        try {
+            String limit = Files.readString(limitFile).trim();
+            if (limit.equals("max") || Long.parseLong(limit) >= UNLIMITED_V1) {
+                return OptionalLong.empty();
+            }
+            long usage = Long.parseLong(Files.readString(usageFile).trim());
+            long workingSet = Math.max(usage - statValue(statFile, inactiveFileKey), 0);
+            return OptionalLong.of(Math.max(Long.parseLong(limit) - workingSet, 0));
+        } catch (IOException | NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    // Value of a "key 123" line of memory.stat, or 0
+    private static long statValue(Path file, String key) {
+        try {
+            for (String line : Files.readAllLines(file)) {
+                int space = line.indexOf(' ');
+                if (space == key.length() && line.startsWith(key)) {
+                    return Long.parseLong(line.substring(space + 1).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Without the breakdown all usage counts as working set
+        }
+        return 0;
+    }
+
+    // Value of a "Key:   123 kB" line, or -1
+    private static long kilobytes(Path file, String key) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            for (String line : lines) {
+                if (line.startsWith(key)) {
+                    return Long.parseLong(line.substring(key.length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Process gone or not Linux
+        }
+        return -1;
+    }
+}
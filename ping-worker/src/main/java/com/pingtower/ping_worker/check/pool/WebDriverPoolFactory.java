@@ -1,52 +0,0 @@
-package com.pingtower.ping_worker.check.pool;
-
-import org.apache.commons.pool2.BasePooledObjectFactory;
-import org.apache.commons.pool2.PooledObject;
-import org.apache.commons.pool2.impl.DefaultPooledObject;
-import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.chrome.ChromeOptions;
-import org.springframework.stereotype.Component;
-
-@Component
-public class WebDriverPoolFactory extends BasePooledObjectFactory<WebDriver> {
-
-    @Override
-    public WebDriver create() throws Exception {
-        ChromeOptions options = new ChromeOptions();
-        options.addArguments("--headless");
-        options.addArguments("--disable-gpu");
-        options.addArguments("--no-sandbox");
-        options.addArguments("--disable-dev-shm-usage");
-        options.addArguments("--remote-allow-origins=*");
-        options.addArguments("--disable-blink-features=AutomationControlled");
-        options.addArguments("--disable-extensions");
-        options.addArguments("--disable-images");
-        options.addArguments("--blink-settings=imagesEnabled=false");
-        options.addArguments("--window-size=1920,1080");
-        options.addArguments("user-agent=Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/125.0.0.0 Safari/537.36");
-        return new ChromeDriver(options);
-    }
-
-    @Override
-    public PooledObject<WebDriver> wrap(WebDriver webDriver) {
-        return new DefaultPooledObject<>(webDriver);
-    }
-
-    @Override
-    public void destroyObject(PooledObject<WebDriver> p) throws Exception {
-        p.getObject().quit();
-        super.destroyObject(p);
-    }
-
-    @Override
-    public boolean validateObject(PooledObject<WebDriver> p) {
-        try {
-            // Check if the browser is still responsive
-            p.getObject().getCurrentUrl();
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-}
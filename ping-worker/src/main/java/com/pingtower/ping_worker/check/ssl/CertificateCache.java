@@ -0,0 +1,65 @@
+package com.pingtower.ping_worker.check.ssl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trusted certificate chains per {@code host:port}.
+ * <p>
+ * A cached chain is reused until {@code ping-worker.ssl.cache-ttl-minutes} have passed or until its
+ * leaf certificate is within {@code ping-worker.ssl.refresh-before-expiry-days} of expiring, after
+ * which every run handshakes again so a renewal is picked up promptly. Other certificates of the
+ * chain do not count: a trusted chain may still carry an expired cross-signed intermediate.
+ */
+@Component
+public class CertificateCache {
+
+    private final long ttlMillis;
+    private final long refreshBeforeExpiryMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CertificateCache(@Value("${ping-worker.ssl.cache-ttl-minutes:360}") long ttlMinutes,
+                            @Value("${ping-worker.ssl.refresh-before-expiry-days:7}") long refreshBeforeExpiryDays) {
+        this.ttlMillis = Duration.ofMinutes(ttlMinutes).toMillis();
+        this.refreshBeforeExpiryMillis = Duration.ofDays(refreshBeforeExpiryDays).toMillis();
+    }
+
+    /** Returns the cached chain, or null if there is none or it must be fetched again. */
+    public List<X509Certificate> get(String host, int port) {
+        String key = key(host, port);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - entry.fetchedAtMillis >= ttlMillis || entry.leafExpiryMillis - now <= refreshBeforeExpiryMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.chain;
+    }
+
+    public void put(String host, int port, List<X509Certificate> chain) {
+        if (ttlMillis <= 0 || chain.isEmpty()) {
+            return;
+        }
+        entries.put(key(host, port), new Entry(chain, System.currentTimeMillis(), chain.get(0).getNotAfter().getTime()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(String host, int port) {
+        return host.toLowerCase() + ":" + port;
+    }
+
+    private record Entry(List<X509Certificate> chain, long fetchedAtMillis, long leafExpiryMillis) {
+    }
+}
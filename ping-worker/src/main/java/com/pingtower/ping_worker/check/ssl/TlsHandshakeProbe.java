@@ -0,0 +1,436 @@
+package com.pingtower.ping_worker.check.ssl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handshake-only TLS probe.
+ * <p>
+ * Each probe opens a non-blocking {@link SocketChannel}, drives an {@link SSLEngine} through the
+ * client handshake and closes the connection as soon as the handshake is done, without sending an
+ * HTTP request. All probes share a single selector thread, so a slow server costs a registered
+ * channel rather than a blocked thread. The CPU-heavy delegated tasks of the engine, such as chain
+ * validation and key exchange, run on a small pool of {@code ping-worker.ssl.task-threads} threads;
+ * the channel is not selected while they run, so one slow handshake does not hold up the others.
+ * <p>
+ * The server chain is captured by the trust manager before it is validated, so an expired or
+ * otherwise untrusted chain is still returned together with the validation error.
+ */
+@Slf4j
+@Component
+public class TlsHandshakeProbe {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final CapturingTrustManager trustManager;
+    private final SSLContext sslContext;
+    private final Queue<Handshake> registrations = new ConcurrentLinkedQueue<>();
+    // Handshakes whose delegated tasks have finished, to be stepped on by the selector thread
+    private final Queue<Handshake> resumptions = new ConcurrentLinkedQueue<>();
+    private final int taskThreads;
+
+    private ExecutorService taskExecutor;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public TlsHandshakeProbe(@Value("${ping-worker.ssl.task-threads:0}") int taskThreads) throws GeneralSecurityException {
+        this.taskThreads = taskThreads > 0 ? taskThreads : Runtime.getRuntime().availableProcessors();
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init((KeyStore) null);
+        X509ExtendedTrustManager delegate = null;
+        for (TrustManager candidate : factory.getTrustManagers()) {
+            if (candidate instanceof X509ExtendedTrustManager extended) {
+                delegate = extended;
+                break;
+            }
+        }
+        if (delegate == null) {
+            throw new IllegalStateException("No X509ExtendedTrustManager available");
+        }
+        this.trustManager = new CapturingTrustManager(delegate);
+        this.sslContext = SSLContext.getInstance("TLS");
+        this.sslContext.init(null, new TrustManager[]{trustManager}, null);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        taskExecutor = Executors.newFixedThreadPool(taskThreads, runnable -> {
+            Thread thread = new Thread(runnable, "TlsHandshakeTask-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        selector = Selector.open();
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "TlsHandshakeProbe");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.close();
+        }
+        if (taskExecutor != null) {
+            taskExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Performs a TLS handshake with {@code address}, presenting {@code host} for SNI and host name
+     * verification. The future never completes exceptionally for handshake or network errors; they
+     * are reported in {@link TlsProbeResult#getFailure()}.
+     */
+    public CompletableFuture<TlsProbeResult> probe(InetSocketAddress address, String host, long timeoutMillis) {
+        Handshake handshake = new Handshake(address, host, timeoutMillis);
+        registrations.add(handshake);
+        selector.wakeup();
+        return handshake.future;
+    }
+
+    private void selectLoop() {
+        Set<Handshake> active = new HashSet<>();
+        while (running) {
+            try {
+                selector.select(nextTimeout(active));
+
+                Handshake registration;
+                while ((registration = registrations.poll()) != null) {
+                    active.add(registration);
+                    registration.start(selector);
+                }
+                Handshake resumed;
+                while ((resumed = resumptions.poll()) != null) {
+                    resumed.resume();
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Handshake handshake = (Handshake) key.attachment();
+                    if (key.isValid() && key.isConnectable()) {
+                        handshake.finishConnect();
+                    } else if (key.isValid()) {
+                        handshake.step();
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                long now = System.nanoTime();
+                for (Handshake handshake : active) {
+                    if (!handshake.future.isDone() && now - handshake.deadline >= 0) {
+                        handshake.fail(new SocketTimeoutException("TLS handshake timed out"));
+                    }
+                }
+                active.removeIf(handshake -> handshake.future.isDone());
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in TLS probe loop", e);
+            }
+        }
+        active.forEach(handshake -> handshake.fail(new IOException("TLS probe stopped")));
+    }
+
+    private static long nextTimeout(Set<Handshake> active) {
+        long now = System.nanoTime();
+        long next = TimeUnit.SECONDS.toNanos(1);
+        for (Handshake handshake : active) {
+            next = Math.min(next, handshake.deadline - now);
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next));
+    }
+
+    /**
+     * State of a single probe; only touched by the selector thread after registration, except for
+     * the engine while its delegated tasks run.
+     */
+    private final class Handshake {
+
+        private final InetSocketAddress address;
+        private final String host;
+        private final long startNanos = System.nanoTime();
+        private final long deadline;
+        private final CompletableFuture<TlsProbeResult> future = new CompletableFuture<>();
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private SSLEngine engine;
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+        private ByteBuffer appIn;
+
+        Handshake(InetSocketAddress address, String host, long timeoutMillis) {
+            this.address = address;
+            this.host = host;
+            this.deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        void start(Selector selector) {
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(address);
+                key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected) {
+                    beginHandshake();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (channel.finishConnect()) {
+                    beginHandshake();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void beginHandshake() throws IOException {
+            engine = sslContext.createSSLEngine(host, address.getPort());
+            engine.setUseClientMode(true);
+            SSLParameters parameters = engine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            engine.setSSLParameters(parameters);
+
+            SSLSession session = engine.getSession();
+            netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            netOut = ByteBuffer.allocate(session.getPacketBufferSize()).flip(); // Kept in read mode
+            appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+
+            engine.beginHandshake();
+            step();
+        }
+
+        void step() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                while (true) {
+                    if (netOut.hasRemaining()) {
+                        channel.write(netOut);
+                        if (netOut.hasRemaining()) {
+                            key.interestOps(SelectionKey.OP_WRITE);
+                            return;
+                        }
+                    }
+
+                    SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                    switch (status) {
+                        case NEED_WRAP -> {
+                            netOut.clear();
+                            SSLEngineResult result = engine.wrap(EMPTY, netOut);
+                            netOut.flip();
+                            if (result.getStatus() == SSLEngineResult.Status.CLOSED && !netOut.hasRemaining()) {
+                                throw new SSLException("TLS engine closed during handshake");
+                            }
+                        }
+                        case NEED_UNWRAP -> {
+                            netIn.flip();
+                            SSLEngineResult result = engine.unwrap(netIn, appIn);
+                            netIn.compact();
+                            appIn.clear(); // Application data is never read
+                            if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                                if (!netIn.hasRemaining()) {
+                                    netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                                }
+                                int read = channel.read(netIn);
+                                if (read < 0) {
+                                    throw new EOFException("Connection closed during TLS handshake");
+                                }
+                                if (read == 0) {
+                                    key.interestOps(SelectionKey.OP_READ);
+                                    return;
+                                }
+                            } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                                appIn = ByteBuffer.allocate(Math.max(appIn.capacity() * 2,
+                                        engine.getSession().getApplicationBufferSize()));
+                            } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                                throw new SSLException("TLS engine closed during handshake");
+                            }
+                        }
+                        case NEED_TASK -> {
+                            runDelegatedTasks();
+                            return;
+                        }
+                        default -> {
+                            complete();
+                            return;
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        // Runs the engine's tasks off the selector thread and steps on once they are done
+        private void runDelegatedTasks() {
+            key.interestOps(0);
+            try {
+                taskExecutor.execute(() -> {
+                    try {
+                        Runnable task;
+                        while ((task = engine.getDelegatedTask()) != null) {
+                            task.run();
+                        }
+                    } finally {
+                        resumptions.add(this);
+                        selector.wakeup();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                fail(new IOException("TLS probe stopped", e));
+            }
+        }
+
+        void resume() {
+            if (future.isDone()) {
+                // Timed out while its tasks ran; the trust manager may have captured the chain since
+                trustManager.release(engine);
+                return;
+            }
+            step();
+        }
+
+        private ByteBuffer enlarge(ByteBuffer buffer, int minCapacity) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minCapacity));
+            buffer.flip();
+            return larger.put(buffer);
+        }
+
+        private void complete() throws SSLException {
+            X509Certificate[] chain = (X509Certificate[]) engine.getSession().getPeerCertificates();
+            trustManager.release(engine);
+            close();
+            future.complete(new TlsProbeResult(List.of(chain), null, elapsedMs()));
+        }
+
+        void fail(Throwable failure) {
+            X509Certificate[] chain = engine != null ? trustManager.release(engine) : null;
+            close();
+            future.complete(new TlsProbeResult(chain != null ? List.of(chain) : List.of(), failure, elapsedMs()));
+        }
+
+        private long elapsedMs() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close TLS probe channel to {}", address, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the chain the server presented before delegating validation, so the chain is known
+     * even when it is rejected.
+     */
+    private static final class CapturingTrustManager extends X509ExtendedTrustManager {
+
+        private final X509ExtendedTrustManager delegate;
+        private final Map<SSLEngine, X509Certificate[]> captured = new ConcurrentHashMap<>();
+
+        CapturingTrustManager(X509ExtendedTrustManager delegate) {
+            this.delegate = delegate;
+        }
+
+        X509Certificate[] release(SSLEngine engine) {
+            return captured.remove(engine);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            captured.put(engine, chain.clone());
+            delegate.checkServerTrusted(chain, authType, engine);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            delegate.checkServerTrusted(chain, authType, socket);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.checkServerTrusted(chain, authType);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            delegate.checkClientTrusted(chain, authType, engine);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            delegate.checkClientTrusted(chain, authType, socket);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.checkClientTrusted(chain, authType);
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.pingtower.ping_worker.check.ssl;
+
+import lombok.Value;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Outcome of a {@link TlsHandshakeProbe}: the certificate chain presented by the server, if the
+ * handshake got far enough to receive it, and the reason the handshake failed, if it did.
+ */
+@Value
+public class TlsProbeResult {
+    List<X509Certificate> chain; // Leaf first; empty if the server never sent its certificates
+    Throwable failure; // null if the handshake completed and the chain was trusted
+    long handshakeMs;
+
+    public boolean isTrusted() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.pingtower.ping_worker.check.tcp;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connect-only TCP probe.
+ * <p>
+ * Each probe opens a non-blocking {@link SocketChannel}, waits for the connection to be
+ * established and closes it again without sending anything. All probes share a single selector
+ * thread, and timeouts are kept in a queue ordered by deadline, so tens of thousands of concurrent
+ * probes cost one thread and a file descriptor each.
+ */
+@Slf4j
+@Component
+public class TcpConnectProbe {
+
+    private final Queue<Connect> registrations = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AtomicInteger open = new AtomicInteger();
+
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public TcpConnectProbe(MeterRegistry meterRegistry) {
+        Gauge.builder("pingtower.tcp.connects.in.flight", open, AtomicInteger::get)
+                .description("TCP connect probes waiting for the connection to be established")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        selector = Selector.open();
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "TcpConnectProbe");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (selector != null) {
+            selector.close();
+        }
+    }
+
+    /**
+     * Connects to {@code address} and completes with the connect time in milliseconds, or
+     * exceptionally with the connect error or a {@link SocketTimeoutException}.
+     */
+    public CompletableFuture<Long> connect(InetSocketAddress address, long timeoutMillis) {
+        Connect connect = new Connect(address, timeoutMillis);
+        registrations.add(connect);
+        // One wakeup covers every registration queued before the selector thread drains the queue
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+        return connect.future;
+    }
+
+    private void selectLoop() {
+        PriorityQueue<Connect> deadlines = new PriorityQueue<>(Comparator.comparingLong(connect -> connect.deadline));
+        while (running) {
+            try {
+                selector.select(nextTimeout(deadlines));
+
+                wakeupPending.set(false);
+                Connect registration;
+                while ((registration = registrations.poll()) != null) {
+                    if (registration.start(selector)) {
+                        deadlines.add(registration);
+                    }
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isConnectable()) {
+                        ((Connect) key.attachment()).finishConnect();
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                long now = System.nanoTime();
+                while (!deadlines.isEmpty()
+                        && (deadlines.peek().future.isDone() || now - deadlines.peek().deadline >= 0)) {
+                    Connect expired = deadlines.poll();
+                    if (!expired.future.isDone()) {
+                        expired.fail(new SocketTimeoutException("Connect timed out"));
+                    }
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in TCP probe loop", e);
+            }
+        }
+        deadlines.forEach(connect -> connect.fail(new IOException("TCP probe stopped")));
+    }
+
+    private static long nextTimeout(PriorityQueue<Connect> deadlines) {
+        long next = TimeUnit.SECONDS.toNanos(1);
+        if (!deadlines.isEmpty()) {
+            next = Math.min(next, deadlines.peek().deadline - System.nanoTime());
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next));
+    }
+
+    /** State of a single probe; only touched by the selector thread after registration. */
+    private final class Connect {
+
+        private final InetSocketAddress address;
+        private final long startNanos = System.nanoTime();
+        private final long deadline;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private SocketChannel channel;
+        private SelectionKey key;
+
+        Connect(InetSocketAddress address, long timeoutMillis) {
+            this.address = address;
+            this.deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        // Returns true if the probe is still waiting for the connection
+        boolean start(Selector selector) {
+            try {
+                channel = SocketChannel.open();
+                open.incrementAndGet();
+                channel.configureBlocking(false);
+                if (channel.connect(address)) {
+                    complete();
+                    return false;
+                }
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                return true;
+            } catch (Exception e) {
+                fail(e);
+                return false;
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (channel.finishConnect()) {
+                    complete();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void complete() {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            close();
+            future.complete(elapsed);
+        }
+
+        void fail(Throwable failure) {
+            close();
+            future.completeExceptionally(failure);
+        }
+
+        private void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close TCP probe channel to {}", address, e);
+                }
+                channel = null;
+                open.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,22 +0,0 @@
-package com.pingtower.ping_worker.config;
-
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
-
-@Configuration
-public class CheckExecutorConfig {
-
-    @Bean("checkTaskExecutor")
-    public Executor checkTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10); // Number of concurrent checks
-        executor.setMaxPoolSize(20);
-        executor.setQueueCapacity(500);
-        executor.setThreadNamePrefix("CheckExecutor-");
-        executor.initialize();
-        return executor;
-    }
-}
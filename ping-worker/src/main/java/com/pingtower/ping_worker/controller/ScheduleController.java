@@ -0,0 +1,35 @@
+package com.pingtower.ping_worker.controller;
+
+import com.pingtower.ping_worker.scheduler.ScheduleDensityReport;
+import com.pingtower.ping_worker.scheduler.ScheduleDensityService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/schedule")
+public class ScheduleController {
+
+    private static final int MAX_HORIZON_MINUTES = 24 * 60;
+
+    private final ScheduleDensityService scheduleDensityService;
+
+    public ScheduleController(ScheduleDensityService scheduleDensityService) {
+        this.scheduleDensityService = scheduleDensityService;
+    }
+
+    /**
+     * How many checks are due in each second of the next {@code minutes} minutes, with the busiest
+     * seconds listed first in {@code peaks}.
+     */
+    @GetMapping("/density")
+    public ResponseEntity<ScheduleDensityReport> getDensity(@RequestParam(defaultValue = "60") int minutes,
+                                                            @RequestParam(defaultValue = "20") int peaks) {
+        if (minutes <= 0 || minutes > MAX_HORIZON_MINUTES || peaks < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(scheduleDensityService.report(minutes * 60, peaks));
+    }
+}
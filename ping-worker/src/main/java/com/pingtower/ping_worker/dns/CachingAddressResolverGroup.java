@@ -0,0 +1,56 @@
+package com.pingtower.ping_worker.dns;
+
+import io.netty.resolver.AbstractAddressResolver;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Plugs {@link CachingDnsResolver} into netty clients such as reactor-netty's {@code HttpClient}, so
+ * they share its cache instead of resolving through a per-client resolver.
+ */
+public class CachingAddressResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+
+    private final CachingDnsResolver dnsResolver;
+
+    public CachingAddressResolverGroup(CachingDnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+    }
+
+    @Override
+    protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+        return new AbstractAddressResolver<>(executor, InetSocketAddress.class) {
+
+            @Override
+            protected boolean doIsResolved(InetSocketAddress address) {
+                return !address.isUnresolved();
+            }
+
+            @Override
+            protected void doResolve(InetSocketAddress unresolved, Promise<InetSocketAddress> promise) {
+                dnsResolver.resolveAll(unresolved.getHostString()).subscribe(
+                        addresses -> promise.trySuccess(new InetSocketAddress(addresses.get(0), unresolved.getPort())),
+                        promise::tryFailure);
+            }
+
+            @Override
+            protected void doResolveAll(InetSocketAddress unresolved, Promise<List<InetSocketAddress>> promise) {
+                dnsResolver.resolveAll(unresolved.getHostString()).subscribe(
+                        addresses -> promise.trySuccess(toSocketAddresses(addresses, unresolved.getPort())),
+                        promise::tryFailure);
+            }
+        };
+    }
+
+    private static List<InetSocketAddress> toSocketAddresses(List<InetAddress> addresses, int port) {
+        return addresses.stream()
+                .map(address -> new InetSocketAddress(address, port))
+                .collect(Collectors.toList());
+    }
+}
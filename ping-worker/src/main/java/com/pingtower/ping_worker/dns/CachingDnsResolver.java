@@ -0,0 +1,310 @@
+package com.pingtower.ping_worker.dns;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.NoopDnsCnameCache;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.IDN;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous DNS resolver with a cache shared by all check executors.
+ * <p>
+ * Lookups go through netty's non-blocking {@link DnsNameResolver} on a dedicated event loop, with
+ * netty's own cache disabled so this class controls expiry:
+ * <ul>
+ *     <li>positive answers are cached for their record TTL, clamped to {@code min/max-ttl-seconds}
+ *     (answers from the hosts file, which carry no TTL, use {@code default-ttl-seconds});</li>
+ *     <li>failures are cached for {@code negative-ttl-seconds};</li>
+ *     <li>an expired answer is still served for up to {@code stale-ttl-seconds} while a single
+ *     background lookup refreshes it, and keeps being served if that refresh fails.</li>
+ * </ul>
+ * Concurrent lookups of the same name share one query. Network lookups are timed by the
+ * {@code pingtower.dns.resolution} timer and cache outcomes are counted by
+ * {@code pingtower.dns.lookups}.
+ */
+@Slf4j
+@Component
+public class CachingDnsResolver {
+
+    private final NioEventLoopGroup eventLoopGroup;
+    private final DnsNameResolver resolver;
+    private final TtlRecorder ttlRecorder = new TtlRecorder();
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<InetAddress>>> inFlight = new ConcurrentHashMap<>();
+
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final long defaultTtlNanos;
+    private final long negativeTtlNanos;
+    private final long staleTtlNanos;
+
+    private final Timer resolveSuccessTimer;
+    private final Timer resolveFailureTimer;
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter negativeHits;
+
+    public CachingDnsResolver(MeterRegistry meterRegistry,
+                              @Value("${ping-worker.dns.min-ttl-seconds:5}") long minTtlSeconds,
+                              @Value("${ping-worker.dns.max-ttl-seconds:3600}") long maxTtlSeconds,
+                              @Value("${ping-worker.dns.default-ttl-seconds:60}") long defaultTtlSeconds,
+                              @Value("${ping-worker.dns.negative-ttl-seconds:30}") long negativeTtlSeconds,
+                              @Value("${ping-worker.dns.stale-ttl-seconds:300}") long staleTtlSeconds,
+                              @Value("${ping-worker.dns.query-timeout-ms:5000}") long queryTimeoutMs) {
+        this.minTtlNanos = TimeUnit.SECONDS.toNanos(minTtlSeconds);
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.defaultTtlNanos = TimeUnit.SECONDS.toNanos(defaultTtlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.staleTtlNanos = TimeUnit.SECONDS.toNanos(staleTtlSeconds);
+
+        this.eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("dns-resolver", true));
+        EventLoop eventLoop = eventLoopGroup.next();
+        this.resolver = new DnsNameResolverBuilder(eventLoop)
+                .channelType(NioDatagramChannel.class)
+                .socketChannelType(NioSocketChannel.class)
+                .resolveCache(ttlRecorder)
+                .cnameCache(NoopDnsCnameCache.INSTANCE)
+                .queryTimeoutMillis(queryTimeoutMs)
+                .build();
+        eventLoop.scheduleAtFixedRate(this::evictExpired, 1, 1, TimeUnit.MINUTES);
+
+        this.resolveSuccessTimer = Timer.builder("pingtower.dns.resolution")
+                .description("DNS lookups that went to the network")
+                .tag("result", "success")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.resolveFailureTimer = Timer.builder("pingtower.dns.resolution")
+                .description("DNS lookups that went to the network")
+                .tag("result", "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.staleHits = lookupCounter(meterRegistry, "stale");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.negativeHits = lookupCounter(meterRegistry, "negative");
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("pingtower.dns.lookups")
+                .description("DNS lookups by cache outcome")
+                .tag("cache", outcome)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void close() {
+        resolver.close();
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Resolves all addresses of the host. IP literals are returned as is.
+     */
+    public Mono<List<InetAddress>> resolveAll(String host) {
+        byte[] literal = NetUtil.createByteArrayFromIpAddressString(host);
+        if (literal != null) {
+            try {
+                return Mono.just(List.of(InetAddress.getByAddress(host, literal)));
+            } catch (UnknownHostException e) {
+                return Mono.error(e);
+            }
+        }
+
+        String key = host.toLowerCase(Locale.ROOT);
+        long now = System.nanoTime();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.expiresAt < 0) {
+            if (entry.addresses == null) {
+                negativeHits.increment();
+                return Mono.error(entry.failure);
+            }
+            hits.increment();
+            return Mono.just(entry.addresses);
+        }
+        if (entry != null && entry.addresses != null && now - entry.staleUntil < 0) {
+            staleHits.increment();
+            lookup(key);
+            return Mono.just(entry.addresses);
+        }
+        misses.increment();
+        // Copy so that a cancelled subscriber cannot cancel the lookup shared with others
+        return Mono.fromFuture(() -> lookup(key).copy());
+    }
+
+    /**
+     * Blocking variant of {@link #resolveAll(String)} for executors that run on their own threads.
+     */
+    public List<InetAddress> resolveAllBlocking(String host, Duration timeout) throws UnknownHostException {
+        try {
+            return resolveAll(host).block(timeout);
+        } catch (IllegalStateException e) {
+            // block() reports its own timeout as IllegalStateException
+            UnknownHostException timeoutException = new UnknownHostException(host + ": DNS lookup timed out");
+            timeoutException.initCause(e);
+            throw timeoutException;
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof UnknownHostException unknownHost) {
+                throw unknownHost;
+            }
+            throw e;
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private CompletableFuture<List<InetAddress>> lookup(String key) {
+        CompletableFuture<List<InetAddress>> mine = new CompletableFuture<>();
+        CompletableFuture<List<InetAddress>> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+
+        long start = System.nanoTime();
+        resolver.resolveAll(key).addListener((Future<List<InetAddress>> future) -> {
+            long now = System.nanoTime();
+            if (future.isSuccess() && !future.getNow().isEmpty()) {
+                resolveSuccessTimer.record(now - start, TimeUnit.NANOSECONDS);
+                List<InetAddress> addresses = List.copyOf(future.getNow());
+                long ttl = ttlRecorder.ttlNanos(key, addresses, defaultTtlNanos);
+                ttl = Math.max(minTtlNanos, Math.min(maxTtlNanos, ttl));
+                cache.put(key, new Entry(addresses, null, now + ttl, now + ttl + staleTtlNanos));
+                inFlight.remove(key, mine);
+                mine.complete(addresses);
+                return;
+            }
+
+            resolveFailureTimer.record(now - start, TimeUnit.NANOSECONDS);
+            Throwable cause = future.cause() != null ? future.cause() : new UnknownHostException(key);
+            Entry previous = cache.get(key);
+            inFlight.remove(key, mine);
+            if (previous != null && previous.addresses != null && now - previous.staleUntil < 0) {
+                // Keep serving the last good answer until it is too stale
+                log.debug("DNS refresh of {} failed, serving stale addresses: {}", key, cause.getMessage());
+                mine.complete(previous.addresses);
+                return;
+            }
+            cache.put(key, new Entry(null, cause, now + negativeTtlNanos, now + negativeTtlNanos));
+            mine.completeExceptionally(cause);
+        });
+        return mine;
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        cache.values().removeIf(entry -> now - entry.staleUntil >= 0);
+        ttlRecorder.evictOlderThan(now - TimeUnit.MINUTES.toNanos(1));
+    }
+
+    private record Entry(List<InetAddress> addresses, Throwable failure, long expiresAt, long staleUntil) {
+    }
+
+    /**
+     * Takes the place of netty's resolver cache: caches nothing, but remembers the TTL netty is
+     * offered for every host name and address so {@link CachingDnsResolver} can expire its own
+     * entries on time. Keyed by both, since different hosts often share addresses (CDNs, shared
+     * hosting) but not TTLs.
+     */
+    static final class TtlRecorder implements DnsCache {
+
+        private final Map<TtlKey, RecordedTtl> ttls = new ConcurrentHashMap<>();
+
+        long ttlNanos(String hostname, List<InetAddress> addresses, long defaultTtlNanos) {
+            String name = normalize(hostname);
+            long min = Long.MAX_VALUE;
+            for (InetAddress address : addresses) {
+                RecordedTtl ttl = ttls.remove(new TtlKey(name, address));
+                if (ttl != null) {
+                    min = Math.min(min, ttl.seconds());
+                }
+            }
+            return min == Long.MAX_VALUE ? defaultTtlNanos : TimeUnit.SECONDS.toNanos(min);
+        }
+
+        // Drops TTLs no lookup claimed, e.g. of names netty expanded with a search domain
+        void evictOlderThan(long nanoTime) {
+            ttls.values().removeIf(ttl -> ttl.recordedAt() - nanoTime < 0);
+        }
+
+        int size() {
+            return ttls.size();
+        }
+
+        @Override
+        public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+            return null;
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address,
+                                   long originalTtl, EventLoop loop) {
+            ttls.merge(new TtlKey(normalize(hostname), address), new RecordedTtl(originalTtl, System.nanoTime()),
+                    (previous, recorded) -> previous.seconds() <= recorded.seconds() ? previous : recorded);
+            return new RecordedEntry(address, null);
+        }
+
+        @Override
+        public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+            return new RecordedEntry(null, cause);
+        }
+
+        @Override
+        public void clear() {
+            ttls.clear();
+        }
+
+        @Override
+        public boolean clear(String hostname) {
+            return false;
+        }
+
+        // Netty passes the name it queried: ASCII and possibly fully qualified
+        private static String normalize(String hostname) {
+            String name = hostname.endsWith(".") ? hostname.substring(0, hostname.length() - 1) : hostname;
+            try {
+                name = IDN.toASCII(name);
+            } catch (IllegalArgumentException e) {
+                // Not a valid IDN, netty would not have resolved it either
+            }
+            return name.toLowerCase(Locale.ROOT);
+        }
+
+        private record TtlKey(String hostname, InetAddress address) {
+        }
+
+        private record RecordedTtl(long seconds, long recordedAt) {
+        }
+
+        private record RecordedEntry(InetAddress address, Throwable cause) implements DnsCacheEntry {
+        }
+    }
+}
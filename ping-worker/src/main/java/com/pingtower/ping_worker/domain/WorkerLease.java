@@ -0,0 +1,28 @@
+package com.pingtower.ping_worker.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.sql.Timestamp;
+
+/**
+ * Liveness lease of a ping-worker instance. Every worker renews its row on each schedule sync;
+ * workers whose lease has expired are dropped from the shard ring.
+ */
+@Entity
+@Data
+@Table(name = "worker_leases")
+public class WorkerLease {
+    @Id
+    @Column(name = "worker_id")
+    private String workerId;
+
+    @Column(name = "heartbeat_at")
+    private Timestamp heartbeatAt;
+
+    @Column(name = "started_at")
+    private Timestamp startedAt;
+}
@@ -0,0 +1,184 @@
+package com.pingtower.ping_worker.kafka;
+
+import com.pingtower.ping_worker.kafka.spool.MeasurementSpool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends measurements and status updates to Kafka without losing them to a broker outage.
+ * <p>
+ * A message Kafka does not take, because the send fails or the producer cannot buffer it within
+ * {@code max.block.ms}, is written to the {@link MeasurementSpool}. While the spool holds anything,
+ * new messages are appended behind it instead of being sent. A replay thread sends the spool to
+ * Kafka and resumes direct sends once it is empty. Each tick it sends
+ * {@code ping-worker.spool.replay-rate-per-second} worth of messages, so a recovering broker is not
+ * flooded, plus as many as were appended behind the spool since the previous tick, so the backlog
+ * shrinks at that rate however fast new messages arrive.
+ * <p>
+ * Delivery is at least once: a replayed batch that fails part way is sent again in full. Order is
+ * best effort. Messages spooled while the spool is not empty keep their order, but a send that
+ * fails asynchronously is only spooled once the producer gives up on it after
+ * {@code delivery.timeout.ms}, behind messages spooled in the meantime. Consumers must order
+ * measurements by their timestamp, not by their position in the topic.
+ */
+@Slf4j
+@Component
+public class MeasurementPublisher {
+
+    private static final long REPLAY_TICK_MS = 100;
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final MeasurementSpool spool;
+    private final int replayBatchSize;
+    private final long replayTimeoutMs;
+    private final long retryBackoffMs;
+    private final long fsyncIntervalMs;
+    private final AtomicBoolean spooling = new AtomicBoolean();
+    // Messages appended behind a non-empty spool since the last replay tick
+    private final AtomicLong appendedBehind = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread replayThread;
+
+    public MeasurementPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                                MeasurementSpool spool,
+                                @Value("${ping-worker.spool.replay-rate-per-second:5000}") int replayRatePerSecond,
+                                @Value("${ping-worker.spool.replay-timeout-ms:30000}") long replayTimeoutMs,
+                                @Value("${ping-worker.spool.retry-backoff-ms:5000}") long retryBackoffMs,
+                                @Value("${ping-worker.spool.fsync-interval-ms:1000}") long fsyncIntervalMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.spool = spool;
+        this.replayBatchSize = (int) Math.max(replayRatePerSecond * REPLAY_TICK_MS / 1000, 1);
+        this.replayTimeoutMs = replayTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        replayThread = new Thread(this::replayLoop, "MeasurementSpoolReplay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (replayThread != null) {
+            replayThread.interrupt();
+        }
+    }
+
+    public void publish(String topic, Object message) {
+        if (!WireFormat.supports(message)) {
+            kafkaTemplate.send(topic, message);
+            return;
+        }
+        if (!spool.isEmpty() && spool.append(topic, WireFormat.encode(message))) {
+            appendedBehind.incrementAndGet();
+            return;
+        }
+        try {
+            kafkaTemplate.send(topic, message).whenComplete((sent, e) -> {
+                if (e != null) {
+                    spool(topic, message, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            spool(topic, message, e);
+        }
+    }
+
+    private void spool(String topic, Object message, Throwable cause) {
+        if (!spool.append(topic, WireFormat.encode(message))) {
+            log.error("Failed to send a message to Kafka topic {} and could not spool it", topic, cause);
+            return;
+        }
+        if (spooling.compareAndSet(false, true)) {
+            log.warn("Kafka is not accepting messages, spooling them to disk until it recovers: {}", cause.toString());
+        }
+    }
+
+    private void replayLoop() {
+        long lastForce = System.currentTimeMillis();
+        while (running) {
+            long tickStart = System.currentTimeMillis();
+            try {
+                if (!replayTick(replayBatchSize + appendedBehind.getAndSet(0))) {
+                    Thread.sleep(retryBackoffMs);
+                    continue;
+                }
+                if (spool.isEmpty() && spooling.compareAndSet(true, false)) {
+                    log.info("Measurement spool replayed, sending to Kafka directly again");
+                }
+                if (tickStart - lastForce >= fsyncIntervalMs) {
+                    spool.force();
+                    lastForce = tickStart;
+                }
+                long rest = REPLAY_TICK_MS - (System.currentTimeMillis() - tickStart);
+                if (rest > 0) {
+                    Thread.sleep(rest);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Measurement spool replay failed", e);
+            }
+        }
+    }
+
+    // Replays up to budget messages, which may span several segments; false if Kafka failed
+    private boolean replayTick(long budget) throws InterruptedException {
+        while (budget > 0) {
+            MeasurementSpool.Batch batch = spool.peek((int) Math.min(budget, Integer.MAX_VALUE));
+            if (batch == null) {
+                return true;
+            }
+            if (!replay(batch)) {
+                return false;
+            }
+            budget -= batch.messages().size();
+        }
+        return true;
+    }
+
+    // Sends the batch and waits for Kafka to acknowledge all of it before consuming it from the spool
+    private boolean replay(MeasurementSpool.Batch batch) throws InterruptedException {
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.messages().size());
+        try {
+            for (MeasurementSpool.SpooledMessage spooled : batch.messages()) {
+                Object message;
+                try {
+                    message = WireFormat.decode(spooled.message());
+                } catch (SerializationException e) {
+                    log.warn("Dropping spooled message for topic {} that cannot be decoded: {}", spooled.topic(), e.getMessage());
+                    spool.dropped("undecodable", 1);
+                    continue;
+                }
+                sends.add(kafkaTemplate.send(spooled.topic(), message));
+            }
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(replayTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException | RuntimeException e) {
+            log.debug("Kafka is still unavailable, retrying the spool in {} ms: {}", retryBackoffMs, e.toString());
+            return false;
+        }
+        spool.commit(batch);
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+package com.pingtower.ping_worker.kafka;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RawMeasurementMessage {
+    private UUID checkId;
+    private String serviceId;
+    private Instant timestamp;
+    private long latencyMs;
+    private Long domLoadTimeMs;
+    private Long ttfbMs;
+    private Long dnsMs;
+    private Long connectMs;
+    private Long tlsMs;
+    private Long bodyMs;
+    private Long bodyBytes;
+    private Long throughputBytesPerSec;
+    private Boolean connectionReused;
+    private Long sslExpiresInDays;
+    private int responseCode;
+    private String statusText;
+    private boolean success;
+    private String errorMessage;
+}
@@ -0,0 +1,314 @@
+package com.pingtower.ping_worker.kafka.spool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only spool on local disk for Kafka messages that could not be sent, kept in
+ * memory-mapped {@link SpoolSegment} files so a broker outage costs neither heap nor measurements.
+ * <p>
+ * Records are read back in the order they were appended and only consumed once
+ * {@link #commit committed}, which persists the read position, so a restart replays exactly what
+ * Kafka has not acknowledged. Disk use is bounded by {@code ping-worker.spool.max-size-mb}: when a
+ * new segment would exceed it, the oldest segment is dropped and its records are counted in
+ * {@code pingtower.spool.dropped}.
+ */
+@Slf4j
+@Component
+public class MeasurementSpool {
+
+    /**
+     * A message read from the spool: its topic and its {@code WireFormat} payload.
+     */
+    public record SpooledMessage(String topic, byte[] message) {
+    }
+
+    /**
+     * Consecutive messages from one segment, consumed together by {@link #commit}.
+     */
+    public static final class Batch {
+
+        private final SpoolSegment segment;
+        private final int endOffset;
+        private final List<SpooledMessage> messages;
+
+        private Batch(SpoolSegment segment, int endOffset, List<SpooledMessage> messages) {
+            this.segment = segment;
+            this.endOffset = endOffset;
+            this.messages = messages;
+        }
+
+        public List<SpooledMessage> messages() {
+            return messages;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final MeterRegistry meterRegistry;
+    private final Counter appended;
+    private final Counter replayed;
+
+    // Guarded by this
+    private final Deque<SpoolSegment> segments = new ArrayDeque<>();
+    private SpoolSegment writeSegment;
+    private long nextSequence;
+    private boolean open;
+    private boolean dirty;
+
+    // Written under the lock, read without it on every publish
+    private volatile long pending;
+
+    public MeasurementSpool(@Value("${ping-worker.spool.enabled:true}") boolean enabled,
+                            @Value("${ping-worker.spool.dir:spool}") String directory,
+                            @Value("${ping-worker.spool.segment-size-mb:16}") int segmentSizeMb,
+                            @Value("${ping-worker.spool.max-size-mb:1024}") int maxSizeMb,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+        this.maxSegments = Math.max(maxSizeMb / segmentSizeMb, 2);
+        this.meterRegistry = meterRegistry;
+        this.appended = Counter.builder("pingtower.spool.appended")
+                .description("Kafka messages written to the local spool")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("pingtower.spool.replayed")
+                .description("Spooled Kafka messages sent after Kafka recovered")
+                .register(meterRegistry);
+        Gauge.builder("pingtower.spool.pending", this, spool -> spool.pending)
+                .description("Spooled Kafka messages not yet sent")
+                .register(meterRegistry);
+        Gauge.builder("pingtower.spool.bytes", this, MeasurementSpool::pendingBytes)
+                .description("Size of the spooled Kafka messages not yet sent")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            recover();
+            // Segments of a previous run are only read, appends always go to a fresh one
+            roll();
+            open = true;
+            if (pending > 0) {
+                log.info("Measurement spool in {} holds {} messages from a previous run, replaying them", directory, pending);
+            }
+        } catch (IOException e) {
+            log.error("Cannot open the measurement spool in {}, measurements will be lost while Kafka is unavailable",
+                    directory.toAbsolutePath(), e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        force();
+        open = false;
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * @return false if the spool is disabled or the message could not be written
+     */
+    public synchronized boolean append(String topic, byte[] message) {
+        if (!open) {
+            return false;
+        }
+        byte[] payload = payload(topic, message);
+        if (SpoolSegment.HEADER_BYTES + SpoolSegment.RECORD_OVERHEAD + payload.length > segmentBytes) {
+            log.error("Message of {} bytes for topic {} is larger than a spool segment", message.length, topic);
+            dropped("oversized", 1);
+            return false;
+        }
+        try {
+            if (!writeSegment.append(payload)) {
+                roll();
+                writeSegment.append(payload);
+            }
+        } catch (IOException e) {
+            log.error("Failed to start a new spool segment in {}", directory, e);
+            dropped("io", 1);
+            return false;
+        }
+        pending++;
+        dirty = true;
+        appended.increment();
+        return true;
+    }
+
+    /**
+     * The oldest unsent messages, at most {@code max} of them, or null if there are none. The
+     * messages stay in the spool until the batch is committed.
+     */
+    public synchronized Batch peek(int max) {
+        while (open) {
+            SpoolSegment head = segments.peekFirst();
+            List<byte[]> payloads = new ArrayList<>();
+            int endOffset = head.read(max, payloads);
+            if (!payloads.isEmpty()) {
+                List<SpooledMessage> messages = new ArrayList<>(payloads.size());
+                payloads.forEach(payload -> messages.add(message(payload)));
+                return new Batch(head, endOffset, messages);
+            }
+            if (head == writeSegment && head.drained()) {
+                return null;
+            }
+            if (!head.drained()) {
+                log.warn("Spool segment {} has a corrupt record, dropping its {} remaining messages",
+                        head.file(), head.unread());
+            }
+            segments.pollFirst();
+            discard(head, "corrupt");
+            if (head == writeSegment) {
+                try {
+                    roll();
+                } catch (IOException e) {
+                    log.error("Failed to start a new spool segment in {}", directory, e);
+                    open = false;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumes a batch from {@link #peek} once Kafka has acknowledged all of its messages.
+     */
+    public synchronized void commit(Batch batch) {
+        // The segment may have been dropped for space while the batch was being sent
+        if (segments.peekFirst() != batch.segment) {
+            return;
+        }
+        batch.segment.commit(batch.endOffset, batch.messages.size());
+        pending -= batch.messages.size();
+        replayed.increment(batch.messages.size());
+        dirty = true;
+        if (batch.segment != writeSegment && batch.segment.drained()) {
+            segments.pollFirst();
+            discard(batch.segment, "replayed");
+        }
+    }
+
+    /**
+     * Writes the mapped segments back to disk, so spooled messages also survive a crash of the
+     * host rather than only of the process.
+     */
+    public synchronized void force() {
+        if (dirty) {
+            segments.forEach(SpoolSegment::force);
+            dirty = false;
+        }
+    }
+
+    public void dropped(String reason, long messages) {
+        meterRegistry.counter("pingtower.spool.dropped", "reason", reason).increment(messages);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            // Zero-padded sequence numbers sort in the order the segments were written
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SpoolSegment.SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long sequence;
+            try {
+                sequence = Long.parseLong(name.substring(0, name.length() - SpoolSegment.SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring unexpected file {} in the measurement spool", file);
+                continue;
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            try {
+                SpoolSegment segment = SpoolSegment.recover(file, sequence);
+                if (segment.truncated()) {
+                    log.warn("Spool segment {} ends in a corrupt record, keeping the {} messages before it",
+                            file, segment.unread());
+                }
+                if (segment.drained()) {
+                    segment.delete();
+                } else {
+                    segments.addLast(segment);
+                    pending += segment.unread();
+                }
+            } catch (IOException e) {
+                log.warn("Deleting unreadable spool segment {}: {}", file, e.getMessage());
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void roll() throws IOException {
+        while (segments.size() >= maxSegments) {
+            SpoolSegment oldest = segments.pollFirst();
+            log.warn("Measurement spool is full, dropping {} messages of its oldest segment", oldest.unread());
+            discard(oldest, "full");
+        }
+        writeSegment = SpoolSegment.create(directory, nextSequence++, segmentBytes);
+        segments.addLast(writeSegment);
+    }
+
+    private void discard(SpoolSegment segment, String reason) {
+        if (segment.unread() > 0) {
+            pending -= segment.unread();
+            dropped(reason, segment.unread());
+        }
+        try {
+            segment.delete();
+        } catch (IOException e) {
+            log.warn("Failed to delete spool segment {}", segment.file(), e);
+        }
+    }
+
+    private synchronized long pendingBytes() {
+        return segments.stream().mapToLong(SpoolSegment::pendingBytes).sum();
+    }
+
+    // [short topic length][topic][message]
+    private static byte[] payload(String topic, byte[] message) {
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + topicBytes.length + message.length)
+                .putShort((short) topicBytes.length)
+                .put(topicBytes)
+                .put(message)
+                .array();
+    }
+
+    private static SpooledMessage message(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] topic = new byte[buffer.getShort()];
+        buffer.get(topic);
+        byte[] message = new byte[buffer.remaining()];
+        buffer.get(message);
+        return new SpooledMessage(new String(topic, StandardCharsets.UTF_8), message);
+    }
+}
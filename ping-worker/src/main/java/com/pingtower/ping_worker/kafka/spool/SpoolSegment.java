@@ -0,0 +1,230 @@
+package com.pingtower.ping_worker.kafka.spool;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the {@link MeasurementSpool}, memory-mapped in full.
+ * <p>
+ * The file starts with a 16 byte header: {@link #MAGIC}, the format version and the offset of the
+ * first unread record, which is updated as records are replayed so a restart does not send them
+ * again. Records follow as {@code [int length][int CRC32C of payload][payload]}. A zero length marks
+ * the end of the written records; the file is extended sparse, so unwritten space reads as zeros
+ * and takes no disk. The length is written last, so a record only becomes visible once its payload
+ * and checksum are in place.
+ * <p>
+ * Not thread-safe, the spool guards all access. A segment must not be used after {@link #delete()},
+ * which unmaps it.
+ */
+final class SpoolSegment {
+
+    static final String SUFFIX = ".seg";
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_OVERHEAD = 8;
+
+    private static final int MAGIC = 0x50545350; // "PTSP"
+    private static final int VERSION = 1;
+    private static final int VERSION_AT = 4;
+    private static final int READ_OFFSET_AT = 8;
+    // Unsafe#invokeCleaner bound to the Unsafe instance, or null where it is not accessible
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private final long sequence;
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private int readOffset = HEADER_BYTES;
+    private int writeOffset = HEADER_BYTES;
+    private int unread;
+
+    private SpoolSegment(long sequence, Path file, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static SpoolSegment create(Path directory, long sequence, int size) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", sequence, SUFFIX));
+        SpoolSegment segment = new SpoolSegment(sequence, file, map(file, size, true));
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(VERSION_AT, VERSION);
+        segment.buffer.putLong(READ_OFFSET_AT, HEADER_BYTES);
+        return segment;
+    }
+
+    /**
+     * Reopens a segment left by a previous run and finds the end of its intact records. Records
+     * after the first one that fails its checksum cannot be located any more, see {@link #truncated()}.
+     */
+    static SpoolSegment recover(Path file, long sequence) throws IOException {
+        long size = Files.size(file);
+        if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+            throw new IOException("Unexpected spool segment size " + size);
+        }
+        SpoolSegment segment = new SpoolSegment(sequence, file, map(file, (int) size, false));
+        if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(VERSION_AT) != VERSION) {
+            throw new IOException("Not a spool segment");
+        }
+        long readOffset = segment.buffer.getLong(READ_OFFSET_AT);
+        if (readOffset < HEADER_BYTES || readOffset > size) {
+            throw new IOException("Corrupt read offset " + readOffset);
+        }
+        int offset = (int) readOffset;
+        byte[] payload;
+        while ((payload = segment.payloadAt(offset)) != null) {
+            offset += RECORD_OVERHEAD + payload.length;
+            segment.unread++;
+        }
+        segment.readOffset = (int) readOffset;
+        segment.writeOffset = offset;
+        return segment;
+    }
+
+    /**
+     * @return false if the record does not fit in the rest of the segment
+     */
+    boolean append(byte[] payload) {
+        int end = writeOffset + RECORD_OVERHEAD + payload.length;
+        if (end > buffer.capacity()) {
+            return false;
+        }
+        buffer.put(writeOffset + RECORD_OVERHEAD, payload);
+        buffer.putInt(writeOffset + 4, checksum(payload));
+        buffer.putInt(writeOffset, payload.length);
+        writeOffset = end;
+        unread++;
+        return true;
+    }
+
+    /**
+     * Adds up to {@code max} unread records to {@code into} without consuming them.
+     *
+     * @return the offset just past the last record read, to be passed to {@link #commit}
+     */
+    int read(int max, List<byte[]> into) {
+        int offset = readOffset;
+        for (int i = 0; i < max && offset < writeOffset; i++) {
+            byte[] payload = payloadAt(offset);
+            if (payload == null) {
+                break;
+            }
+            into.add(payload);
+            offset += RECORD_OVERHEAD + payload.length;
+        }
+        return offset;
+    }
+
+    void commit(int offset, int records) {
+        readOffset = offset;
+        unread -= records;
+        buffer.putLong(READ_OFFSET_AT, offset);
+    }
+
+    boolean drained() {
+        return readOffset >= writeOffset;
+    }
+
+    /**
+     * True if the intact records end in a corrupt one rather than in the end marker, e.g. after a
+     * crash of the host before the page cache was written back.
+     */
+    boolean truncated() {
+        return writeOffset + 4 <= buffer.capacity() && buffer.getInt(writeOffset) != 0;
+    }
+
+    int unread() {
+        return unread;
+    }
+
+    long pendingBytes() {
+        return writeOffset - readOffset;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Unmaps the segment and deletes its file. Linux only frees the blocks of an unlinked file once
+     * it is unmapped, which would otherwise wait for the buffer to be garbage collected.
+     */
+    void delete() throws IOException {
+        unmap();
+        Files.deleteIfExists(file);
+    }
+
+    // Returns whether the mapping was released now rather than left to the garbage collector
+    boolean unmap() {
+        if (INVOKE_CLEANER == null) {
+            return false;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    // Payload of the record at offset, or null at the end of the records or for a corrupt record
+    private byte[] payloadAt(int offset) {
+        if (offset + RECORD_OVERHEAD > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - RECORD_OVERHEAD) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_OVERHEAD, payload);
+        return checksum(payload) == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    // The JDK has no public way to unmap a buffer before the foreign memory API, so this uses the
+    // same Unsafe method as Netty and Lucene; jdk.unsupported exports it without extra flags
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, int size, boolean create) throws IOException {
+        try (FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file without writing the gap
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.pingtower.ping_worker.lane;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.domain.Check;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded execution lane: at most {@code concurrency} checks run at once, up to
+ * {@code queueCapacity} more wait in FIFO order, and the {@link RejectionPolicy} decides what
+ * happens beyond that. Submitting never blocks, so the scheduler thread is never held up by a
+ * saturated lane.
+ */
+@Slf4j
+public class CheckLane {
+
+    /**
+     * Starts a check and calls {@code done} exactly once when it has finished, on any thread.
+     */
+    interface Runner {
+        void run(CheckLane lane, Check check, CheckSpec spec, Runnable done);
+    }
+
+    private final String name;
+    private final int concurrency;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final Runner runner;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    // Guarded by this
+    private final Deque<Task> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    CheckLane(String name, int concurrency, int queueCapacity, RejectionPolicy rejectionPolicy, Runner runner,
+              MeterRegistry meterRegistry) {
+        this.name = name;
+        this.concurrency = concurrency;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.runner = runner;
+        this.queueWait = Timer.builder("pingtower.lane.queue.wait")
+                .description("Time fired checks waited in their lane before starting")
+                .tag("lane", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("pingtower.lane.rejected")
+                .description("Fired checks dropped because their lane was full")
+                .tag("lane", name)
+                .register(meterRegistry);
+        Gauge.builder("pingtower.lane.queued", this, CheckLane::queued)
+                .tag("lane", name)
+                .register(meterRegistry);
+        Gauge.builder("pingtower.lane.in.flight", this, CheckLane::inFlight)
+                .tag("lane", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the check or queues it. {@code onExit} runs once the check has finished or has been
+     * dropped from the queue.
+     *
+     * @return false if this check was rejected
+     */
+    public boolean submit(Check check, CheckSpec spec, Runnable onExit) {
+        Task task = new Task(check, spec, onExit, System.nanoTime());
+        Task dropped = null;
+        synchronized (this) {
+            if (inFlight < concurrency) {
+                inFlight++;
+            } else if (queue.size() < queueCapacity) {
+                queue.addLast(task);
+                return true;
+            } else if (rejectionPolicy == RejectionPolicy.DROP_OLDEST && !queue.isEmpty()) {
+                dropped = queue.pollFirst();
+                queue.addLast(task);
+            } else {
+                dropped = task;
+            }
+        }
+        if (dropped != null) {
+            rejected.increment();
+            log.warn("Lane '{}' is full ({} running, {} queued), dropped check ID {}",
+                    name, concurrency, queueCapacity, dropped.check().getId());
+            dropped.onExit().run();
+            return dropped != task;
+        }
+        start(task);
+        return true;
+    }
+
+    private void start(Task task) {
+        // A check that cannot even be started hands its slot straight to the next one
+        while (task != null) {
+            queueWait.record(System.nanoTime() - task.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            Task started = task;
+            try {
+                runner.run(this, task.check(), task.spec(), () -> finished(started));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Lane '{}' failed to start check ID {}", name, task.check().getId(), e);
+                task.onExit().run();
+                task = next();
+            }
+        }
+    }
+
+    private void finished(Task task) {
+        task.onExit().run();
+        Task next = next();
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    // Hands the finished check's slot to the next queued one, or frees it
+    private synchronized Task next() {
+        Task next = queue.pollFirst();
+        if (next == null) {
+            inFlight--;
+        }
+        return next;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * How full the queue is, from 0 (checks start right away) to 1 (the next check is rejected).
+     */
+    public synchronized double saturation() {
+        if (queueCapacity == 0) {
+            return inFlight < concurrency ? 0 : 1;
+        }
+        return (double) queue.size() / queueCapacity;
+    }
+
+    private synchronized int queued() {
+        return queue.size();
+    }
+
+    private synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private record Task(Check check, CheckSpec spec, Runnable onExit, long enqueuedNanos) {
+    }
+}
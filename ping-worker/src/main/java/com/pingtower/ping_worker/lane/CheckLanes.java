@@ -0,0 +1,193 @@
+package com.pingtower.ping_worker.lane;
+
+import com.pingtower.ping_worker.check.CheckKind;
+import com.pingtower.ping_worker.check.CheckResult;
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.check.DnsCheckExecutor;
+import com.pingtower.ping_worker.check.HttpCheckExecutor;
+import com.pingtower.ping_worker.check.SslCheckExecutor;
+import com.pingtower.ping_worker.check.TcpCheckExecutor;
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.scheduler.CheckProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fired checks in separate bounded lanes, by default one per check kind, so a backlog of slow
+ * browser checks never delays cheap HTTP and SSL checks.
+ * <p>
+ * Each lane has its own concurrency, queue and rejection policy under
+ * {@code ping-worker.lanes.<name>.*}; extra lanes can be listed in {@code ping-worker.lanes.names}
+ * and picked per check through the {@link LaneAssigner}. HTTP, SSL, TCP and DNS checks run
+ * non-blocking on event loops and selectors whatever lane they are in; browser checks get threads from their lane's own executor,
+ * sized to the lane's concurrency.
+ */
+@Slf4j
+@Component
+public class CheckLanes {
+
+    private final CheckProcessor checkProcessor;
+    private final HttpCheckExecutor httpCheckExecutor;
+    private final SslCheckExecutor sslCheckExecutor;
+    private final TcpCheckExecutor tcpCheckExecutor;
+    private final DnsCheckExecutor dnsCheckExecutor;
+    private final LaneAssigner laneAssigner;
+    private final String executorMode;
+    private final Map<String, CheckLane> lanes = new LinkedHashMap<>();
+    private final Map<String, ExecutorService> blockingExecutors = new ConcurrentHashMap<>();
+    private final Set<String> unknownLanes = ConcurrentHashMap.newKeySet();
+
+    public CheckLanes(CheckProcessor checkProcessor,
+                      HttpCheckExecutor httpCheckExecutor,
+                      SslCheckExecutor sslCheckExecutor,
+                      TcpCheckExecutor tcpCheckExecutor,
+                      DnsCheckExecutor dnsCheckExecutor,
+                      LaneAssigner laneAssigner,
+                      MeterRegistry meterRegistry,
+                      Environment environment,
+                      @Value("${ping-worker.lanes.names:http,ssl,browser,tcp,dns}") List<String> laneNames,
+                      @Value("${ping-worker.executor.mode:platform}") String executorMode) {
+        this.checkProcessor = checkProcessor;
+        this.httpCheckExecutor = httpCheckExecutor;
+        this.sslCheckExecutor = sslCheckExecutor;
+        this.tcpCheckExecutor = tcpCheckExecutor;
+        this.dnsCheckExecutor = dnsCheckExecutor;
+        this.laneAssigner = laneAssigner;
+        this.executorMode = executorMode;
+
+        if ("virtual".equalsIgnoreCase(executorMode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("ping-worker.executor.mode=virtual requires Java 21 or newer, running on "
+                    + System.getProperty("java.version"));
+        }
+
+        // The kind lanes always exist, they are the fallback for unknown lane names
+        Set<String> names = new LinkedHashSet<>();
+        laneNames.stream().map(String::trim).filter(name -> !name.isEmpty()).forEach(names::add);
+        for (CheckKind kind : CheckKind.values()) {
+            names.add(kindLane(kind));
+        }
+        for (String name : names) {
+            String prefix = "ping-worker.lanes." + name + ".";
+            boolean browser = name.equals(kindLane(CheckKind.BROWSER));
+            int concurrency = environment.getProperty(prefix + "concurrency", Integer.class, browser ? 32 : 500);
+            int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, browser ? 200 : 5000);
+            RejectionPolicy policy = RejectionPolicy.of(
+                    environment.getProperty(prefix + "rejection", browser ? "drop-newest" : "drop-oldest"));
+            lanes.put(name, new CheckLane(name, concurrency, queueCapacity, policy, this::run, meterRegistry));
+            log.info("Check lane '{}': concurrency {}, queue {}, rejection {}", name, concurrency, queueCapacity, policy);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        blockingExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    public static String kindLane(CheckKind kind) {
+        return kind.name().toLowerCase();
+    }
+
+    /**
+     * The lane the check runs in, or null for checks of an unknown type.
+     */
+    public CheckLane laneFor(CheckSpec spec) {
+        if (spec.getKind() == null) {
+            log.warn("Unknown check type: {}", spec.getType());
+            return null;
+        }
+        String name = laneAssigner.laneFor(spec);
+        CheckLane lane = name != null ? lanes.get(name) : null;
+        if (lane == null) {
+            if (name != null && unknownLanes.add(name)) {
+                log.warn("Check ID {} asks for unknown lane '{}', using the '{}' lane", spec.getCheckId(), name,
+                        kindLane(spec.getKind()));
+            }
+            lane = lanes.get(kindLane(spec.getKind()));
+        }
+        return lane;
+    }
+
+    private void run(CheckLane lane, Check check, CheckSpec spec, Runnable done) {
+        if (spec.getKind() == CheckKind.BROWSER) {
+            blockingExecutor(lane).execute(() -> {
+                try {
+                    checkProcessor.processCheck(check, spec);
+                } finally {
+                    done.run();
+                }
+            });
+            return;
+        }
+        Mono.defer(() -> executeAsync(spec))
+                // Publishing and persisting the result may block, keep it off the event loop
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(result -> checkProcessor.complete(check, result))
+                .doFinally(signal -> done.run())
+                .subscribe(result -> {
+                }, e -> log.error("Exception processing check ID: {}", check.getId(), e));
+    }
+
+    private Mono<CheckResult> executeAsync(CheckSpec spec) {
+        return switch (spec.getKind()) {
+            case SSL -> sslCheckExecutor.executeAsync(spec);
+            case TCP -> tcpCheckExecutor.executeAsync(spec);
+            case DNS -> dnsCheckExecutor.executeAsync(spec);
+            default -> httpCheckExecutor.executeAsync(spec);
+        };
+    }
+
+    private ExecutorService blockingExecutor(CheckLane lane) {
+        return blockingExecutors.computeIfAbsent(lane.getName(), name -> newExecutor("Lane-" + name + "-", lane.getConcurrency()));
+    }
+
+    /**
+     * A fixed pool of {@code threads} platform threads, or in {@code virtual} executor mode a
+     * virtual thread per check (requires Java 21, see the {@code java21} Maven profile). The lane
+     * already bounds concurrency, so neither needs a queue of its own.
+     */
+    private ExecutorService newExecutor(String namePrefix, int threads) {
+        if ("virtual".equalsIgnoreCase(executorMode)) {
+            return virtualThreadExecutor(namePrefix);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    // Resolved reflectively so the default Java 17 build still compiles
+    private static ExecutorService virtualThreadExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("ping-worker.executor.mode=virtual requires Java 21 or newer, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
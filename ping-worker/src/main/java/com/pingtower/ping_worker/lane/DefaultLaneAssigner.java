@@ -0,0 +1,20 @@
+package com.pingtower.ping_worker.lane;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+import org.springframework.stereotype.Component;
+
+/**
+ * Uses the check's {@code "lane"} setting if it has one, otherwise the lane named after its kind
+ * ({@code http}, {@code ssl}, {@code browser}, {@code tcp} or {@code dns}).
+ */
+@Component
+public class DefaultLaneAssigner implements LaneAssigner {
+
+    @Override
+    public String laneFor(CheckSpec spec) {
+        if (spec.getLane() != null && !spec.getLane().isBlank()) {
+            return spec.getLane();
+        }
+        return CheckLanes.kindLane(spec.getKind());
+    }
+}
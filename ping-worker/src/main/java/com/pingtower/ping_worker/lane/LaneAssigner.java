@@ -0,0 +1,12 @@
+package com.pingtower.ping_worker.lane;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+
+/**
+ * Picks the lane a check runs in. Register a {@code @Primary} bean of this type to replace
+ * {@link DefaultLaneAssigner}; unknown lane names fall back to the lane named after the check kind.
+ */
+public interface LaneAssigner {
+
+    String laneFor(CheckSpec spec);
+}
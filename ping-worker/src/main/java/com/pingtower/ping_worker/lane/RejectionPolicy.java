@@ -0,0 +1,15 @@
+package com.pingtower.ping_worker.lane;
+
+/**
+ * What a lane does with a fired check when its queue is full.
+ */
+public enum RejectionPolicy {
+    /** Reject the new check; the ones already waiting keep their place. */
+    DROP_NEWEST,
+    /** Drop the check that has waited longest, its result would be the most outdated. */
+    DROP_OLDEST;
+
+    public static RejectionPolicy of(String value) {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
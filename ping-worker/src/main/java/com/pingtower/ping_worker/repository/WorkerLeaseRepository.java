@@ -0,0 +1,17 @@
+package com.pingtower.ping_worker.repository;
+
+import com.pingtower.ping_worker.domain.WorkerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface WorkerLeaseRepository extends JpaRepository<WorkerLease, String> {
+    List<WorkerLease> findAllByHeartbeatAtAfter(Timestamp threshold);
+
+    @Transactional
+    long deleteByHeartbeatAtBefore(Timestamp threshold);
+}
@@ -0,0 +1,99 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.check.CheckPriority;
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.lane.CheckLane;
+import com.pingtower.ping_worker.lane.CheckLanes;
+import com.pingtower.ping_worker.state.CheckStateBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records that a check has fired and hands it to its execution lane. Lanes never block on submit,
+ * so a saturated lane cannot delay the scheduler thread or the checks of other lanes.
+ * <p>
+ * A check whose previous run is still queued or running is not submitted again: that run will
+ * report soon enough, and piling up duplicates is what makes an overloaded worker fall further
+ * behind. As a lane's queue fills up, low priority checks are shed first, then normal ones; high
+ * priority checks are only ever dropped by the lane's own rejection policy.
+ */
+@Slf4j
+@Component
+public class CheckDispatcher {
+
+    private final CheckLanes checkLanes;
+    private final CheckStateBuffer checkStateBuffer;
+    private final MeterRegistry meterRegistry;
+    private final boolean sheddingEnabled;
+    private final double shedLowAt;
+    private final double shedNormalAt;
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter coalesced;
+
+    public CheckDispatcher(CheckLanes checkLanes,
+                           CheckStateBuffer checkStateBuffer,
+                           MeterRegistry meterRegistry,
+                           @Value("${ping-worker.shedding.enabled:true}") boolean sheddingEnabled,
+                           @Value("${ping-worker.shedding.low-threshold:0.5}") double shedLowAt,
+                           @Value("${ping-worker.shedding.normal-threshold:0.8}") double shedNormalAt) {
+        this.checkLanes = checkLanes;
+        this.checkStateBuffer = checkStateBuffer;
+        this.meterRegistry = meterRegistry;
+        this.sheddingEnabled = sheddingEnabled;
+        this.shedLowAt = shedLowAt;
+        this.shedNormalAt = shedNormalAt;
+        this.coalesced = Counter.builder("pingtower.dispatch.coalesced")
+                .description("Fired checks skipped because their previous run was still pending")
+                .register(meterRegistry);
+        Gauge.builder("pingtower.dispatch.in.flight", inFlight, Set::size)
+                .description("Checks queued or running in any lane")
+                .register(meterRegistry);
+    }
+
+    public void dispatch(Check check, CheckSpec spec, Instant firedAt) {
+        UUID id = check.getId();
+        if (!inFlight.add(id)) {
+            coalesced.increment();
+            log.debug("Check ID {} is still pending from its previous run, skipping this one", id);
+            return;
+        }
+
+        CheckLane lane = checkLanes.laneFor(spec);
+        if (lane == null) {
+            inFlight.remove(id);
+            return;
+        }
+        if (shouldShed(lane, spec.getPriority())) {
+            inFlight.remove(id);
+            meterRegistry.counter("pingtower.dispatch.shed",
+                    "lane", lane.getName(), "priority", spec.getPriority().name().toLowerCase()).increment();
+            log.debug("Lane '{}' is overloaded, shedding {} priority check ID {}", lane.getName(), spec.getPriority(), id);
+            return;
+        }
+
+        Timestamp lastExecution = Timestamp.from(firedAt);
+        check.setLastExecution(lastExecution);
+        checkStateBuffer.recordExecution(id, lastExecution);
+
+        lane.submit(check, spec, () -> inFlight.remove(id));
+    }
+
+    private boolean shouldShed(CheckLane lane, CheckPriority priority) {
+        if (!sheddingEnabled || priority == CheckPriority.HIGH) {
+            return false;
+        }
+        double saturation = lane.saturation();
+        return saturation >= (priority == CheckPriority.LOW ? shedLowAt : shedNormalAt);
+    }
+}
@@ -0,0 +1,163 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.check.BrowserCheckExecutor;
+import com.pingtower.ping_worker.check.CheckResult;
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.check.DnsCheckExecutor;
+import com.pingtower.ping_worker.check.HttpCheckExecutor;
+import com.pingtower.ping_worker.check.SslCheckExecutor;
+import com.pingtower.ping_worker.check.TcpCheckExecutor;
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.kafka.MeasurementPublisher;
+import com.pingtower.ping_worker.kafka.RawMeasurementMessage;
+import com.pingtower.ping_worker.kafka.ServiceStatusUpdateMessage;
+import com.pingtower.ping_worker.state.CheckStateBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Runs a single check: executes it with the matching executor, publishes the raw measurement
+ * and records the check's new status and latency in the {@link CheckStateBuffer}.
+ */
+@Slf4j
+@Component
+public class CheckProcessor {
+
+    private final CheckStateBuffer checkStateBuffer;
+    private final HttpCheckExecutor httpCheckExecutor;
+    private final BrowserCheckExecutor browserCheckExecutor;
+    private final SslCheckExecutor sslCheckExecutor;
+    private final TcpCheckExecutor tcpCheckExecutor;
+    private final DnsCheckExecutor dnsCheckExecutor;
+    private final MeasurementPublisher measurementPublisher;
+    private final JdbcTemplate clickhouseJdbcTemplate;
+
+    public CheckProcessor(CheckStateBuffer checkStateBuffer,
+                          HttpCheckExecutor httpCheckExecutor,
+                          BrowserCheckExecutor browserCheckExecutor,
+                          SslCheckExecutor sslCheckExecutor,
+                          TcpCheckExecutor tcpCheckExecutor,
+                          DnsCheckExecutor dnsCheckExecutor,
+                          MeasurementPublisher measurementPublisher,
+                          @Qualifier("clickhouseJdbcTemplate") JdbcTemplate clickhouseJdbcTemplate) {
+        this.checkStateBuffer = checkStateBuffer;
+        this.httpCheckExecutor = httpCheckExecutor;
+        this.browserCheckExecutor = browserCheckExecutor;
+        this.sslCheckExecutor = sslCheckExecutor;
+        this.tcpCheckExecutor = tcpCheckExecutor;
+        this.dnsCheckExecutor = dnsCheckExecutor;
+        this.measurementPublisher = measurementPublisher;
+        this.clickhouseJdbcTemplate = clickhouseJdbcTemplate;
+    }
+
+    public void processCheck(Check check, CheckSpec spec) {
+        log.info("Processing check ID: {} on thread {}", check.getId(), Thread.currentThread().getName());
+        try {
+            if (spec.getKind() == null) {
+                log.warn("Unknown check type: {}", spec.getType());
+                return;
+            }
+
+            CheckResult result = switch (spec.getKind()) {
+                case HTTP -> httpCheckExecutor.execute(spec);
+                case SSL -> sslCheckExecutor.execute(spec);
+                case BROWSER -> browserCheckExecutor.execute(spec);
+                case TCP -> tcpCheckExecutor.execute(spec);
+                case DNS -> dnsCheckExecutor.execute(spec);
+            };
+
+            complete(check, result);
+        } catch (Exception e) {
+            log.error("Exception processing check ID: {}", check.getId(), e);
+        }
+    }
+
+    /**
+     * Publishes the result of a finished check and updates its persisted status.
+     */
+    public void complete(Check check, CheckResult result) {
+        sendRawMeasurementToKafka(check, result);
+        handleStatusChangeAndUpdatePostgres(check, result);
+    }
+
+    private void sendRawMeasurementToKafka(Check check, CheckResult result) {
+        try {
+            RawMeasurementMessage message = rawMeasurement(check, result, Instant.now());
+            measurementPublisher.publish("raw-measurements", message);
+            log.debug("Sent raw measurement to Kafka for check ID {}", check.getId());
+        } catch (Exception e) {
+            log.error("Failed to send raw measurement to Kafka for check ID {}", check.getId(), e);
+        }
+    }
+
+    /** Maps a check result to the message published on {@code raw-measurements}. */
+    static RawMeasurementMessage rawMeasurement(Check check, CheckResult result, Instant timestamp) {
+        return RawMeasurementMessage.builder()
+                .checkId(check.getId())
+                .serviceId(check.getServiceId())
+                .timestamp(timestamp)
+                .latencyMs(result.getLatencyMs())
+                .domLoadTimeMs(result.getDomLoadTimeMs())
+                .ttfbMs(result.getTtfbMs())
+                .dnsMs(result.getDnsMs())
+                .connectMs(result.getConnectMs())
+                .tlsMs(result.getTlsMs())
+                .bodyMs(result.getBodyMs())
+                .bodyBytes(result.getBodyBytes())
+                .throughputBytesPerSec(result.getThroughputBytesPerSec())
+                .connectionReused(result.getConnectionReused())
+                .sslExpiresInDays(result.getSslExpiresInDays())
+                .responseCode(result.getResponseCode())
+                .statusText(result.getStatusText())
+                .success(result.isSuccess())
+                .errorMessage(result.getErrorMessage())
+                .build();
+    }
+
+    private void saveToClickHouse(Check check, CheckResult result) {
+        String sql = "INSERT INTO measurements (checkId, serviceId, timestamp, success, latencyMs, responseCode, errorMessage) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try {
+            clickhouseJdbcTemplate.update(sql,
+                    check.getId(),
+                    check.getServiceId(),
+                    Timestamp.from(Instant.now()),
+                    result.isSuccess(),
+                    result.getLatencyMs(),
+                    result.getResponseCode(),
+                    result.getErrorMessage()
+            );
+            log.debug("Saved measurement to ClickHouse for check ID {}", check.getId());
+        } catch (Exception e) {
+            log.error("Failed to save measurement to ClickHouse for check ID {}", check.getId(), e);
+        }
+    }
+
+    private void handleStatusChangeAndUpdatePostgres(Check check, CheckResult result) {
+        Integer previousStatus = check.getLastStatus();
+        boolean currentStatusOk = result.isSuccess();
+        Integer newStatus = currentStatusOk ? 1 : 0;
+
+        check.setLastStatus(newStatus);
+        check.setLastLatencyMs((int) result.getLatencyMs());
+        checkStateBuffer.recordResult(check.getId(), check.getLastStatus(), check.getLastLatencyMs());
+
+        if (previousStatus == null || !previousStatus.equals(newStatus)) {
+            log.warn("Status changed for serviceId '{}' from {} to {}. Sending update.",
+                    check.getServiceId(), (previousStatus == null ? "UNKNOWN" : (previousStatus == 1 ? "OK" : "CRIT")), (newStatus == 1 ? "OK" : "CRIT"));
+
+            ServiceStatusUpdateMessage message = ServiceStatusUpdateMessage.builder()
+                    .checkId(check.getId())
+                    .serviceId(check.getServiceId())
+                    .newStatus(newStatus == 1 ? "OK" : "CRIT")
+                    .details(result.getErrorMessage() != null ? result.getErrorMessage() : result.getDetails())
+                    .timestamp(Instant.now())
+                    .build();
+            measurementPublisher.publish("service-status-updates", message);
+        }
+    }
+}
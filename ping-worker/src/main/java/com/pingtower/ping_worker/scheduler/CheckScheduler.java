@@ -0,0 +1,187 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.check.CheckSpecCache;
+import com.pingtower.ping_worker.domain.Check;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory scheduler that fires each check at its precomputed next cron instant.
+ * <p>
+ * Checks are kept in a {@link DelayQueue} ordered by fire time, so the dispatcher thread only ever
+ * touches the checks that are due and wakes up exactly when the earliest one is. The set of checks
+ * is refreshed from the database by {@link CheckReaderJob} through {@link #sync(List)}. Fire times
+ * may be shifted by a per-check offset from the {@link ScheduleSpreader}.
+ */
+@Slf4j
+@Component
+public class CheckScheduler {
+
+    private final CheckDispatcher checkDispatcher;
+    private final CheckSpecCache checkSpecCache;
+    private final ScheduleSpreader scheduleSpreader;
+    private final Timer lag;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final DelayQueue<ScheduledCheck> queue = new DelayQueue<>();
+    private final Map<UUID, ScheduledCheck> registry = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread dispatcherThread;
+
+    public CheckScheduler(CheckDispatcher checkDispatcher, CheckSpecCache checkSpecCache,
+                          ScheduleSpreader scheduleSpreader, MeterRegistry meterRegistry) {
+        this.checkDispatcher = checkDispatcher;
+        this.checkSpecCache = checkSpecCache;
+        this.scheduleSpreader = scheduleSpreader;
+        this.lag = Timer.builder("pingtower.scheduler.lag")
+                .description("How late checks were fired relative to their scheduled instant")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcherThread = new Thread(this::dispatchLoop, "CheckScheduler");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcherThread != null) {
+            dispatcherThread.interrupt();
+        }
+    }
+
+    /**
+     * Reconciles the scheduled set with the given enabled checks: new checks are scheduled, checks
+     * with a changed cron are rescheduled, config changes are picked up for the next run and checks
+     * that are no longer present are dropped.
+     */
+    public void sync(List<Check> checks) {
+        long now = System.currentTimeMillis();
+        Set<UUID> seen = new HashSet<>(checks.size());
+
+        for (Check check : checks) {
+            seen.add(check.getId());
+            CheckSpec spec = checkSpecCache.get(check);
+            if (spec.getCron() == null) {
+                registry.remove(check.getId());
+                continue;
+            }
+
+            ScheduledCheck[] added = new ScheduledCheck[1];
+            registry.compute(check.getId(), (id, current) -> {
+                if (current != null && current.getSchedule().equals(spec.getSchedule())) {
+                    current.update(check, spec);
+                    return current;
+                }
+                added[0] = initialEntry(check, spec, now);
+                return added[0];
+            });
+            if (added[0] != null) {
+                queue.add(added[0]);
+            }
+        }
+
+        registry.keySet().retainAll(seen);
+        checkSpecCache.retainAll(seen);
+        log.info("Check schedule synchronized: {} checks scheduled.", registry.size());
+    }
+
+    public int size() {
+        return registry.size();
+    }
+
+    private ScheduledCheck initialEntry(Check check, CheckSpec spec, long now) {
+        long offset = scheduleSpreader.offsetMillis(check.getId(), spec.getCron());
+        // Run immediately if it has never run before or if a run has been missed
+        if (check.getLastExecution() == null) {
+            log.info("Check ID {} has never been executed. Running immediately.", check.getId());
+            return new ScheduledCheck(check, spec, now - offset, offset);
+        }
+        // lastExecution is an actual fire time, i.e. a nominal instant plus the offset
+        long next = nextFireMillis(spec.getCron(), check.getLastExecution().getTime() - offset);
+        if (next < 0) {
+            return null;
+        }
+        return new ScheduledCheck(check, spec, Math.max(next, now - offset), offset);
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                ScheduledCheck entry = queue.take();
+                fire(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in check scheduler loop", e);
+            }
+        }
+    }
+
+    private void fire(ScheduledCheck entry) {
+        UUID id = entry.getCheck().getId();
+        long now = System.currentTimeMillis();
+
+        // Compute the next slot from the planned fire time so a late wake-up does not drift the
+        // schedule, but skip slots that have already been missed entirely.
+        long offset = entry.getOffsetMillis();
+        long next = nextFireMillis(entry.getCron(), entry.getNominalMillis());
+        if (next >= 0 && next + offset <= now) {
+            next = nextFireMillis(entry.getCron(), now - offset);
+        }
+        long nextNominal = next;
+        ScheduledCheck[] nextEntry = new ScheduledCheck[1];
+        boolean[] current = new boolean[1];
+        registry.computeIfPresent(id, (key, registered) -> {
+            if (registered != entry) {
+                return registered; // Stale entry left behind by a reschedule or removal
+            }
+            current[0] = true;
+            if (nextNominal >= 0) {
+                nextEntry[0] = new ScheduledCheck(registered.getCheck(), registered.getSpec(), nextNominal, offset);
+            }
+            return nextEntry[0];
+        });
+        if (!current[0]) {
+            return;
+        }
+        if (nextEntry[0] != null) {
+            queue.add(nextEntry[0]);
+        }
+        lag.record(Math.max(now - entry.getFireAtMillis(), 0), TimeUnit.MILLISECONDS);
+
+        log.info("Submitting check ID {} for execution (nominal {}, offset {} ms).",
+                id, Instant.ofEpochMilli(entry.getNominalMillis()), offset);
+        checkDispatcher.dispatch(entry.getCheck(), entry.getSpec(), Instant.ofEpochMilli(now));
+    }
+
+    private long nextFireMillis(CronExpression cron, long afterMillis) {
+        ZonedDateTime next = cron.next(ZonedDateTime.ofInstant(Instant.ofEpochMilli(afterMillis), zone));
+        return next != null ? next.toInstant().toEpochMilli() : -1;
+    }
+}
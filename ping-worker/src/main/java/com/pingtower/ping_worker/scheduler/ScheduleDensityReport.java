@@ -0,0 +1,34 @@
+package com.pingtower.ping_worker.scheduler;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Number of check runs due in each second of a time window, computed from the cron set of all
+ * enabled checks.
+ */
+@Data
+@Builder
+public class ScheduleDensityReport {
+    private Instant from;
+    private int horizonSeconds;
+    private boolean spreadEnabled;
+    private int checks;
+    private int invalidSchedules;
+    private long totalRuns;
+    private double averagePerSecond;
+    private int maxPerSecond;
+    private List<Peak> peaks;
+    /** Runs due per second, index 0 is the second starting at {@link #from}. */
+    private int[] perSecond;
+
+    @Data
+    @Builder
+    public static class Peak {
+        private Instant second;
+        private int runs;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.domain.Check;
+import com.pingtower.ping_worker.repository.CheckRepository;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a {@link ScheduleDensityReport} over all enabled checks, not only the ones owned by this
+ * worker, applying the same spreading offsets as the {@link CheckScheduler}.
+ */
+@Service
+public class ScheduleDensityService {
+
+    private final CheckRepository checkRepository;
+    private final ScheduleSpreader scheduleSpreader;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public ScheduleDensityService(CheckRepository checkRepository, ScheduleSpreader scheduleSpreader) {
+        this.checkRepository = checkRepository;
+        this.scheduleSpreader = scheduleSpreader;
+    }
+
+    public ScheduleDensityReport report(int horizonSeconds, int topPeaks) {
+        long fromMillis = (System.currentTimeMillis() / 1000 + 1) * 1000; // Start at the next full second
+        long toMillis = fromMillis + horizonSeconds * 1000L;
+        int[] perSecond = new int[horizonSeconds];
+        int checks = 0;
+        int invalid = 0;
+        long totalRuns = 0;
+
+        for (Check check : checkRepository.findAllByEnabledIsTrue()) {
+            CronExpression cron;
+            try {
+                cron = CronExpression.parse(check.getSchedule());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                invalid++;
+                continue;
+            }
+            checks++;
+            long offset = scheduleSpreader.offsetMillis(check.getId(), cron);
+            // Nominal instants strictly after (from - offset - 1ms), so a run exactly at 'from' counts
+            ZonedDateTime nominal = cron.next(ZonedDateTime.ofInstant(Instant.ofEpochMilli(fromMillis - offset - 1), zone));
+            while (nominal != null) {
+                long fireAt = nominal.toInstant().toEpochMilli() + offset;
+                if (fireAt >= toMillis) {
+                    break;
+                }
+                perSecond[(int) ((fireAt - fromMillis) / 1000)]++;
+                totalRuns++;
+                nominal = cron.next(nominal);
+            }
+        }
+
+        int max = IntStream.of(perSecond).max().orElse(0);
+        List<ScheduleDensityReport.Peak> peaks = IntStream.range(0, horizonSeconds)
+                .filter(i -> perSecond[i] > 0)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(i -> perSecond[i]).reversed().thenComparingInt(i -> i))
+                .limit(topPeaks)
+                .map(i -> ScheduleDensityReport.Peak.builder()
+                        .second(Instant.ofEpochMilli(fromMillis + i * 1000L))
+                        .runs(perSecond[i])
+                        .build())
+                .collect(Collectors.toList());
+
+        return ScheduleDensityReport.builder()
+                .from(Instant.ofEpochMilli(fromMillis))
+                .horizonSeconds(horizonSeconds)
+                .spreadEnabled(scheduleSpreader.isEnabled())
+                .checks(checks)
+                .invalidSchedules(invalid)
+                .totalRuns(totalRuns)
+                .averagePerSecond(horizonSeconds > 0 ? (double) totalRuns / horizonSeconds : 0)
+                .maxPerSecond(max)
+                .peaks(peaks)
+                .perSecond(perSecond)
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.pingtower.ping_worker.scheduler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deterministic per-check phase offsets for spreading load.
+ * <p>
+ * Most schedules are round cron expressions, so without spreading every check with the same cron
+ * fires in the same second. When {@code ping-worker.scheduler.spread.enabled} is set, each check is
+ * shifted by a stable offset derived from its id and bounded by the shortest gap between runs of its
+ * cron (and by {@code max-offset-seconds}, 5 minutes unless configured). The gap is measured over a
+ * fixed stretch of instants from {@link #ANCHOR}, not from the current time, so the offset never
+ * changes for a given check and schedule: it is the same after every restart and on every worker,
+ * runs stay exactly one interval apart, and a cron with uneven gaps such as {@code 0 0 9-17 * * *}
+ * is bounded by its shortest gap (1h), never by the overnight one.
+ */
+@Component
+public class ScheduleSpreader {
+
+    /** Start of the instants the shortest cron gap is measured over, in the scheduler's zone. */
+    static final LocalDateTime ANCHOR = LocalDateTime.of(2024, 1, 1, 0, 0);
+    // Enough to see every gap of crons that repeat within a day or a week; rarer crons see a year
+    private static final int GAP_SAMPLES = 512;
+
+    private final boolean enabled;
+    private final long maxOffsetMillis;
+    private final ZoneId zone;
+    private final Map<String, Long> shortestGaps = new ConcurrentHashMap<>();
+
+    public ScheduleSpreader(@Value("${ping-worker.scheduler.spread.enabled:false}") boolean enabled,
+                            @Value("${ping-worker.scheduler.spread.max-offset-seconds:300}") long maxOffsetSeconds) {
+        this(enabled, maxOffsetSeconds, ZoneId.systemDefault());
+    }
+
+    ScheduleSpreader(boolean enabled, long maxOffsetSeconds, ZoneId zone) {
+        this.enabled = enabled;
+        this.maxOffsetMillis = maxOffsetSeconds * 1000;
+        this.zone = zone;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the offset in milliseconds to add to every nominal cron instant of the check, or 0
+     * when spreading is disabled. Depends only on the check id and the cron.
+     */
+    public long offsetMillis(UUID checkId, CronExpression cron) {
+        if (!enabled) {
+            return 0;
+        }
+        long window = shortestGapMillis(cron);
+        if (maxOffsetMillis > 0) {
+            window = Math.min(window, maxOffsetMillis);
+        }
+        if (window <= 1) {
+            return 0;
+        }
+        return Math.floorMod(mix(checkId), window);
+    }
+
+    // Shortest distance between consecutive cron instants from ANCHOR on, 0 for crons that fire once
+    long shortestGapMillis(CronExpression cron) {
+        return shortestGaps.computeIfAbsent(cron.toString(), expression -> {
+            ZonedDateTime previous = cron.next(ANCHOR.atZone(zone));
+            long shortest = Long.MAX_VALUE;
+            for (int i = 0; previous != null && i < GAP_SAMPLES; i++) {
+                ZonedDateTime next = cron.next(previous);
+                if (next == null) {
+                    break;
+                }
+                shortest = Math.min(shortest, next.toInstant().toEpochMilli() - previous.toInstant().toEpochMilli());
+                previous = next;
+            }
+            return shortest == Long.MAX_VALUE ? 0 : shortest;
+        });
+    }
+
+    private static long mix(UUID id) {
+        // SplitMix64 finalizer, independent from the shard ring hash so offsets do not follow shards
+        long h = id.getLeastSignificantBits() + 0x9e3779b97f4a7c15L * id.getMostSignificantBits();
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
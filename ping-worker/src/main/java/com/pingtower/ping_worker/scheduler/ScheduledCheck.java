@@ -0,0 +1,83 @@
+package com.pingtower.ping_worker.scheduler;
+
+import com.pingtower.ping_worker.check.CheckSpec;
+import com.pingtower.ping_worker.domain.Check;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry of the {@link CheckScheduler} queue: a check together with its compiled spec and the
+ * precomputed instant of its next run.
+ * <p>
+ * {@code nominalMillis} is the cron instant the run belongs to; the entry actually fires
+ * {@code offsetMillis} later when schedule spreading is enabled (see {@link ScheduleSpreader}).
+ * The fire time, offset and cron are fixed for the lifetime of an entry. A schedule change produces a new
+ * entry and the old one is discarded lazily when it is polled; a config change only swaps the
+ * check and spec references so the queue does not accumulate duplicates on every sync.
+ */
+class ScheduledCheck implements Delayed {
+
+    private final CronExpression cron;
+    private final long nominalMillis;
+    private final long offsetMillis;
+    private final long fireAtMillis;
+    private volatile Check check;
+    private volatile CheckSpec spec;
+
+    ScheduledCheck(Check check, CheckSpec spec, long nominalMillis, long offsetMillis) {
+        this.check = check;
+        this.spec = spec;
+        this.cron = spec.getCron();
+        this.nominalMillis = nominalMillis;
+        this.offsetMillis = offsetMillis;
+        this.fireAtMillis = nominalMillis + offsetMillis;
+    }
+
+    Check getCheck() {
+        return check;
+    }
+
+    CheckSpec getSpec() {
+        return spec;
+    }
+
+    void update(Check check, CheckSpec spec) {
+        this.check = check;
+        this.spec = spec;
+    }
+
+    String getSchedule() {
+        return spec.getSchedule();
+    }
+
+    CronExpression getCron() {
+        return cron;
+    }
+
+    long getNominalMillis() {
+        return nominalMillis;
+    }
+
+    long getOffsetMillis() {
+        return offsetMillis;
+    }
+
+    long getFireAtMillis() {
+        return fireAtMillis;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(fireAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other instanceof ScheduledCheck that) {
+            return Long.compare(fireAtMillis, that.fireAtMillis);
+        }
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
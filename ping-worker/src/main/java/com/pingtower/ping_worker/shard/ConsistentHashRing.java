@@ -0,0 +1,70 @@
+package com.pingtower.ping_worker.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Consistent-hash ring mapping check ids to worker ids. Each worker is placed on the ring many times
+ * (virtual nodes) so that adding or removing a worker only moves roughly {@code 1/N} of the checks.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> members;
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        List<String> sorted = new ArrayList<>(members);
+        Collections.sort(sorted);
+        this.members = Collections.unmodifiableList(sorted);
+        for (String member : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(nodeHash(member + "#" + i), member);
+            }
+        }
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public String ownerOf(UUID id) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(keyHash(id));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static long keyHash(UUID id) {
+        // MurmurHash3 finalizer over both halves; cheap and stable across JVMs
+        long h = id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long nodeHash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xff);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
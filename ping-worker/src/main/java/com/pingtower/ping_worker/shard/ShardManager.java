@@ -0,0 +1,125 @@
+package com.pingtower.ping_worker.shard;
+
+import com.pingtower.ping_worker.domain.WorkerLease;
+import com.pingtower.ping_worker.repository.WorkerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Partitions checks between ping-worker instances.
+ * <p>
+ * Each worker keeps a lease row in Postgres that it renews on every schedule sync. The live workers
+ * (unexpired leases) form a {@link ConsistentHashRing} and a worker only schedules the checks that
+ * hash to it. When a worker joins, stops or stops renewing, the ring is rebuilt on the next sync of
+ * every worker and its checks move to their new owners.
+ */
+@Slf4j
+@Component
+public class ShardManager {
+
+    private final WorkerLeaseRepository workerLeaseRepository;
+    private final boolean enabled;
+    private final String workerId;
+    private final long leaseTtlMillis;
+    private final int virtualNodes;
+    private final Timestamp startedAt = new Timestamp(System.currentTimeMillis());
+
+    private volatile ConsistentHashRing ring;
+
+    public ShardManager(WorkerLeaseRepository workerLeaseRepository,
+                        @Value("${ping-worker.shard.enabled:true}") boolean enabled,
+                        @Value("${ping-worker.shard.worker-id:}") String workerId,
+                        @Value("${ping-worker.shard.lease-ttl-seconds:90}") long leaseTtlSeconds,
+                        @Value("${ping-worker.shard.virtual-nodes:128}") int virtualNodes) {
+        this.workerLeaseRepository = workerLeaseRepository;
+        this.enabled = enabled;
+        this.workerId = workerId.isBlank() ? defaultWorkerId() : workerId;
+        this.leaseTtlMillis = leaseTtlSeconds * 1000;
+        this.virtualNodes = virtualNodes;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * Renews this worker's lease, expires the leases of dead workers and rebuilds the ring if the
+     * set of live workers has changed. With {@code rebalance} false the current ring is kept, so this
+     * worker neither hands checks over nor takes new ones until a later call rebalances.
+     */
+    public void renewLease(boolean rebalance) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        WorkerLease lease = new WorkerLease();
+        lease.setWorkerId(workerId);
+        lease.setHeartbeatAt(new Timestamp(now));
+        lease.setStartedAt(startedAt);
+        workerLeaseRepository.save(lease);
+
+        Timestamp expiry = new Timestamp(now - leaseTtlMillis);
+        workerLeaseRepository.deleteByHeartbeatAtBefore(expiry);
+        List<String> liveWorkers = workerLeaseRepository.findAllByHeartbeatAtAfter(expiry).stream()
+                .map(WorkerLease::getWorkerId)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (!liveWorkers.contains(workerId)) {
+            liveWorkers.add(workerId);
+        }
+        Collections.sort(liveWorkers);
+
+        ConsistentHashRing current = ring;
+        if (current != null && !rebalance) {
+            if (!current.getMembers().equals(liveWorkers)) {
+                log.warn("Live workers changed to {}, keeping the current shards of worker '{}' for now", liveWorkers, workerId);
+            }
+            return;
+        }
+        if (current == null || !current.getMembers().equals(liveWorkers)) {
+            ring = new ConsistentHashRing(liveWorkers, virtualNodes);
+            log.info("Shard ring rebuilt for worker '{}': {} live workers {}", workerId, liveWorkers.size(), liveWorkers);
+        }
+    }
+
+    public boolean owns(UUID checkId) {
+        ConsistentHashRing current = ring;
+        if (!enabled || current == null) {
+            return true;
+        }
+        return workerId.equals(current.ownerOf(checkId));
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            workerLeaseRepository.deleteById(workerId);
+            log.info("Released shard lease for worker '{}'", workerId);
+        } catch (Exception e) {
+            log.warn("Failed to release shard lease for worker '{}': {}", workerId, e.getMessage());
+        }
+    }
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = UUID.randomUUID().toString();
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,162 @@
+package com.pingtower.ping_worker.state;
+
+import com.pingtower.ping_worker.domain.Check;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for the per-check state columns ({@code last_execution}, {@code last_status},
+ * {@code last_latency_ms}).
+ * <p>
+ * Updates are coalesced per check id, so a check that runs several times between flushes costs a
+ * single row update, and are written every {@code ping-worker.state.flush-interval-ms} as one JDBC
+ * batch. {@link #flush()} is also called before every schedule sync so the next scheduling decision,
+ * on this worker or on the worker that takes a check over after a rebalance, sees the latest
+ * {@code last_execution}.
+ */
+@Slf4j
+@Component
+public class CheckStateBuffer {
+
+    private static final String UPDATE_SQL = "UPDATE checks SET "
+            + "last_execution = COALESCE(?, last_execution), "
+            + "last_status = COALESCE(?, last_status), "
+            + "last_latency_ms = COALESCE(?, last_latency_ms) "
+            + "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMs;
+    private final int batchSize;
+    private final Map<UUID, PendingState> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    public CheckStateBuffer(JdbcTemplate jdbcTemplate,
+                            @Value("${ping-worker.state.flush-interval-ms:1000}") long flushIntervalMs,
+                            @Value("${ping-worker.state.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CheckStateFlusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flushQuietly();
+    }
+
+    public void recordExecution(UUID checkId, Timestamp lastExecution) {
+        pending.merge(checkId, new PendingState(lastExecution, null, null), PendingState::merge);
+    }
+
+    public void recordResult(UUID checkId, Integer lastStatus, Integer lastLatencyMs) {
+        pending.merge(checkId, new PendingState(null, lastStatus, lastLatencyMs), PendingState::merge);
+    }
+
+    /**
+     * Copies state that has not been flushed yet onto a check freshly loaded from the database, so
+     * a reload does not roll back what this worker already knows.
+     */
+    public void applyPending(Check check) {
+        PendingState state = pending.get(check.getId());
+        if (state == null) {
+            return;
+        }
+        if (state.lastExecution() != null) {
+            check.setLastExecution(state.lastExecution());
+        }
+        if (state.lastStatus() != null) {
+            check.setLastStatus(state.lastStatus());
+        }
+        if (state.lastLatencyMs() != null) {
+            check.setLastLatencyMs(state.lastLatencyMs());
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Writes all buffered updates. Updates that fail to write stay buffered for the next flush
+     * unless newer values for the same check have arrived in the meantime.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<UUID> ids = new ArrayList<>(pending.keySet());
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<UUID> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                List<Object[]> batch = new ArrayList<>(chunk.size());
+                Map<UUID, PendingState> taken = new HashMap<>(chunk.size());
+                for (UUID id : chunk) {
+                    PendingState state = pending.remove(id);
+                    if (state != null) {
+                        taken.put(id, state);
+                        batch.add(new Object[]{state.lastExecution(), state.lastStatus(), state.lastLatencyMs(), id});
+                    }
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                try {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, batch,
+                            new int[]{Types.TIMESTAMP, Types.INTEGER, Types.INTEGER, Types.OTHER});
+                } catch (RuntimeException e) {
+                    // Older state must not overwrite what was recorded while the batch was in flight
+                    taken.forEach((id, state) -> pending.merge(id, state, (newer, older) -> older.merge(newer)));
+                    throw e;
+                }
+            }
+            if (!ids.isEmpty()) {
+                log.debug("Flushed state of {} checks", ids.size());
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush check state, {} checks still pending", pending.size(), e);
+        }
+    }
+
+    private record PendingState(Timestamp lastExecution, Integer lastStatus, Integer lastLatencyMs) {
+
+        PendingState merge(PendingState newer) {
+            return new PendingState(
+                    newer.lastExecution != null ? newer.lastExecution : lastExecution,
+                    newer.lastStatus != null ? newer.lastStatus : lastStatus,
+                    newer.lastLatencyMs != null ? newer.lastLatencyMs : lastLatencyMs);
+        }
+    }
+}
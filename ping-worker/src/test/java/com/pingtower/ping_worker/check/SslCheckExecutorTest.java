@@ -0,0 +1,114 @@
+package com.pingtower.ping_worker.check;
+
+import com.pingtower.ping_worker.check.ssl.CertificateCache;
+import com.pingtower.ping_worker.check.ssl.TlsHandshakeProbe;
+import com.pingtower.ping_worker.check.ssl.TlsProbeResult;
+import com.pingtower.ping_worker.dns.CachingDnsResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import javax.security.auth.x500.X500Principal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.cert.CertificateExpiredException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SslCheckExecutorTest {
+
+    private static final String HOST = "example.com";
+
+    private CachingDnsResolver dnsResolver;
+    private TlsHandshakeProbe tlsHandshakeProbe;
+    private CertificateCache certificateCache;
+    private SslCheckExecutor executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dnsResolver = mock(CachingDnsResolver.class);
+        tlsHandshakeProbe = mock(TlsHandshakeProbe.class);
+        certificateCache = new CertificateCache(360, 7);
+        executor = new SslCheckExecutor(dnsResolver, tlsHandshakeProbe, certificateCache, 5000);
+        when(dnsResolver.resolveAll(HOST)).thenReturn(Mono.just(List.of(InetAddress.getByName("203.0.113.10"))));
+    }
+
+    @Test
+    void expiredCrossSignedIntermediateDoesNotFailAValidChain() {
+        List<X509Certificate> chain = List.of(
+                certificate("CN=example.com", Duration.ofDays(60)),
+                certificate("CN=R3", Duration.ofDays(400)),
+                // The legacy cross-signed root, expired but not needed to validate the chain
+                certificate("CN=ISRG Root X1", Duration.ofDays(-300)));
+        handshakeReturns(new TlsProbeResult(chain, null, 30));
+
+        CheckResult result = executor.execute(spec());
+
+        assertTrue(result.isSuccess());
+        assertEquals("Valid", result.getStatusText());
+        assertEquals(59, result.getSslExpiresInDays());
+        assertTrue(result.getDetails().contains("CN=ISRG Root X1 expires on"));
+        // The chain is cached, so the next run needs no handshake
+        assertNotNull(certificateCache.get(HOST, 443));
+    }
+
+    @Test
+    void expiredLeafFailsTheCheck() {
+        List<X509Certificate> chain = List.of(
+                certificate("CN=example.com", Duration.ofDays(-2)),
+                certificate("CN=R3", Duration.ofDays(400)));
+        handshakeReturns(new TlsProbeResult(chain, new CertificateExpiredException("leaf expired"), 30));
+
+        CheckResult result = executor.execute(spec());
+
+        assertFalse(result.isSuccess());
+        assertEquals("Expired", result.getStatusText());
+        assertEquals(-2, result.getSslExpiresInDays());
+        assertNull(certificateCache.get(HOST, 443));
+    }
+
+    @Test
+    void untrustedChainWithAValidLeafIsAnError() {
+        List<X509Certificate> chain = List.of(certificate("CN=example.com", Duration.ofDays(60)));
+        handshakeReturns(new TlsProbeResult(chain, new IllegalStateException("unable to find valid certification path"), 30));
+
+        CheckResult result = executor.execute(spec());
+
+        assertFalse(result.isSuccess());
+        assertEquals("Error", result.getStatusText());
+        assertEquals(59, result.getSslExpiresInDays());
+    }
+
+    private void handshakeReturns(TlsProbeResult result) {
+        when(tlsHandshakeProbe.probe(any(InetSocketAddress.class), eq(HOST), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(result));
+    }
+
+    private static CheckSpec spec() {
+        return CheckSpec.builder().type("SSL").url("https://" + HOST).build();
+    }
+
+    private static X509Certificate certificate(String subject, Duration expiresIn) {
+        X509Certificate certificate = mock(X509Certificate.class);
+        // Half a day short of whole days, so the day count does not depend on when the test runs
+        Instant notAfter = Instant.now().plus(expiresIn).minus(Duration.ofHours(12));
+        when(certificate.getNotAfter()).thenReturn(Date.from(notAfter));
+        when(certificate.getSubjectX500Principal()).thenReturn(new X500Principal(subject));
+        return certificate;
+    }
+}
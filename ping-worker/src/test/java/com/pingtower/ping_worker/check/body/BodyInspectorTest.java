@@ -0,0 +1,187 @@
+package com.pingtower.ping_worker.check.body;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BodyInspectorTest {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void containsFindsTextSplitAcrossChunks() {
+        BodyAssertion contains = new ContainsAssertion("HEALTHY", false);
+
+        assertTrue(inspect(List.of(contains), NO_LIMIT, "status: HEA", "LT", "HY; ok").passed());
+        assertFalse(inspect(List.of(contains), NO_LIMIT, "status: HEA", "LTH", "; HY").passed());
+    }
+
+    @Test
+    void containsFallsBackOnAPartialMatchAcrossChunks() {
+        // After "aa" the third "a" must keep the automaton at "aa", not restart it
+        BodyAssertion contains = new ContainsAssertion("aab", false);
+
+        assertTrue(inspect(List.of(contains), NO_LIMIT, "xa", "a", "ab").passed());
+        assertTrue(inspect(List.of(contains), NO_LIMIT, "aaaaaaa", "b").passed());
+    }
+
+    @Test
+    void notContainsFailsOnTextSplitAcrossChunks() {
+        BodyReport report = inspect(List.of(new ContainsAssertion("Internal Server Error", true)), NO_LIMIT,
+                "<h1>Internal Ser", "ver Error</h1>");
+
+        assertEquals(List.of("Body contains \"Internal Server Error\""), report.failures());
+    }
+
+    @Test
+    void containsMatchesMultiByteTextSplitInsideACharacter() {
+        byte[] body = "статус: работает".getBytes(StandardCharsets.UTF_8);
+        // Splits the two bytes of the first "р"
+        int split = "статус: ".getBytes(StandardCharsets.UTF_8).length + 1;
+
+        BodyReport report = inspect(List.of(new ContainsAssertion("работает", false)), StandardCharsets.UTF_8,
+                NO_LIMIT, Arrays.copyOfRange(body, 0, split), Arrays.copyOfRange(body, split, body.length));
+
+        assertTrue(report.passed());
+    }
+
+    @Test
+    void regexFindsMatchSplitAcrossChunksWithinTheWindow() {
+        BodyAssertion regex = new RegexAssertion("\"version\": \"\\d+\\.\\d+\"", 16);
+
+        assertTrue(inspect(List.of(regex), NO_LIMIT, "{\"vers", "ion\": \"1.", "42\"}").passed());
+    }
+
+    @Test
+    void regexMatchLongerThanTheWindowIsMissed() {
+        // The match is 30 characters; each search sees at most 8 kept characters and a 10 character chunk
+        BodyAssertion narrow = new RegexAssertion("begin.{20}end", 8);
+        BodyAssertion wide = new RegexAssertion("begin.{20}end", 64);
+        String[] chunks = {"xxbegin012", "3456789012", "3456789end", "xxxxxxxxxx"};
+
+        BodyReport report = inspect(List.of(narrow, wide), NO_LIMIT, chunks);
+
+        assertEquals(List.of("Body does not match /begin.{20}end/"), report.failures());
+    }
+
+    @Test
+    void regexDecodesCharactersSplitAcrossChunks() {
+        byte[] body = "ответ: ёлка".getBytes(StandardCharsets.UTF_8);
+        int split = body.length - 1;
+
+        BodyReport report = inspect(List.of(new RegexAssertion("ёл(ка|ки)", 64)), StandardCharsets.UTF_8,
+                NO_LIMIT, Arrays.copyOfRange(body, 0, split), Arrays.copyOfRange(body, split, body.length));
+
+        assertTrue(report.passed());
+    }
+
+    @Test
+    void jsonPointerFindsValueSplitAcrossChunks() {
+        BodyAssertion pointer = new JsonPointerAssertion("/checks/1/status", "UP");
+
+        BodyReport report = inspect(List.of(pointer), NO_LIMIT,
+                "{\"checks\": [{\"status\": \"DOWN\"}, {\"sta", "tus\": \"U", "P\"}]}");
+
+        assertTrue(report.passed());
+    }
+
+    @Test
+    void jsonPointerUnescapesTildeAndSlash() {
+        String body = "{\"a/b\": {\"m~n\": \"UP\", \"m/n\": \"DOWN\"}, \"a~1b\": {\"m~n\": \"STALE\"}}";
+
+        assertTrue(inspect(List.of(new JsonPointerAssertion("/a~1b/m~0n", "UP")), NO_LIMIT, body).passed());
+        assertTrue(inspect(List.of(new JsonPointerAssertion("/a~1b/m~1n", "DOWN")), NO_LIMIT, body).passed());
+        // "~01" is "~1" escaped, naming the key "a~1b" rather than "a/b"
+        assertTrue(inspect(List.of(new JsonPointerAssertion("/a~01b/m~0n", "STALE")), NO_LIMIT, body).passed());
+    }
+
+    @Test
+    void jsonPointerComparesScalarsByTheirText() {
+        String body = "{\"count\": 3, \"ok\": true, \"reason\": null}";
+
+        BodyReport report = inspect(List.of(
+                new JsonPointerAssertion("/count", "3"),
+                new JsonPointerAssertion("/ok", "true"),
+                new JsonPointerAssertion("/reason", "null"),
+                new JsonPointerAssertion("/count", "4")), NO_LIMIT, body);
+
+        assertEquals(List.of("Expected \"4\" at /count but got \"3\""), report.failures());
+    }
+
+    @Test
+    void invalidJsonFailsTheJsonPointerAssertion() {
+        BodyReport report = inspect(List.of(new JsonPointerAssertion("/status", "UP")), NO_LIMIT, "<html>");
+
+        assertEquals(1, report.failures().size());
+        assertTrue(report.failures().get(0).startsWith("Body is not valid JSON"));
+    }
+
+    @Test
+    void truncatedBodyStopsAtTheCap() {
+        BodyReport report = inspect(List.of(new ContainsAssertion("tail", false)), 12,
+                "0123456789", "0123456789", "tail");
+
+        assertEquals(12, report.bytes());
+        assertTrue(report.truncated());
+        assertEquals(List.of("Body does not contain \"tail\" within the size limit"), report.failures());
+    }
+
+    @Test
+    void truncatedJsonIsReportedAsMissingNotInvalid() {
+        BodyReport report = inspect(List.of(new JsonPointerAssertion("/status", "UP")), 20,
+                "{\"padding\": \"0123456789\", \"status\": \"UP\"}");
+
+        assertTrue(report.truncated());
+        assertEquals(List.of("No value at /status within the size limit"), report.failures());
+    }
+
+    @Test
+    void bodyEndingExactlyAtTheCapIsNotTruncated() {
+        BodyReport report = inspect(List.of(new ContainsAssertion("89", false)), 10, "01234", "56789");
+
+        assertEquals(10, report.bytes());
+        assertFalse(report.truncated());
+        assertTrue(report.passed());
+    }
+
+    @Test
+    void assertionsAreParsedFromTheCheckConfig() throws Exception {
+        List<BodyAssertion> assertions = BodyAssertions.parse(objectMapper.readTree("""
+                [{"type": "contains", "value": "OK"},
+                 {"type": "regex", "pattern": "v\\\\d+"},
+                 {"type": "json_pointer", "pointer": "/status"},
+                 {"type": "unknown"}]
+                """));
+
+        assertEquals(4, assertions.size());
+        assertEquals("contains \"OK\"", assertions.get(0).describe());
+        assertEquals("regex /v\\d+/", assertions.get(1).describe());
+        BodyReport report = inspect(assertions, NO_LIMIT, "OK v2");
+        assertEquals(List.of(
+                "Invalid body assertion: A json_pointer assertion needs 'pointer' and 'equals'",
+                "Invalid body assertion: Unknown body assertion type 'unknown'"), report.failures());
+    }
+
+    private static BodyReport inspect(List<BodyAssertion> assertions, long maxBytes, String... chunks) {
+        byte[][] bytes = Arrays.stream(chunks).map(chunk -> chunk.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        return inspect(assertions, StandardCharsets.UTF_8, maxBytes, bytes);
+    }
+
+    private static BodyReport inspect(List<BodyAssertion> assertions, Charset charset, long maxBytes, byte[]... chunks) {
+        Flux<DataBuffer> body = Flux.fromArray(chunks).map(DefaultDataBufferFactory.sharedInstance::wrap);
+        return BodyInspector.inspect(body, assertions, charset, maxBytes).block();
+    }
+}
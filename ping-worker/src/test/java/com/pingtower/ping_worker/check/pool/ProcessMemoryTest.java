@@ -0,0 +1,81 @@
+package com.pingtower.ping_worker.check.pool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProcessMemoryTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void cgroupV2LeavesReclaimableFileCacheOutOfTheWorkingSet() throws IOException {
+        Path cgroup = Files.createDirectories(root.resolve("cgroup"));
+        Files.writeString(cgroup.resolve("memory.max"), 2048 * MB + "\n");
+        Files.writeString(cgroup.resolve("memory.current"), 1900 * MB + "\n");
+        Files.writeString(cgroup.resolve("memory.stat"), """
+                anon 700000000
+                file 1200000000
+                active_file 300000000
+                inactive_file %d
+                """.formatted(800 * MB));
+
+        // 1900 MB used, 800 MB of it inactive page cache: 1100 MB working set
+        assertEquals(OptionalLong.of(948 * MB), ProcessMemory.availableBytes(cgroup, meminfo()));
+    }
+
+    @Test
+    void cgroupV1UsesTotalInactiveFile() throws IOException {
+        Path cgroup = Files.createDirectories(root.resolve("cgroup"));
+        Path memory = Files.createDirectories(cgroup.resolve("memory"));
+        Files.writeString(memory.resolve("memory.limit_in_bytes"), 1024 * MB + "\n");
+        Files.writeString(memory.resolve("memory.usage_in_bytes"), 1000 * MB + "\n");
+        Files.writeString(memory.resolve("memory.stat"), """
+                cache 500000000
+                inactive_file 1
+                total_inactive_file %d
+                """.formatted(400 * MB));
+
+        assertEquals(OptionalLong.of(424 * MB), ProcessMemory.availableBytes(cgroup, meminfo()));
+    }
+
+    @Test
+    void missingStatCountsAllUsage() throws IOException {
+        Path cgroup = Files.createDirectories(root.resolve("cgroup"));
+        Files.writeString(cgroup.resolve("memory.max"), 1024 * MB + "\n");
+        Files.writeString(cgroup.resolve("memory.current"), 1100 * MB + "\n");
+
+        assertEquals(OptionalLong.of(0), ProcessMemory.availableBytes(cgroup, meminfo()));
+    }
+
+    @Test
+    void unlimitedCgroupFallsBackToMeminfo() throws IOException {
+        Path cgroup = Files.createDirectories(root.resolve("cgroup"));
+        Files.writeString(cgroup.resolve("memory.max"), "max\n");
+        Files.writeString(cgroup.resolve("memory.current"), 1900 * MB + "\n");
+
+        assertEquals(OptionalLong.of(3_000_000 * 1024L), ProcessMemory.availableBytes(cgroup, meminfo()));
+    }
+
+    @Test
+    void nothingReadableIsEmpty() {
+        assertEquals(OptionalLong.empty(), ProcessMemory.availableBytes(root.resolve("none"), root.resolve("meminfo")));
+    }
+
+    private Path meminfo() throws IOException {
+        return Files.writeString(root.resolve("meminfo"), """
+                MemTotal:        8000000 kB
+                MemFree:         1000000 kB
+                MemAvailable:    3000000 kB
+                """);
+    }
+}
@@ -0,0 +1,49 @@
+package com.pingtower.ping_worker.check.ssl;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CertificateCacheTest {
+
+    private final CertificateCache cache = new CertificateCache(360, 7);
+
+    @Test
+    void expiredIntermediateDoesNotKeepTheChainOutOfTheCache() {
+        List<X509Certificate> chain = List.of(certificate(Duration.ofDays(60)), certificate(Duration.ofDays(-300)));
+
+        cache.put("Example.com", 443, chain);
+
+        assertEquals(chain, cache.get("example.com", 443));
+    }
+
+    @Test
+    void leafCloseToExpiryIsFetchedAgain() {
+        cache.put("example.com", 443, List.of(certificate(Duration.ofDays(3)), certificate(Duration.ofDays(400))));
+
+        assertNull(cache.get("example.com", 443));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void chainIsKeptPerPort() {
+        cache.put("example.com", 443, List.of(certificate(Duration.ofDays(60))));
+
+        assertNull(cache.get("example.com", 8443));
+    }
+
+    private static X509Certificate certificate(Duration expiresIn) {
+        X509Certificate certificate = mock(X509Certificate.class);
+        when(certificate.getNotAfter()).thenReturn(Date.from(Instant.now().plus(expiresIn)));
+        return certificate;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pingtower.ping_worker.dns;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TtlRecorderTest {
+
+    private static final long DEFAULT_TTL = TimeUnit.SECONDS.toNanos(60);
+
+    private final CachingDnsResolver.TtlRecorder recorder = new CachingDnsResolver.TtlRecorder();
+
+    @Test
+    void hostsSharingAnAddressKeepTheirOwnTtl() throws UnknownHostException {
+        InetAddress shared = address("203.0.113.10");
+        recorder.cache("a.example.com.", null, shared, 30, null);
+        recorder.cache("b.example.com.", null, shared, 600, null);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(600), recorder.ttlNanos("b.example.com", List.of(shared), DEFAULT_TTL));
+        assertEquals(TimeUnit.SECONDS.toNanos(30), recorder.ttlNanos("a.example.com", List.of(shared), DEFAULT_TTL));
+    }
+
+    @Test
+    void shortestTtlOfTheAddressesWins() throws UnknownHostException {
+        InetAddress first = address("203.0.113.10");
+        InetAddress second = address("203.0.113.11");
+        recorder.cache("Example.COM.", null, first, 300, null);
+        recorder.cache("example.com.", null, second, 120, null);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(120), recorder.ttlNanos("example.com", List.of(first, second), DEFAULT_TTL));
+        assertEquals(0, recorder.size());
+    }
+
+    @Test
+    void internationalizedNamesMatchTheirAsciiForm() throws UnknownHostException {
+        InetAddress address = address("203.0.113.12");
+        recorder.cache("xn--e1afmkfd.xn--p1ai.", null, address, 90, null);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(90), recorder.ttlNanos("пример.рф", List.of(address), DEFAULT_TTL));
+    }
+
+    @Test
+    void unknownNameFallsBackToTheDefaultTtl() throws UnknownHostException {
+        InetAddress address = address("203.0.113.13");
+        recorder.cache("other.example.com.", null, address, 90, null);
+
+        assertEquals(DEFAULT_TTL, recorder.ttlNanos("example.com", List.of(address), DEFAULT_TTL));
+    }
+
+    @Test
+    void unclaimedTtlsAreEvicted() throws UnknownHostException {
+        recorder.cache("host.search.local.", null, address("203.0.113.14"), 90, null);
+
+        recorder.evictOlderThan(System.nanoTime() + 1);
+
+        assertEquals(0, recorder.size());
+    }
+
+    private static InetAddress address(String literal) throws UnknownHostException {
+        return InetAddress.getByName(literal);
+    }
+}
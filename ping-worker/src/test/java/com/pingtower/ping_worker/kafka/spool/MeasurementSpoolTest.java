@@ -0,0 +1,167 @@
+package com.pingtower.ping_worker.kafka.spool;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeasurementSpoolTest {
+
+    private static final String TOPIC = "raw-measurements";
+    // Five of these fill a 1 MB segment
+    private static final int LARGE_MESSAGE = 200 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void restartReplaysOnlyUncommittedMessagesInOrder() {
+        MeasurementSpool spool = open(1, 16);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spool.append(TOPIC, message(i, 32)));
+        }
+        spool.commit(spool.peek(2));
+        spool.close();
+
+        MeasurementSpool reopened = open(1, 16);
+        assertFalse(reopened.isEmpty());
+        assertEquals(List.of(2, 3, 4), drain(reopened));
+        assertTrue(reopened.isEmpty());
+    }
+
+    @Test
+    void recordWithBadChecksumEndsTheSegmentOnRecovery() throws IOException {
+        MeasurementSpool spool = open(1, 16);
+        for (int i = 0; i < 3; i++) {
+            spool.append(TOPIC, message(i, 32));
+        }
+        spool.close();
+
+        // Flip the last payload byte of the third record, as a torn write would leave it
+        Path file = segmentFiles().get(0);
+        int recordBytes = SpoolSegment.RECORD_OVERHEAD + payloadBytes(32);
+        int lastByteOfThird = SpoolSegment.HEADER_BYTES + 3 * recordBytes - 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer oneByte = ByteBuffer.allocate(1);
+            channel.read(oneByte, lastByteOfThird);
+            oneByte.flip();
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~oneByte.get()}), lastByteOfThird);
+        }
+
+        SpoolSegment segment = SpoolSegment.recover(file, 0);
+        assertTrue(segment.truncated());
+        assertEquals(2, segment.unread());
+        segment.unmap();
+
+        assertEquals(List.of(0, 1), drain(open(1, 16)));
+    }
+
+    @Test
+    void lengthWrittenWithoutPayloadIsRejected() throws IOException {
+        MeasurementSpool spool = open(1, 16);
+        spool.append(TOPIC, message(0, 32));
+        spool.close();
+
+        // A record whose length reached the disk but whose payload and checksum did not
+        Path file = segmentFiles().get(0);
+        int next = SpoolSegment.HEADER_BYTES + SpoolSegment.RECORD_OVERHEAD + payloadBytes(32);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 64), next);
+        }
+
+        assertEquals(List.of(0), drain(open(1, 16)));
+    }
+
+    @Test
+    void segmentsRollWhenFullAndAreDeletedOnceReplayed() throws IOException {
+        MeasurementSpool spool = open(1, 16);
+        for (int i = 0; i < 12; i++) {
+            assertTrue(spool.append(TOPIC, message(i, LARGE_MESSAGE)));
+        }
+        assertEquals(3, segmentFiles().size());
+
+        List<Integer> replayed = drain(spool);
+
+        assertEquals(12, replayed.size());
+        assertEquals(0, replayed.get(0));
+        assertEquals(11, replayed.get(11));
+        // Only the segment still being written to is kept
+        assertEquals(1, segmentFiles().size());
+    }
+
+    @Test
+    void fullSpoolDropsItsOldestSegment() throws IOException {
+        MeasurementSpool spool = open(1, 2);
+        for (int i = 0; i < 12; i++) {
+            assertTrue(spool.append(TOPIC, message(i, LARGE_MESSAGE)));
+        }
+
+        assertEquals(2, segmentFiles().size());
+        assertEquals(5, meterRegistry.counter("pingtower.spool.dropped", "reason", "full").count());
+        assertEquals(List.of(5, 6, 7, 8, 9, 10, 11), drain(spool));
+    }
+
+    @Test
+    void deletedSegmentIsUnmapped() throws IOException {
+        SpoolSegment segment = SpoolSegment.create(directory, 0, 1024 * 1024);
+        segment.append(new byte[]{1, 2, 3});
+
+        segment.delete();
+
+        assertFalse(Files.exists(segment.file()));
+        // The JDK this runs on must let the spool release mappings without the garbage collector
+        assertTrue(SpoolSegment.create(directory, 1, 1024 * 1024).unmap());
+    }
+
+    private MeasurementSpool open(int segmentSizeMb, int maxSizeMb) {
+        MeasurementSpool spool = new MeasurementSpool(true, directory.toString(), segmentSizeMb, maxSizeMb, meterRegistry);
+        spool.open();
+        return spool;
+    }
+
+    // Replays and commits everything, returning the index stored in each message
+    private static List<Integer> drain(MeasurementSpool spool) {
+        List<Integer> indexes = new ArrayList<>();
+        MeasurementSpool.Batch batch;
+        while ((batch = spool.peek(100)) != null) {
+            for (MeasurementSpool.SpooledMessage message : batch.messages()) {
+                assertEquals(TOPIC, message.topic());
+                indexes.add(ByteBuffer.wrap(message.message()).getInt());
+            }
+            spool.commit(batch);
+        }
+        assertNull(spool.peek(100));
+        return indexes;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(SpoolSegment.SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static byte[] message(int index, int size) {
+        return ByteBuffer.allocate(size).putInt(index).array();
+    }
+
+    // [short topic length][topic][message], as MeasurementSpool stores it
+    private static int payloadBytes(int messageSize) {
+        return 2 + TOPIC.length() + messageSize;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pingtower.ping_worker.scheduler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.ZoneId;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduleSpreaderTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Moscow");
+    private static final UUID CHECK_ID = UUID.fromString("6f1c2a9e-3b4d-4e5f-8a7b-9c0d1e2f3a4b");
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0 * * * * * | 60000",
+            "0 */5 * * * * | 300000",
+            "0 0 9-17 * * * | 3600000",
+            "0 0 12 * * MON-FRI | 86400000",
+            "0 0,10 * * * * | 600000"
+    })
+    void shortestGapIgnoresLongerGaps(String cron, long expectedMillis) {
+        ScheduleSpreader spreader = new ScheduleSpreader(true, 0, ZONE);
+        assertEquals(expectedMillis, spreader.shortestGapMillis(CronExpression.parse(cron)));
+    }
+
+    @Test
+    void irregularCronKeepsItsOffsetWhateverTheTime() {
+        CronExpression cron = CronExpression.parse("0 0 9-17 * * *");
+        ScheduleSpreader spreader = new ScheduleSpreader(true, 0, ZONE);
+        long expected = spreader.offsetMillis(CHECK_ID, cron);
+
+        // The offset does not depend on the current time; fresh instances stand for restarts at any hour
+        for (int restart = 0; restart < 5; restart++) {
+            assertEquals(expected, new ScheduleSpreader(true, 0, ZONE).offsetMillis(CHECK_ID, cron));
+        }
+        assertTrue(expected >= 0 && expected < 3_600_000, "offset must stay within the 1h daytime gap");
+    }
+
+    @Test
+    void offsetIsCappedByMaxOffset() {
+        CronExpression cron = CronExpression.parse("0 0 9-17 * * *");
+        ScheduleSpreader spreader = new ScheduleSpreader(true, 300, ZONE);
+        for (int i = 0; i < 1000; i++) {
+            long offset = spreader.offsetMillis(UUID.randomUUID(), cron);
+            assertTrue(offset >= 0 && offset < 300_000, "offset " + offset + " exceeds the cap");
+        }
+    }
+
+    @Test
+    void disabledSpreaderDoesNotShift() {
+        ScheduleSpreader spreader = new ScheduleSpreader(false, 0, ZONE);
+        assertEquals(0, spreader.offsetMillis(CHECK_ID, CronExpression.parse("0 * * * * *")));
+    }
+}
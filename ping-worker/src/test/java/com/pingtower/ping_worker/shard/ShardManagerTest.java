@@ -0,0 +1,72 @@
+package com.pingtower.ping_worker.shard;
+
+import com.pingtower.ping_worker.domain.WorkerLease;
+import com.pingtower.ping_worker.repository.WorkerLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardManagerTest {
+
+    private static final List<UUID> CHECKS = IntStream.range(0, 200).mapToObj(i -> UUID.randomUUID()).toList();
+
+    private WorkerLeaseRepository repository;
+    private ShardManager shardManager;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(WorkerLeaseRepository.class);
+        shardManager = new ShardManager(repository, true, "worker-a", 90, 128);
+    }
+
+    @Test
+    void keepsItsShardsWhileRebalancingIsHeldBack() {
+        liveWorkers("worker-a");
+        shardManager.renewLease(true);
+        assertEquals(CHECKS.size(), ownedChecks());
+
+        liveWorkers("worker-a", "worker-b");
+        shardManager.renewLease(false);
+
+        assertEquals(CHECKS.size(), ownedChecks());
+        // The lease is still renewed, so this worker does not expire in the meantime
+        verify(repository, times(2)).save(any(WorkerLease.class));
+
+        shardManager.renewLease(true);
+        assertTrue(ownedChecks() < CHECKS.size());
+    }
+
+    @Test
+    void firstSyncBuildsTheRingEvenWithoutRebalancing() {
+        liveWorkers("worker-a", "worker-b");
+
+        shardManager.renewLease(false);
+
+        assertTrue(ownedChecks() < CHECKS.size());
+    }
+
+    private void liveWorkers(String... workerIds) {
+        List<WorkerLease> leases = Arrays.stream(workerIds).map(id -> {
+            WorkerLease lease = new WorkerLease();
+            lease.setWorkerId(id);
+            return lease;
+        }).toList();
+        when(repository.findAllByHeartbeatAtAfter(any())).thenReturn(leases);
+    }
+
+    private long ownedChecks() {
+        return CHECKS.stream().filter(shardManager::owns).count();
+    }
+}